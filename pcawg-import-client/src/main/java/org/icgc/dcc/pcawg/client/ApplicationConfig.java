@@ -4,11 +4,32 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import lombok.ToString;
+import org.icgc.dcc.pcawg.client.filter.coding.SnpEffMode;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_BGZF_INFLATE_THREADS;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_BYPASS_NOISE_FILTER;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_BYPASS_TCGA_FILTER;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_CHECKPOINT;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_CHECKPOINT_INTERVAL_SECONDS;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_CODING_REGIONS;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_CONTIG_THREADS;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_CONVERT_BATCH_SIZE;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_CONVERT_THREADS;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_ENABLE_SSM_VALIDATION;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_FILE_THREADS;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_INCREMENTAL;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_LONGEST_FIRST;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_PIPELINE_QUEUE_SIZE;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_PLAN;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_PLAN_CALIBRATION_FILES;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_PREFETCH_DEPTH;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_PREFETCH_DISK_BUDGET_MB;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_PROJECT_THREADS;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_REGIONS;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_SNPEFF_CACHE;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_SNPEFF_MODE;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_SNPEFF_PROCESSES;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.OUTPUT_TSV_DIRECTORY;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.STORAGE_BYPASS_MD5_CHECK;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.STORAGE_OUTPUT_VCF_STORAGE_DIR;
@@ -46,6 +67,67 @@ public class ApplicationConfig {
 
       private boolean bypass_tcga_filter = DEFAULT_BYPASS_TCGA_FILTER;
       private boolean bypass_noise_filter = DEFAULT_BYPASS_NOISE_FILTER;
+
+      // process: the coding predictions of the tcga filter are made by SnpEff processes. in_process: by SnpEff 3.6 loaded in the importer, which needs as much more heap as the SnpEff database
+      private SnpEffMode snpeff_mode = DEFAULT_SNPEFF_MODE;
+
+      // Number of SnpEff processes the coding predictions of the tcga filter are spread over, each with its own copy of the SnpEff database in memory. In the in_process snpeff_mode, number of threads sharing the database
+      private int snpeff_processes = DEFAULT_SNPEFF_PROCESSES;
+
+      // Cache the coding predictions of SnpEff in the persisted directory, so that the next runs only predict the new variants
+      private boolean snpeff_cache = DEFAULT_SNPEFF_CACHE;
+
+      // GTF (like Ensembl GRCh37.75, of which the CDS, start and stop codons are kept) or BED file of the coding regions, maybe gzipped. The variants outside of them are rejected by the tcga filter without asking SnpEff. Empty asks SnpEff for every variant
+      private String coding_regions = DEFAULT_CODING_REGIONS;
+
       private boolean enable_ssm_validation = DEFAULT_ENABLE_SSM_VALIDATION;
 
+      // Number of dccProjectCodes processed concurrently. 1 processes them one after the other
+      private int project_threads = DEFAULT_PROJECT_THREADS;
+
+      // Number of VCF files of the same dccProjectCode converted concurrently, per project worker
+      private int file_threads = DEFAULT_FILE_THREADS;
+
+      // Number of VCF files downloaded ahead of the one being converted, per project. 0 disables prefetching
+      private int prefetch_depth = DEFAULT_PREFETCH_DEPTH;
+
+      // Maximum size of the downloaded but not yet converted VCF files, per project
+      private long prefetch_disk_budget_mb = DEFAULT_PREFETCH_DISK_BUDGET_MB;
+
+      // Capacity of the queues between the read, convert, validate and write stages of a file. 0 runs all stages on one thread
+      private int pipeline_queue_size = DEFAULT_PIPELINE_QUEUE_SIZE;
+
+      // Number of threads inflating the blocks of a block gzipped VCF file ahead of its reader. 0 inflates on the reader thread
+      private int bgzf_inflate_threads = DEFAULT_BGZF_INFLATE_THREADS;
+
+      // Number of threads converting the contigs of a block gzipped VCF file in parallel, located with its .tbi index if any. 0 or 1 converts the file in one pass
+      private int contig_threads = DEFAULT_CONTIG_THREADS;
+
+      // Number of threads converting, validating and encoding batches of the variants of a file, written in their original order. Takes precedence over pipeline_queue_size. 0 or 1 converts on the reader thread
+      private int convert_threads = DEFAULT_CONVERT_THREADS;
+
+      // Number of variants per batch, when convert_threads is greater than 1
+      private int convert_batch_size = DEFAULT_CONVERT_BATCH_SIZE;
+
+      // Only import the records overlapping these regions: comma separated contigs (1,2,X) and intervals (1:1000-2000), or the path of a BED file. The outputs are written under regions/<name of the regions> of the tsv_dir. Empty imports the whole genome
+      private String regions = DEFAULT_REGIONS;
+
+      // Process the projects, and the files of each project, in decreasing order of estimated cost
+      private boolean longest_first = DEFAULT_LONGEST_FIRST;
+
+      // Journal completed work in the persistence directory, so that an interrupted import resumes where it stopped
+      private boolean checkpoint = DEFAULT_CHECKPOINT;
+
+      // Seconds between checkpoints within a block gzipped VCF file, when checkpointing files. 0 only checkpoints whole files
+      private int checkpoint_interval_seconds = DEFAULT_CHECKPOINT_INTERVAL_SECONDS;
+
+      // Only reimport the dccProjectCodes whose files changed since the last import, according to the import manifest
+      private boolean incremental = DEFAULT_INCREMENTAL;
+
+      // Only report the estimated download volume, time, disk and heap of each dccProjectCode, instead of importing
+      private boolean plan = DEFAULT_PLAN;
+
+      // Number of files downloaded and converted to calibrate the estimates of the plan
+      private int plan_calibration_files = DEFAULT_PLAN_CALIBRATION_FILES;
+
 }
@@ -0,0 +1,331 @@
+package org.icgc.dcc.pcawg.client;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Builder;
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
+import org.icgc.dcc.pcawg.client.download.MetadataContainer;
+import org.icgc.dcc.pcawg.client.download.context.MetadataContext;
+import org.icgc.dcc.pcawg.client.storage.StorageFactory;
+import org.icgc.dcc.pcawg.client.tsv.DccTransformerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.management.MemoryType.HEAP;
+import static org.icgc.dcc.common.core.util.Joiners.NEWLINE;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+
+/**
+ * Estimates the download volume, time, disk and heap an import needs, without running it.
+ * A few calibration files, spread over the range of file sizes, are downloaded and converted end-to-end into a
+ * scratch directory. The download and conversion throughput, output bytes and heap per input byte they show are then
+ * scaled by the fileSize of every file of each dccProjectCode, and by the configured parallelism.
+ * The estimates are linear in the file size, so they are only as good as the calibration sample is representative.
+ */
+@Slf4j
+@Builder
+public class CapacityPlanner implements Runnable {
+
+  private static final double MB = 1024.0 * 1024.0;
+
+  /**
+   * Dependencies
+   */
+  @NonNull private final MetadataContainer metadataContainer;
+  @NonNull private final Collection<String> dccProjectCodes;
+  @NonNull private final StorageFactory storageFactory;
+  @NonNull private final DccProjectProcessor dccProjectProcessor;
+  @NonNull private final DccTransformerFactory<SSMPrimary> calibrationTransformerFactory;
+
+  /**
+   * Config
+   */
+  private final int numCalibrationFiles;
+  private final int projectThreads;
+  private final int fileThreads;
+  private final int prefetchDepth;
+  private final long prefetchDiskBudgetBytes;
+  private final boolean persistVcfDownloads;
+
+  /**
+   * Picks numCalibrationFiles files at evenly spaced quantiles of the file size, excluding the extremes
+   */
+  private List<MetadataContext> selectCalibrationFiles(){
+    val bySize = metadataContainer.getMetadataContexts().stream()
+        .filter(m -> m.getPortalMetadata().getFileSize() > 0)
+        .sorted(Comparator.comparingLong(m -> m.getPortalMetadata().getFileSize()))
+        .collect(toImmutableList());
+    val count = Math.min(numCalibrationFiles, bySize.size());
+    val selected = ImmutableList.<MetadataContext>builder();
+    for (int i = 1; i <= count; i++){
+      selected.add(bySize.get(i * bySize.size() / (count + 1)));
+    }
+    return selected.build();
+  }
+
+  private static List<MemoryPoolMXBean> getHeapPools(){
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(p -> p.getType() == HEAP)
+        .collect(toImmutableList());
+  }
+
+  private static long getUsedHeap(){
+    return getHeapPools().stream()
+        .mapToLong(p -> p.getUsage().getUsed())
+        .sum();
+  }
+
+  /**
+   * Sum of the peak usage of each heap pool. The pools do not necessarily peak at the same time, so this over
+   * estimates the peak, which is the safe side for sizing
+   */
+  private static long getPeakHeap(){
+    return getHeapPools().stream()
+        .mapToLong(p -> p.getPeakUsage().getUsed())
+        .sum();
+  }
+
+  @SneakyThrows
+  private Calibration calibrate(MetadataContext metadataContext){
+    val portalMetadata = metadataContext.getPortalMetadata();
+    val dccProjectCode = metadataContext.getSampleMetadata().getDccProjectCode();
+    log.info("Calibrating with file [{}] of {} bytes",
+        portalMetadata.getPortalFilename().getFilename(), portalMetadata.getFileSize());
+    @Cleanup val storage = storageFactory.getStorage(dccProjectCode, ImmutableList.of(portalMetadata));
+
+    val downloadStart = System.nanoTime();
+    val vcfFile = storage.getFile(portalMetadata);
+    val downloadNanos = System.nanoTime() - downloadStart;
+
+    try {
+      System.gc();
+      val baselineHeap = getUsedHeap();
+      getHeapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+      val dccPrimaryTransformer = calibrationTransformerFactory.getDccTransformer(dccProjectCode);
+      val convertStart = System.nanoTime();
+      dccProjectProcessor.convertVcfFile(vcfFile, metadataContext, dccPrimaryTransformer);
+      dccPrimaryTransformer.close();
+      val convertNanos = System.nanoTime() - convertStart;
+      val peakHeap = getPeakHeap();
+
+      long outputBytes = 0;
+      for (val path : dccPrimaryTransformer.getWrittenPaths()){
+        if (Files.exists(path)){
+          outputBytes += Files.size(path);
+          Files.delete(path);
+        }
+      }
+      val heapBytesPerInputByte = Math.max(0, peakHeap - baselineHeap) / (double) portalMetadata.getFileSize();
+      return new Calibration(1, portalMetadata.getFileSize(), downloadNanos, convertNanos, outputBytes,
+          baselineHeap, heapBytesPerInputByte);
+    } finally {
+      storage.release(vcfFile);
+    }
+  }
+
+  private Calibration calibrate(){
+    val calibrationFiles = selectCalibrationFiles();
+    checkState(!calibrationFiles.isEmpty(), "There are no files to calibrate with");
+    Calibration total = null;
+    for (val metadataContext : calibrationFiles){
+      try {
+        val calibration = calibrate(metadataContext);
+        log.info("Calibration: {}", calibration);
+        total = total == null ? calibration : total.merge(calibration);
+      } catch (Exception e){
+        log.error("Failed to calibrate with the file [{}], skipping: [{}] {}\n{}",
+            metadataContext.getPortalMetadata().getPortalFilename().getFilename(),
+            e.getClass().getSimpleName(), e.getMessage(), NEWLINE.join(e.getStackTrace()));
+      }
+    }
+    checkState(total != null, "All %s calibration files failed", calibrationFiles.size());
+    return total;
+  }
+
+  private ProjectEstimate estimate(Calibration calibration, String dccProjectCode){
+    val metadataContexts = metadataContainer.getMetadataContexts(dccProjectCode);
+    val fileSizes = metadataContexts.stream()
+        .mapToLong(m -> m.getPortalMetadata().getFileSize())
+        .toArray();
+    val inputBytes = Arrays.stream(fileSizes).sum();
+    val maxFileBytes = Arrays.stream(fileSizes).max().orElse(0);
+    val threads = Math.max(1, fileThreads);
+
+    val downloadSeconds = inputBytes / calibration.getDownloadBytesPerSecond();
+    val convertSeconds = inputBytes / calibration.getConvertBytesPerSecond();
+    // With prefetching, downloads overlap the conversions, so the slower of the two sets the pace
+    val serialSeconds = prefetchDepth > 0 ? Math.max(downloadSeconds, convertSeconds) : downloadSeconds + convertSeconds;
+
+    final long vcfDirBytes;
+    if (persistVcfDownloads){
+      vcfDirBytes = inputBytes;
+    } else {
+      val prefetchBytes = Math.min(prefetchDepth * maxFileBytes, prefetchDiskBudgetBytes);
+      vcfDirBytes = Math.min(inputBytes, threads * maxFileBytes + prefetchBytes);
+    }
+    val peakHeapBytes = (long)(threads * maxFileBytes * calibration.getHeapBytesPerInputByte());
+
+    return ProjectEstimate.builder()
+        .dccProjectCode(dccProjectCode)
+        .numFiles(fileSizes.length)
+        .downloadBytes(inputBytes)
+        .maxFileBytes(maxFileBytes)
+        .downloadSeconds(downloadSeconds)
+        .convertSeconds(convertSeconds)
+        .wallSeconds(serialSeconds / Math.min(threads, Math.max(1, fileSizes.length)))
+        .outputBytes((long)(inputBytes * calibration.getOutputBytesPerInputByte()))
+        .vcfDirBytes(vcfDirBytes)
+        .peakHeapBytes(peakHeapBytes)
+        .build();
+  }
+
+  private List<ProjectEstimate> estimate(Calibration calibration){
+    return dccProjectCodes.stream()
+        .map(d -> estimate(calibration, d))
+        .sorted(Comparator.comparingDouble(ProjectEstimate::getWallSeconds).reversed())
+        .collect(toImmutableList());
+  }
+
+  @Override
+  public void run() {
+    checkArgument(numCalibrationFiles > 0, "The number of calibration files [%s] must be greater than 0",
+        numCalibrationFiles);
+    val calibration = calibrate();
+    log.info("[PLAN] Calibration: {}", calibration);
+    val projectEstimates = estimate(calibration);
+    projectEstimates.forEach(e -> log.info("[PLAN] {}", e));
+
+    // Projects run concurrently, so the peaks add up over the projectThreads largest projects
+    val threads = Math.max(1, projectThreads);
+    val totalDownloadBytes = projectEstimates.stream().mapToLong(ProjectEstimate::getDownloadBytes).sum();
+    val totalOutputBytes = projectEstimates.stream().mapToLong(ProjectEstimate::getOutputBytes).sum();
+    val totalWallSeconds = projectEstimates.stream().mapToDouble(ProjectEstimate::getWallSeconds).sum();
+    val longestWallSeconds = projectEstimates.stream().mapToDouble(ProjectEstimate::getWallSeconds).max().orElse(0);
+    val vcfDirBytes = persistVcfDownloads ?
+        totalDownloadBytes : sumLargest(projectEstimates, ProjectEstimate::getVcfDirBytes, threads);
+    val peakHeapBytes = calibration.getBaselineHeapBytes()
+        + sumLargest(projectEstimates, ProjectEstimate::getPeakHeapBytes, threads);
+    log.info("[PLAN] Total -- Projects: {}   Download(MB): {}   Output(MB): {}   Elapsed(h): {}   PeakVcfDir(MB): {}   PeakHeap(MB): {}   (projectThreads: {}, fileThreads: {}, prefetchDepth: {})",
+        projectEstimates.size(),
+        formatMb(totalDownloadBytes),
+        formatMb(totalOutputBytes),
+        formatHours(Math.max(totalWallSeconds / threads, longestWallSeconds)),
+        formatMb(vcfDirBytes),
+        formatMb(peakHeapBytes),
+        projectThreads, fileThreads, prefetchDepth);
+  }
+
+  private static long sumLargest(List<ProjectEstimate> projectEstimates,
+      ToLongFunction<ProjectEstimate> function, final int count){
+    return projectEstimates.stream()
+        .mapToLong(function)
+        .boxed()
+        .sorted(Comparator.reverseOrder())
+        .limit(count)
+        .mapToLong(Long::longValue)
+        .sum();
+  }
+
+  private static String formatMb(final long bytes){
+    return String.format("%.1f", bytes / MB);
+  }
+
+  private static String formatHours(final double seconds){
+    return String.format("%.2f", seconds / 3600.0);
+  }
+
+  @Value
+  private static class Calibration {
+
+    private final int numFiles;
+    private final long inputBytes;
+    private final long downloadNanos;
+    private final long convertNanos;
+    private final long outputBytes;
+    private final long baselineHeapBytes;
+
+    /**
+     * Largest heap growth over the baseline per input byte, among the calibration files
+     */
+    private final double heapBytesPerInputByte;
+
+    Calibration merge(Calibration other){
+      return new Calibration(numFiles + other.numFiles, inputBytes + other.inputBytes,
+          downloadNanos + other.downloadNanos, convertNanos + other.convertNanos, outputBytes + other.outputBytes,
+          Math.max(baselineHeapBytes, other.baselineHeapBytes),
+          Math.max(heapBytesPerInputByte, other.heapBytesPerInputByte));
+    }
+
+    double getDownloadBytesPerSecond(){
+      return inputBytes / Math.max(1e-3, downloadNanos / 1e9);
+    }
+
+    double getConvertBytesPerSecond(){
+      return inputBytes / Math.max(1e-3, convertNanos / 1e9);
+    }
+
+    double getOutputBytesPerInputByte(){
+      return outputBytes / (double) inputBytes;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Files: %s   InputBytes: %s   Download(MB/s): %.2f   Convert(MB/s): %.2f   OutputBytes/InputByte: %.3f   HeapBytes/InputByte: %.3f   BaselineHeap(MB): %s",
+          numFiles, inputBytes, getDownloadBytesPerSecond() / MB, getConvertBytesPerSecond() / MB,
+          getOutputBytesPerInputByte(), heapBytesPerInputByte, formatMb(baselineHeapBytes));
+    }
+
+  }
+
+  @Value
+  @Builder
+  public static class ProjectEstimate {
+
+    @NonNull private final String dccProjectCode;
+    private final int numFiles;
+    private final long downloadBytes;
+    private final long maxFileBytes;
+    private final double downloadSeconds;
+    private final double convertSeconds;
+
+    /**
+     * Elapsed time of the project, given the fileThreads and prefetching
+     */
+    private final double wallSeconds;
+    private final long outputBytes;
+
+    /**
+     * Largest footprint of the project in the vcf_dir
+     */
+    private final long vcfDirBytes;
+
+    /**
+     * Heap the project adds on top of the baseline, with fileThreads files in flight
+     */
+    private final long peakHeapBytes;
+
+    @Override
+    public String toString() {
+      return String.format("DccProjectCode[%s] -- Files: %s   Download(MB): %s   Download(h): %s   Convert(h): %s   Elapsed(h): %s   Output(MB): %s   PeakVcfDir(MB): %s   PeakHeap(MB): %s",
+          dccProjectCode, numFiles, formatMb(downloadBytes), formatHours(downloadSeconds), formatHours(convertSeconds),
+          formatHours(wallSeconds), formatMb(outputBytes), formatMb(vcfDirBytes), formatMb(peakHeapBytes));
+    }
+
+  }
+
+}
@@ -57,7 +57,27 @@ public class ClientMain implements CommandLineRunner {
         .useCollab(applicationConfig.isUse_collab())
         .bypassNoiseFiltering(applicationConfig.isBypass_noise_filter())
         .bypassTcgaFiltering(applicationConfig.isBypass_tcga_filter())
+        .snpEffMode(applicationConfig.getSnpeff_mode())
+        .snpEffProcesses(applicationConfig.getSnpeff_processes())
+        .snpEffCache(applicationConfig.isSnpeff_cache())
+        .codingRegions(applicationConfig.getCoding_regions())
         .enableSSMValidation(applicationConfig.isEnable_ssm_validation())
+        .projectThreads(applicationConfig.getProject_threads())
+        .fileThreads(applicationConfig.getFile_threads())
+        .prefetchDepth(applicationConfig.getPrefetch_depth())
+        .prefetchDiskBudgetMb(applicationConfig.getPrefetch_disk_budget_mb())
+        .pipelineQueueSize(applicationConfig.getPipeline_queue_size())
+        .bgzfInflateThreads(applicationConfig.getBgzf_inflate_threads())
+        .contigThreads(applicationConfig.getContig_threads())
+        .convertThreads(applicationConfig.getConvert_threads())
+        .convertBatchSize(applicationConfig.getConvert_batch_size())
+        .regions(applicationConfig.getRegions())
+        .longestFirst(applicationConfig.isLongest_first())
+        .checkpoint(applicationConfig.isCheckpoint())
+        .checkpointIntervalSeconds(applicationConfig.getCheckpoint_interval_seconds())
+        .incremental(applicationConfig.isIncremental())
+        .plan(applicationConfig.isPlan())
+        .planCalibrationFiles(applicationConfig.getPlan_calibration_files())
         .build();
 
     try{
@@ -1,5 +1,11 @@
 package org.icgc.dcc.pcawg.client;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.Cleanup;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
@@ -11,8 +17,11 @@ import org.icgc.dcc.pcawg.client.core.model.ssm.metadata.SSMMetadata;
 import org.icgc.dcc.pcawg.client.core.model.ssm.metadata.SSMMetadataFieldMapping;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimaryFieldMapping;
+import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
 import org.icgc.dcc.pcawg.client.data.metadata.SampleMetadata;
+import org.icgc.dcc.pcawg.client.download.CostModel;
 import org.icgc.dcc.pcawg.client.download.MetadataContainer;
+import org.icgc.dcc.pcawg.client.download.context.MetadataContext;
 import org.icgc.dcc.pcawg.client.filter.variant.VariantFilterFactory;
 import org.icgc.dcc.pcawg.client.storage.Storage;
 import org.icgc.dcc.pcawg.client.storage.StorageFactory;
@@ -20,16 +29,53 @@ import org.icgc.dcc.pcawg.client.tsv.DccTransformerFactory;
 import org.icgc.dcc.pcawg.client.tsv.transformer.impl.DccTransformer;
 import org.icgc.dcc.pcawg.client.tsv.transformer.impl.DccTransformerContext;
 import org.icgc.dcc.pcawg.client.utils.measurement.CounterMonitor;
-import org.icgc.dcc.pcawg.client.utils.measurement.IntegerCounter;
+import org.icgc.dcc.pcawg.client.utils.measurement.AtomicIntegerCounter;
+import org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal;
+import org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.FileCheckpoint;
+import org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.FileProgress;
+import org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.WorkflowDataType;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+import org.icgc.dcc.pcawg.client.vcf.VCF;
 import org.icgc.dcc.pcawg.client.vcf.converters.file.MetadataDTCConverter;
+import org.icgc.dcc.pcawg.client.vcf.converters.file.PrimaryDTCConverter;
+import org.icgc.dcc.pcawg.client.vcf.converters.file.VCFStreamFilter;
 import org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy.VariantConverterStrategyMux;
 
+import java.io.File;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getLast;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.joining;
 import static org.icgc.dcc.common.core.util.Joiners.NEWLINE;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 import static org.icgc.dcc.pcawg.client.tsv.TsvValidator.newTsvValidator;
+import static org.icgc.dcc.pcawg.client.tsv.transformer.impl.DccTransformerContext.newDccTransformerContext;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.OrderedBatchPipeline.forEachOrdered;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.StagedPipeline.newStagedPipeline;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.runAll;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.runAllInOrder;
+import static org.icgc.dcc.pcawg.client.vcf.BgzfVcfReader.isBgzfFile;
+import static org.icgc.dcc.pcawg.client.vcf.BgzfVcfReader.newBgzfVcfReader;
+import static org.icgc.dcc.pcawg.client.vcf.VcfContigIndex.readContigOffsets;
+import static org.icgc.dcc.pcawg.client.vcf.VcfContigIndex.readRegionOffsets;
 import static org.icgc.dcc.pcawg.client.vcf.converters.file.MetadataDTCConverter.newMetadataDTCConverter;
 import static org.icgc.dcc.pcawg.client.vcf.converters.file.PrimaryDTCConverter.newPrimaryDTCConverter;
 import static org.icgc.dcc.pcawg.client.vcf.converters.file.VCFStreamFilter.newVCFStreamFilter;
@@ -41,33 +87,44 @@ public class DccProjectProcessor {
   private static final VariantConverterStrategyMux VARIANT_CONVERTER_STRATEGY_MUX = new VariantConverterStrategyMux();
   private static final String FAILED = "**FAILED**";
   private static final String PASSED = "**PASSED**";
+  private static final String TOTAL_VARIANTS = "totalVariants";
+  private static final String AFTER_QUALITY_FILTER = "afterQualityFilter";
+  private static final String AFTER_TCGA_FILTER = "afterTcgaFilter";
 
   public static DccProjectProcessor newProcessorWithValidation(StorageFactory storageFactory,
       DccTransformerFactory<SSMPrimary> dccPrimaryTransformerFactory,
       DccTransformerFactory<SSMMetadata> dccMetadataTransformerFactory, MetadataContainer metadataContainer,
-      VariantFilterFactory variantFilterFactory, IntegerCounter metadataContextCounter,
+      VariantFilterFactory variantFilterFactory, AtomicIntegerCounter metadataContextCounter,
       @NonNull SSMValidator<SSMPrimary, SSMPrimaryFieldMapping> ssmPrimaryValidator,
-      @NonNull SSMValidator<SSMMetadata, SSMMetadataFieldMapping> ssmMetadataValidator) {
+      @NonNull SSMValidator<SSMMetadata, SSMMetadataFieldMapping> ssmMetadataValidator, @NonNull CostModel costModel,
+      @NonNull CheckpointJournal checkpointJournal, @NonNull ProcessorOptions options) {
     return new DccProjectProcessor(storageFactory, dccPrimaryTransformerFactory, dccMetadataTransformerFactory,
         metadataContainer,
         variantFilterFactory, metadataContextCounter,
         true,
         true,
         ssmPrimaryValidator,
-        ssmMetadataValidator);
+        ssmMetadataValidator,
+        costModel,
+        checkpointJournal,
+        options);
   }
 
   public static DccProjectProcessor newProcessorNoValidation(StorageFactory storageFactory,
       DccTransformerFactory<SSMPrimary> dccPrimaryTransformerFactory,
       DccTransformerFactory<SSMMetadata> dccMetadataTransformerFactory, MetadataContainer metadataContainer,
-      VariantFilterFactory variantFilterFactory, IntegerCounter metadataContextCounter) {
+      VariantFilterFactory variantFilterFactory, AtomicIntegerCounter metadataContextCounter,
+      @NonNull CostModel costModel, @NonNull CheckpointJournal checkpointJournal, @NonNull ProcessorOptions options) {
     return new DccProjectProcessor(storageFactory, dccPrimaryTransformerFactory, dccMetadataTransformerFactory,
         metadataContainer,
         variantFilterFactory, metadataContextCounter,
         true,
         false,
         null,
-        null);
+        null,
+        costModel,
+        checkpointJournal,
+        options);
   }
 
   @NonNull private final StorageFactory storageFactory;
@@ -75,12 +132,15 @@ public class DccProjectProcessor {
   @NonNull private final DccTransformerFactory<SSMMetadata> dccMetadataTransformerFactory;
   @NonNull private final MetadataContainer metadataContainer;
   @NonNull private final VariantFilterFactory variantFilterFactory;
-  @NonNull private final IntegerCounter metadataContextCounter;
+  @NonNull private final AtomicIntegerCounter metadataContextCounter;
 
   private final boolean enableTSVValidation;
   private final boolean enableSSMValidation;
   private final SSMValidator<SSMPrimary, SSMPrimaryFieldMapping> ssmPrimaryValidator;
   private final SSMValidator<SSMMetadata, SSMMetadataFieldMapping> ssmMetadataValidator;
+  @NonNull private final CostModel costModel;
+  @NonNull private final CheckpointJournal checkpointJournal;
+  @NonNull private final ProcessorOptions options;
 
   @SneakyThrows
   private static void transformSSMPrimary(DccTransformer<SSMPrimary> transformer,
@@ -124,23 +184,252 @@ public class DccProjectProcessor {
   }
 
 
+  /**
+   * Truncates the primary outputs of a partially converted project back to the sizes recorded by its last
+   * checkpoint, and deletes the outputs written after it.
+   * @return false if a recorded output is not one of the outputs of dccPrimaryTransformer, or if an output is shorter
+   * than recorded (it was not fully synced), in which case the project cannot be resumed
+   */
+  @SneakyThrows
+  private static boolean restorePrimaryOutputs(DccTransformer<SSMPrimary> dccPrimaryTransformer,
+      Map<String, Long> outputBytes){
+    val outputPaths = Sets.<String>newHashSet();
+    for (val workflowType : WorkflowTypes.values()){
+      outputPaths.add(dccPrimaryTransformer.getOutputPath(workflowType).toString());
+    }
+    for (val recordedPath : outputBytes.keySet()){
+      if (!outputPaths.contains(recordedPath)){
+        log.warn("The checkpointed output [{}] is not one of the current outputs {}", recordedPath, outputPaths);
+        return false;
+      }
+    }
+    for (val workflowType : WorkflowTypes.values()){
+      val path = dccPrimaryTransformer.getOutputPath(workflowType);
+      val bytes = outputBytes.get(path.toString());
+      if (bytes != null && (!Files.exists(path) || Files.size(path) < bytes)){
+        log.warn("The output [{}] is shorter than its checkpoint of {} bytes", path, bytes);
+        return false;
+      }
+    }
+    for (val workflowType : WorkflowTypes.values()){
+      val path = dccPrimaryTransformer.getOutputPath(workflowType);
+      val bytes = outputBytes.get(path.toString());
+      if (bytes == null){
+        Files.deleteIfExists(path);
+      } else {
+        @Cleanup val channel = FileChannel.open(path, WRITE);
+        channel.truncate(bytes);
+      }
+    }
+    return true;
+  }
+
+  @SneakyThrows
+  private static void deletePrimaryOutputs(DccTransformer<SSMPrimary> dccPrimaryTransformer){
+    for (val workflowType : WorkflowTypes.values()){
+      Files.deleteIfExists(dccPrimaryTransformer.getOutputPath(workflowType));
+    }
+  }
+
+  /**
+   * Mid-file checkpoints need the records to be read one at a time, after the previous one was written, which neither
+   * the staged pipeline nor the batched conversion guarantee. They also need the records to be read from a single
+   * offset onwards, unlike the records of regions
+   */
+  private boolean isCheckpointWithinFiles(){
+    return options.isCheckpointFiles() && options.getCheckpointIntervalSeconds() > 0
+        && options.getPipelineQueueSize() <= 0 && options.getConvertThreads() <= 1 && !options.getRegions().isPresent();
+  }
+
+  /**
+   * Flushes and syncs the primary outputs, and builds a checkpoint of their sizes along with the rows and metadata
+   * of the file so far
+   */
+  @SneakyThrows
+  private static FileCheckpoint newFileCheckpoint(DccTransformer<SSMPrimary> dccPrimaryTransformer,
+      String dccProjectCode, PortalMetadata portalMetadata, Map<Path, Long> rowCountsBefore,
+      Set<WorkflowDataType> workflowDataTypes){
+    dccPrimaryTransformer.flush();
+    val outputBytes = ImmutableMap.<String, Long>builder();
+    for (val workflowType : WorkflowTypes.values()){
+      val path = dccPrimaryTransformer.getOutputPath(workflowType);
+      if (Files.exists(path)){
+        @Cleanup val channel = FileChannel.open(path, READ);
+        channel.force(true);
+        outputBytes.put(path.toString(), channel.size());
+      }
+    }
+    val rowCounts = dccPrimaryTransformer.getRowCounts();
+    val outputRows = ImmutableMap.<String, Long>builder();
+    for (val path : Sets.union(rowCounts.keySet(), rowCountsBefore.keySet())){
+      outputRows.put(path.toString(), rowCounts.getOrDefault(path, 0L) - rowCountsBefore.getOrDefault(path, 0L));
+    }
+    return FileCheckpoint.builder()
+        .dccProjectCode(dccProjectCode)
+        .objectId(portalMetadata.getObjectId())
+        .outputBytes(outputBytes.build())
+        .outputRows(outputRows.build())
+        .workflowDataTypes(ImmutableSet.copyOf(workflowDataTypes))
+        .build();
+  }
+
+  private FileCheckpoint recordFileCheckpoint(DccTransformer<SSMPrimary> dccPrimaryTransformer, String dccProjectCode,
+      PortalMetadata portalMetadata, Map<Path, Long> rowCountsBefore, Set<WorkflowDataType> workflowDataTypes){
+    val fileCheckpoint =
+        newFileCheckpoint(dccPrimaryTransformer, dccProjectCode, portalMetadata, rowCountsBefore, workflowDataTypes);
+    checkpointJournal.recordFileDone(fileCheckpoint);
+    return fileCheckpoint;
+  }
+
+  /**
+   * Truncates the primary outputs back to their sizes after the last file that was converted, so that the rows of the
+   * failed file are neither captured by the next checkpoint nor written again when the file is retried
+   */
   @SneakyThrows
-  public void process(String dccProjectCode) {
+  private void truncateFailedFile(DccTransformer<SSMPrimary> dccPrimaryTransformer, String dccProjectCode,
+      PortalMetadata portalMetadata, Map<String, Long> outputBytes, Map<Path, Long> rowCounts){
+    log.warn("Truncating the rows of the failed file [{}] from the outputs of DccProjectCode [{}]",
+        portalMetadata.getPortalFilename().getFilename(), dccProjectCode);
+    val outputPathBytes = Maps.<Path, Long>newHashMap();
+    outputBytes.forEach((path, bytes) -> outputPathBytes.put(Paths.get(path), bytes));
+    dccPrimaryTransformer.truncate(outputPathBytes, rowCounts);
+    checkpointJournal.recordFileFailed(dccProjectCode, portalMetadata.getObjectId());
+  }
+
+  private void recordFileProgress(DccTransformer<SSMPrimary> dccPrimaryTransformer, String dccProjectCode,
+      PortalMetadata portalMetadata, Map<Path, Long> rowCountsBefore, Set<WorkflowDataType> workflowDataTypes,
+      VCFStreamFilter vcfStreamFilter, final long virtualOffset){
+    val fileCheckpoint = newFileCheckpoint(dccPrimaryTransformer, dccProjectCode, portalMetadata, rowCountsBefore,
+        workflowDataTypes);
+    val counters = ImmutableMap.<String, Long>of(
+        TOTAL_VARIANTS, (long) vcfStreamFilter.getTotalVariantCounter().getCount(),
+        AFTER_QUALITY_FILTER, (long) vcfStreamFilter.getAfterQualityFilterCounter().getCount(),
+        AFTER_TCGA_FILTER, (long) vcfStreamFilter.getAfterTCGSFilterCounter().getCount());
+    checkpointJournal.recordFileProgress(new FileProgress(fileCheckpoint, virtualOffset, counters));
+  }
+
+  /**
+   * Row counts of the primary outputs before the file started, given the rows of the file written before a resume
+   */
+  private static Map<Path, Long> getRowCountsBefore(DccTransformer<SSMPrimary> dccPrimaryTransformer,
+      Optional<FileProgress> fileProgress){
+    val rowCountsBefore = Maps.newHashMap(dccPrimaryTransformer.getRowCounts());
+    fileProgress.ifPresent(f -> f.getFileCheckpoint().getOutputRows().forEach((path, rows) ->
+        rowCountsBefore.merge(Paths.get(path), -rows, Long::sum)));
+    return rowCountsBefore;
+  }
+
+  private static Map<String, Long> sumRowCounts(List<FileCheckpoint> fileCheckpoints,
+      DccTransformer<?> ... dccTransformers){
+    val rowCounts = Maps.<String, Long>newTreeMap();
+    for (val fileCheckpoint : fileCheckpoints){
+      fileCheckpoint.getOutputRows().forEach((path, rows) -> rowCounts.merge(path, rows, Long::sum));
+    }
+    for (val dccTransformer : dccTransformers){
+      dccTransformer.getRowCounts().forEach((path, rows) -> rowCounts.merge(path.toString(), rows, Long::sum));
+    }
+    return rowCounts;
+  }
+
+  /**
+   * @return true if every file of the dccProjectCode was converted without errors
+   */
+  @SneakyThrows
+  public boolean process(String dccProjectCode) {
+    if (checkpointJournal.isProjectDone(dccProjectCode)){
+      log.info("Skipping DccProjectCode [{}], it was completed by a previous run", dccProjectCode);
+      return true;
+    }
     val totalMetadataContexts = metadataContainer.getTotalMetadataContexts();
-    val storage = storageFactory.getStorage(dccProjectCode);
+    val projectMetadataContexts = metadataContainer.getMetadataContexts(dccProjectCode);
+    val orderedMetadataContexts = options.isLongestFirst() ?
+        costModel.orderLongestFirst(projectMetadataContexts) : projectMetadataContexts;
     val dccMetadataTransformer = dccMetadataTransformerFactory.getDccTransformer(dccProjectCode);
-    val dccPrimaryTransformer = dccPrimaryTransformerFactory.getDccTransformer(dccProjectCode);
     val metadataDTCConverter = newMetadataDTCConverter();
 
-    for (val metadataContext : metadataContainer.getMetadataContexts(dccProjectCode)) {
+    // Resume from the files completed by a previous run, or start the project over
+    List<FileCheckpoint> fileCheckpoints = options.isCheckpointFiles() ?
+        checkpointJournal.getFileCheckpoints(dccProjectCode) : ImmutableList.of();
+    // The file in progress is only resumed if it is still part of the project
+    Optional<FileProgress> fileProgress = (isCheckpointWithinFiles() ?
+        checkpointJournal.getFileProgress(dccProjectCode) : Optional.<FileProgress>empty())
+        .filter(f -> projectMetadataContexts.stream()
+            .anyMatch(m -> m.getPortalMetadata().getObjectId().equals(f.getFileCheckpoint().getObjectId())));
+    final Map<String, Long> restoredOutputBytes = fileProgress.isPresent() ? fileProgress.get().getFileCheckpoint().getOutputBytes() :
+        fileCheckpoints.isEmpty() ? null : getLast(fileCheckpoints).getOutputBytes();
+    DccTransformer<SSMPrimary> dccPrimaryTransformer = dccPrimaryTransformerFactory.getDccTransformer(dccProjectCode, true);
+    val resume = restoredOutputBytes != null && restorePrimaryOutputs(dccPrimaryTransformer, restoredOutputBytes);
+    if (resume){
+      log.info("Resuming DccProjectCode [{}] after {} files completed by a previous run{}",
+          dccProjectCode, fileCheckpoints.size(), fileProgress.isPresent() ? ", within the next file" : "");
+    } else {
+      fileCheckpoints = ImmutableList.of();
+      fileProgress = Optional.empty();
+      dccPrimaryTransformer = dccPrimaryTransformerFactory.getDccTransformer(dccProjectCode);
+      if (checkpointJournal.isEnabled()){
+        deletePrimaryOutputs(dccPrimaryTransformer);
+      }
+      checkpointJournal.recordProjectStart(dccProjectCode);
+    }
+    val doneFileCheckpointMap = Maps.uniqueIndex(fileCheckpoints, FileCheckpoint::getObjectId);
+    for (val metadataContext : orderedMetadataContexts){
+      val fileCheckpoint = doneFileCheckpointMap.get(metadataContext.getPortalMetadata().getObjectId());
+      if (fileCheckpoint != null){
+        fileCheckpoint.getWorkflowDataTypes().forEach(w ->
+            metadataDTCConverter.accumulate(metadataContext.getSampleMetadata(), w.getWorkflowType(), w.getDataType()));
+      }
+    }
+    val metadataContexts = orderedMetadataContexts.stream()
+        .filter(m -> !doneFileCheckpointMap.containsKey(m.getPortalMetadata().getObjectId()))
+        .collect(toImmutableList());
+
+    val portalMetadatas = metadataContexts.stream()
+        .map(MetadataContext::getPortalMetadata)
+        .collect(toImmutableList());
+    @Cleanup val storage = storageFactory.getStorage(dccProjectCode, portalMetadatas);
+    val primaryTransformer = dccPrimaryTransformer;
+    val resumedFileProgress = fileProgress;
+    val allFilesConverted = new AtomicBoolean(true);
+    // Sizes of the primary outputs after the last converted file, which a failed file is truncated back to
+    val lastOutputBytes = new AtomicReference<Map<String, Long>>(fileCheckpoints.isEmpty() ?
+        ImmutableMap.of() : getLast(fileCheckpoints).getOutputBytes());
+
+    // The DccTransformer and MetadataDTCConverter are thread safe, so files of the same project can share them
+    final Consumer<MetadataContext> fileProcessor = metadataContext -> {
       val portalMetadata = metadataContext.getPortalMetadata();
-      metadataContextCounter.incr();
+      val metadataContextCount = metadataContextCounter.incrAndGet();
       log.info("");
       log.info("Loading File ( {} / {} ): {}",
-          metadataContextCounter.getCount(), totalMetadataContexts, portalMetadata.getPortalFilename().getFilename());
+          metadataContextCount, totalMetadataContexts, portalMetadata.getPortalFilename().getFilename());
       val sampleMetadata = metadataContext.getSampleMetadata();
-      processPortalMetadata(dccPrimaryTransformer, dccProjectCode, storage, portalMetadata, sampleMetadata,
-          metadataDTCConverter);
+      val resumeFrom = resumedFileProgress
+          .filter(f -> f.getFileCheckpoint().getObjectId().equals(portalMetadata.getObjectId()));
+      val rowCountsBefore = getRowCountsBefore(primaryTransformer, resumeFrom);
+      val rowCountsAtStart = primaryTransformer.getRowCounts();
+      val workflowDataTypes = Sets.<WorkflowDataType>newConcurrentHashSet();
+      resumeFrom.ifPresent(f -> workflowDataTypes.addAll(f.getFileCheckpoint().getWorkflowDataTypes()));
+      // When checkpointing, the metadata of a file is only kept once the file is converted
+      val fileMetadataDTCConverter = options.isCheckpointFiles() ? newMetadataDTCConverter() : metadataDTCConverter;
+      val success = processPortalMetadata(primaryTransformer, dccProjectCode, storage, portalMetadata, sampleMetadata,
+          fileMetadataDTCConverter, workflowDataTypes, rowCountsBefore, resumeFrom);
+      if (!success){
+        allFilesConverted.set(false);
+        if (options.isCheckpointFiles()){
+          truncateFailedFile(primaryTransformer, dccProjectCode, portalMetadata, lastOutputBytes.get(),
+              rowCountsAtStart);
+        }
+      } else if (options.isCheckpointFiles()){
+        workflowDataTypes.forEach(w ->
+            metadataDTCConverter.accumulate(sampleMetadata, w.getWorkflowType(), w.getDataType()));
+        lastOutputBytes.set(recordFileCheckpoint(primaryTransformer, dccProjectCode, portalMetadata, rowCountsBefore,
+            workflowDataTypes).getOutputBytes());
+      }
+    };
+
+    if (options.getFileThreads() > 1){
+      runAll(dccProjectCode + "-file-worker", options.getFileThreads(), metadataContexts, fileProcessor);
+    } else {
+      metadataContexts.forEach(fileProcessor);
     }
 
     metadataDTCConverter.convert().forEach(mtx -> transformSSMMetadata(dccMetadataTransformer, mtx));
@@ -153,6 +442,15 @@ public class DccProjectProcessor {
       validatePrimaryOutputFiles(dccPrimaryTransformer);
     }
 
+    // A project with failed files is resumed after its converted files, or redone, by the next run
+    if (allFilesConverted.get()){
+      checkpointJournal.recordProjectDone(dccProjectCode,
+          sumRowCounts(fileCheckpoints, dccPrimaryTransformer, dccMetadataTransformer));
+    } else {
+      log.warn("Some files of DccProjectCode [{}] failed, it is not recorded as done", dccProjectCode);
+    }
+    return allFilesConverted.get();
+
     //TODO: implements error handling and stats
     //      logFileSummary(erroredFileList, dccProjectCode);
     //      log.info("DccProjectCode[{}] Stats:  TotalConsensusVariants: {} ErroredVariants: {}  ErroredSSMPrimary: {}   TransformedSSMPrimary: {}",
@@ -184,32 +482,231 @@ public class DccProjectProcessor {
     }
   }
 
+  private DccTransformerContext<SSMPrimary> accumulatePrimaryDTC(MetadataDTCConverter metadataDTCConverter,
+      SampleMetadata sampleMetadata, Set<WorkflowDataType> workflowDataTypes, DccTransformerContext<SSMPrimary> ptx){
+    if (options.isCheckpointFiles()){
+      workflowDataTypes.add(new WorkflowDataType(ptx.getWorkflowTypes(), ptx.getObject().getDataType()));
+    }
+    return metadataDTCConverter.accumulatePrimaryDTC(sampleMetadata, ptx);
+  }
+
+  /**
+   * @return true if the file was converted without errors
+   */
   @SneakyThrows
-  private void processPortalMetadata(DccTransformer<SSMPrimary> dccPrimaryTransformer, String dccProjectCode,
-      Storage storage, PortalMetadata portalMetadata, SampleMetadata sampleMetadata, MetadataDTCConverter metadataDTCConverter) {
+  private boolean processPortalMetadata(DccTransformer<SSMPrimary> dccPrimaryTransformer, String dccProjectCode,
+      Storage storage, PortalMetadata portalMetadata, SampleMetadata sampleMetadata, MetadataDTCConverter metadataDTCConverter,
+      Set<WorkflowDataType> workflowDataTypes, Map<Path, Long> rowCountsBefore, Optional<FileProgress> resumeFrom) {
 
+    File vcfFile = null;
     try {
       // Download vcfFile
-      val vcfFile = storage.getFile(portalMetadata);
+      vcfFile = storage.getFile(portalMetadata);
+      val totalVariantCount = convertVcfFile(vcfFile, dccPrimaryTransformer, dccProjectCode, portalMetadata,
+          sampleMetadata, metadataDTCConverter, workflowDataTypes, rowCountsBefore, resumeFrom);
+      costModel.recordObserved(portalMetadata, totalVariantCount);
+      return true;
 
-      val vcfStreamFilter = newVCFStreamFilter(vcfFile.toPath(), sampleMetadata,variantFilterFactory);
-      val consensusVariantProcessor = newConsensusVariantProcessor(sampleMetadata, VARIANT_CONVERTER_STRATEGY_MUX);
-      val primaryDTCConverter = newPrimaryDTCConverter(consensusVariantProcessor);
-      val primaryCounterMonitor = CounterMonitor.newMonitor("PRIMARY_DTC_CONV", 100000);
+    } catch (Exception e) {
+      log.error("[{}]: {}\n{}", e.getClass().getSimpleName(), e.getMessage(), NEWLINE.join(e.getStackTrace()));
+      return false;
+    } finally {
+      if (vcfFile != null){
+        storage.release(vcfFile);
+      }
+    }
+
+  }
 
-      primaryCounterMonitor.start();
+  /**
+   * Converts an already downloaded vcfFile into the primary outputs of the dccPrimaryTransformer, outside of any
+   * checkpoint. Used by the CapacityPlanner to calibrate its estimates
+   * @return the number of variants read from the vcfFile
+   */
+  public long convertVcfFile(@NonNull File vcfFile, @NonNull MetadataContext metadataContext,
+      @NonNull DccTransformer<SSMPrimary> dccPrimaryTransformer){
+    return convertVcfFile(vcfFile, dccPrimaryTransformer, null, metadataContext.getPortalMetadata(),
+        metadataContext.getSampleMetadata(), newMetadataDTCConverter(), Sets.newConcurrentHashSet(), null,
+        Optional.empty());
+  }
+
+  /**
+   * @param dccProjectCode if not null, and checkpoints within files are enabled, the progress through a BGZF vcfFile
+   * is journaled periodically, and resumeFrom restarts the conversion from a previous progress.
+   * BGZF files are read with a BgzfVcfReader, which parses the usual records straight from their lines, and inflated on
+   * bgzfInflateThreads threads, if greater than 0. Unless checkpointed from within, they are converted one contig per
+   * worker on contigThreads threads, if greater than 1. Other files are fully decoded by htsjdk.
+   * If the import is restricted to regions, only the records overlapping them are converted. For BGZF files, each
+   * region is seeked to, with the tabix index of the file if any
+   */
+  @SneakyThrows
+  private long convertVcfFile(File vcfFile, DccTransformer<SSMPrimary> dccPrimaryTransformer, String dccProjectCode,
+      PortalMetadata portalMetadata, SampleMetadata sampleMetadata, MetadataDTCConverter metadataDTCConverter,
+      Set<WorkflowDataType> workflowDataTypes, Map<Path, Long> rowCountsBefore, Optional<FileProgress> resumeFrom){
+    val isBgzf = isBgzfFile(vcfFile);
+    val checkpointWithinFile = dccProjectCode != null && isCheckpointWithinFiles() && isBgzf;
+    if (!checkpointWithinFile){
+      checkState(!resumeFrom.isPresent(), "Cannot resume the file [%s] from within", vcfFile);
+    }
+    if (!isBgzf){
+      val vcfStreamFilter = options.getRegions().isPresent() ?
+          newVCFStreamFilter(vcfFile.toPath(), options.getRegions().get(), sampleMetadata, variantFilterFactory) :
+          newVCFStreamFilter(vcfFile.toPath(), sampleMetadata,variantFilterFactory);
+      return convertVcfFile(vcfStreamFilter, dccPrimaryTransformer, portalMetadata, sampleMetadata,
+          metadataDTCConverter, workflowDataTypes);
+    }
+    if (options.getRegions().isPresent()){
+      return convertVcfFileRegions(vcfFile, dccPrimaryTransformer, portalMetadata, sampleMetadata,
+          metadataDTCConverter, workflowDataTypes);
+    }
+
+    if (options.getContigThreads() > 1 && !checkpointWithinFile){
+      val contigOffsets = readContigOffsets(vcfFile, options.getBgzfInflateThreads());
+      if (contigOffsets.isPresent() && contigOffsets.get().size() > 1){
+        return convertVcfFileByContig(vcfFile, contigOffsets.get(), dccPrimaryTransformer, portalMetadata,
+            sampleMetadata, metadataDTCConverter, workflowDataTypes);
+      }
+      log.info("Converting the file [{}] in one pass, its records are {}", vcfFile.getName(),
+          contigOffsets.isPresent() ? "all on the same contig" : "not grouped by contig");
+    }
+
+    @Cleanup val reader = newBgzfVcfReader(vcfFile, options.getBgzfInflateThreads());
+    val vcfStreamFilter = newVCFStreamFilter(reader, sampleMetadata, variantFilterFactory);
+    if (resumeFrom.isPresent()){
+      val counters = resumeFrom.get().getCounters();
+      reader.seek(resumeFrom.get().getVirtualOffset());
+      vcfStreamFilter.restoreCounts(counters.get(TOTAL_VARIANTS).intValue(),
+          counters.get(AFTER_QUALITY_FILTER).intValue(), counters.get(AFTER_TCGA_FILTER).intValue());
+      log.info("Resuming the file [{}] after {} variants", vcfFile.getName(), counters.get(TOTAL_VARIANTS));
+    }
+    if (checkpointWithinFile){
+      // Every variant read must be written before the next checkpoint
+      vcfStreamFilter.setCodingWindowSize(1);
+      reader.setCheckpointHandler(SECONDS.toNanos(options.getCheckpointIntervalSeconds()), virtualOffset ->
+          recordFileProgress(dccPrimaryTransformer, dccProjectCode, portalMetadata, rowCountsBefore, workflowDataTypes,
+              vcfStreamFilter, virtualOffset));
+    }
+    return convertVcfFile(vcfStreamFilter, dccPrimaryTransformer, portalMetadata, sampleMetadata,
+        metadataDTCConverter, workflowDataTypes);
+  }
+
+  private long convertVcfFileRegions(File vcfFile, DccTransformer<SSMPrimary> dccPrimaryTransformer,
+      PortalMetadata portalMetadata, SampleMetadata sampleMetadata, MetadataDTCConverter metadataDTCConverter,
+      Set<WorkflowDataType> workflowDataTypes){
+    val regions = options.getRegions().get();
+    val regionOffsets = readRegionOffsets(vcfFile, regions.getRegions(), options.getBgzfInflateThreads());
+    if (!regionOffsets.isPresent()){
+      log.info("Decoding every record of the file [{}], its records are not grouped by contig", vcfFile.getName());
+      return convertVcfFile(newVCFStreamFilter(vcfFile.toPath(), regions, sampleMetadata, variantFilterFactory),
+          dccPrimaryTransformer, portalMetadata, sampleMetadata, metadataDTCConverter, workflowDataTypes);
+    }
+    log.info("Converting the records of {} of the {} regions in the file [{}]", regionOffsets.get().size(),
+        regions.getRegions().size(), vcfFile.getName());
+    @Cleanup val reader = newBgzfVcfReader(vcfFile, options.getBgzfInflateThreads());
+    return convertVcfFile(newVCFStreamFilter(reader, regionOffsets.get(), sampleMetadata, variantFilterFactory),
+        dccPrimaryTransformer, portalMetadata, sampleMetadata, metadataDTCConverter, workflowDataTypes);
+  }
+
+  /**
+   * Converts every contig of the vcfFile on its own worker, into a part of the primary outputs in a local scratch
+   * directory. The parts are appended to the dccPrimaryTransformer in the order of the contigs in the file, as soon as
+   * they and the parts before them are done, so the rows are written in the same order as a conversion in one pass
+   * @return the number of variants read from the vcfFile
+   */
+  @SneakyThrows
+  private long convertVcfFileByContig(File vcfFile, Map<String, Long> contigOffsets,
+      DccTransformer<SSMPrimary> dccPrimaryTransformer, PortalMetadata portalMetadata, SampleMetadata sampleMetadata,
+      MetadataDTCConverter metadataDTCConverter, Set<WorkflowDataType> workflowDataTypes){
+    log.info("Converting the {} contigs of the file [{}] on {} threads", contigOffsets.size(), vcfFile.getName(),
+        options.getContigThreads());
+    val partsDirectory = Files.createTempDirectory("pcawg-contigs-");
+    val totalVariantCount = new AtomicLong(0);
+    try {
+      runAllInOrder(vcfFile.getName() + "-contig-worker", options.getContigThreads(), contigOffsets.entrySet(), e -> {
+        val contig = e.getKey();
+        val part = dccPrimaryTransformer.newPartTransformer(partsDirectory.resolve(contig));
+        @Cleanup val reader = newBgzfVcfReader(vcfFile);
+        reader.seek(e.getValue());
+        val vcfStreamFilter = newVCFStreamFilter(reader, contig, sampleMetadata, variantFilterFactory);
+        totalVariantCount.addAndGet(convertVcfFile(vcfStreamFilter, part, portalMetadata, sampleMetadata,
+            metadataDTCConverter, workflowDataTypes));
+        return part;
+      }, part -> appendPart(dccPrimaryTransformer, part));
+    } finally {
+      try (Stream<Path> paths = Files.walk(partsDirectory)){
+        paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+      }
+    }
+    return totalVariantCount.get();
+  }
+
+  @SneakyThrows
+  private static void appendPart(DccTransformer<SSMPrimary> dccPrimaryTransformer, DccTransformer<SSMPrimary> part){
+    dccPrimaryTransformer.appendPart(part);
+  }
+
+  private long convertVcfFile(VCFStreamFilter vcfStreamFilter, DccTransformer<SSMPrimary> dccPrimaryTransformer,
+      PortalMetadata portalMetadata, SampleMetadata sampleMetadata, MetadataDTCConverter metadataDTCConverter,
+      Set<WorkflowDataType> workflowDataTypes){
+    val consensusVariantProcessor = newConsensusVariantProcessor(sampleMetadata, VARIANT_CONVERTER_STRATEGY_MUX);
+    val primaryDTCConverter = newPrimaryDTCConverter(consensusVariantProcessor);
+    val primaryCounterMonitor = CounterMonitor.newMonitor("PRIMARY_DTC_CONV", 100000);
+
+    primaryCounterMonitor.start();
+    if (options.getConvertThreads() > 1){
+      // Same stages as below, but batches of variants are converted, validated and encoded on convertThreads threads,
+      // and written in their original order
+      forEachOrdered(portalMetadata.getPortalFilename().getFilename(), vcfStreamFilter.streamFilteredVariants(),
+          options.getConvertBatchSize(), options.getConvertThreads(),
+          v -> encodeSSMPrimaries(primaryDTCConverter, dccPrimaryTransformer, metadataDTCConverter, sampleMetadata,
+              workflowDataTypes, v),
+          ctx -> {
+            transformEncodedSSMPrimary(dccPrimaryTransformer, ctx);
+            primaryCounterMonitor.incr();
+          });
+    } else if (options.getPipelineQueueSize() > 0){
+      // Same stages as below, but each on its own thread, handing off through bounded queues
+      newStagedPipeline(portalMetadata.getPortalFilename().getFilename(), "read-filter",
+          vcfStreamFilter.streamFilteredVariants(), options.getPipelineQueueSize())
+          .flatMap("convert", v -> primaryDTCConverter.convert(v, primaryCounterMonitor))
+          .filter("validate", this::shouldTransformSSMPrimary)
+          .forEach("write", ptx ->
+              transformSSMPrimary(dccPrimaryTransformer,
+                  accumulatePrimaryDTC(metadataDTCConverter, sampleMetadata, workflowDataTypes, ptx)));
+    } else {
       vcfStreamFilter.streamFilteredVariants()
           .map(v -> primaryDTCConverter.convert(v, primaryCounterMonitor)) // Convert variants to PrimaryDTC objects
           .flatMap(Collection::stream)
           .filter(this::shouldTransformSSMPrimary)
-          .map(pdtc -> metadataDTCConverter.accumulatePrimaryDTC(sampleMetadata, pdtc) ) // Accumulate data for later MetadataDTC creation, primary DTC just pass through
+          .map(pdtc -> accumulatePrimaryDTC(metadataDTCConverter, sampleMetadata, workflowDataTypes, pdtc) ) // Accumulate data for later MetadataDTC creation, primary DTC just pass through
           .forEach(ptx -> transformSSMPrimary(dccPrimaryTransformer, ptx));
-      primaryCounterMonitor.stop();
-
-    } catch (Exception e) {
-      log.error("[{}]: {}\n{}", e.getClass().getSimpleName(), e.getMessage(), NEWLINE.join(e.getStackTrace()));
     }
+    primaryCounterMonitor.stop();
+    val missingCallersCount = consensusVariantProcessor.getMissingCallersCounter().getCount();
+    if (missingCallersCount > 0){
+      log.error("{} variants of the file [{}] do not have a [{}] attribute in their info field", missingCallersCount,
+          portalMetadata.getPortalFilename().getFilename(), VCF.CALLERS);
+    }
+    return vcfStreamFilter.getTotalVariantCounter().getCount();
+  }
 
+  /**
+   * @return the rows of the SSMPrimaries of the variant that passed the validation. Thread safe
+   */
+  private List<DccTransformerContext<String>> encodeSSMPrimaries(PrimaryDTCConverter primaryDTCConverter,
+      DccTransformer<SSMPrimary> dccPrimaryTransformer, MetadataDTCConverter metadataDTCConverter,
+      SampleMetadata sampleMetadata, Set<WorkflowDataType> workflowDataTypes, ConsensusVariant variant){
+    return primaryDTCConverter.convert(variant, null).stream()
+        .filter(this::shouldTransformSSMPrimary)
+        .map(ptx -> accumulatePrimaryDTC(metadataDTCConverter, sampleMetadata, workflowDataTypes, ptx))
+        .map(ptx -> newDccTransformerContext(ptx.getWorkflowTypes(), dccPrimaryTransformer.encode(ptx.getObject())))
+        .collect(toImmutableList());
+  }
+
+  @SneakyThrows
+  private static void transformEncodedSSMPrimary(DccTransformer<SSMPrimary> transformer,
+      DccTransformerContext<String> ctx) {
+    transformer.transformEncoded(ctx);
   }
 
   private boolean shouldTransformSSMPrimary(DccTransformerContext<SSMPrimary> ptx) {
@@ -27,16 +27,40 @@ import org.icgc.dcc.pcawg.client.core.model.ssm.metadata.SSMMetadata;
 import org.icgc.dcc.pcawg.client.core.model.ssm.metadata.SSMMetadataFieldMapping;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimaryFieldMapping;
+import org.icgc.dcc.pcawg.client.download.CostModel;
+import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
 import org.icgc.dcc.pcawg.client.download.MetadataContainer;
+import org.icgc.dcc.pcawg.client.download.context.MetadataContext;
+import org.icgc.dcc.pcawg.client.filter.coding.SnpEffMode;
+import org.icgc.dcc.pcawg.client.filter.variant.VariantFilterFactory;
 import org.icgc.dcc.pcawg.client.storage.StorageFactory;
 import org.icgc.dcc.pcawg.client.tsv.DccTransformerFactory;
+import org.icgc.dcc.pcawg.client.utils.measurement.AtomicIntegerCounter;
+import org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal;
+import org.icgc.dcc.pcawg.client.utils.persistance.ImportManifest;
+import org.icgc.dcc.pcawg.client.vcf.GenomicRegions;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static com.google.common.base.MoreObjects.firstNonNull;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static org.icgc.dcc.common.core.util.Joiners.DOT;
+import static org.icgc.dcc.common.core.util.Joiners.PATH;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 import static org.icgc.dcc.pcawg.client.DccProjectProcessor.newProcessorNoValidation;
 import static org.icgc.dcc.pcawg.client.DccProjectProcessor.newProcessorWithValidation;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.DICTIONARY_VERSION;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.PERSISTANCE_DIR;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.REGIONS_TSV_SUBDIRECTORY;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.UNKNOWN_VERSION;
 import static org.icgc.dcc.pcawg.client.core.Factory.buildDictionaryCreator;
 import static org.icgc.dcc.pcawg.client.core.Factory.newDccMetadataTransformerFactory;
 import static org.icgc.dcc.pcawg.client.core.Factory.newDccPrimaryTransformerFactory;
@@ -44,8 +68,17 @@ import static org.icgc.dcc.pcawg.client.core.Factory.newFsController;
 import static org.icgc.dcc.pcawg.client.core.Factory.newSSMMetadataValidator;
 import static org.icgc.dcc.pcawg.client.core.Factory.newSSMPrimaryValidator;
 import static org.icgc.dcc.pcawg.client.core.PersistedFactory.newPersistedFactory;
+import static org.icgc.dcc.pcawg.client.download.CostModel.newCostModel;
 import static org.icgc.dcc.pcawg.client.filter.variant.VariantFilterFactory.newVariantFilterFactory;
-import static org.icgc.dcc.pcawg.client.utils.measurement.IntegerCounter.newDefaultIntegerCounter;
+import static org.icgc.dcc.pcawg.client.tsv.fscontroller.impl.LocalFsController.newLocalFsController;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.runAll;
+import static org.icgc.dcc.pcawg.client.utils.measurement.AtomicIntegerCounter.newDefaultAtomicIntegerCounter;
+import static org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.CHECKPOINT_JOURNAL_FILENAME;
+import static org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.newCheckpointJournal;
+import static org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.newDisabledCheckpointJournal;
+import static org.icgc.dcc.pcawg.client.utils.persistance.ImportManifest.IMPORT_MANIFEST_FILENAME;
+import static org.icgc.dcc.pcawg.client.utils.persistance.ImportManifest.newImportManifest;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegions.parseGenomicRegions;
 
 @Slf4j
 @Builder
@@ -72,7 +105,27 @@ public class Importer implements Runnable {
   private final boolean useCollab;
   private final boolean bypassTcgaFiltering;
   private final boolean bypassNoiseFiltering;
+  private final SnpEffMode snpEffMode;
+  private final int snpEffProcesses;
+  private final boolean snpEffCache;
+  private final String codingRegions;
   private final boolean enableSSMValidation;
+  private final int projectThreads;
+  private final int fileThreads;
+  private final int prefetchDepth;
+  private final long prefetchDiskBudgetMb;
+  private final int pipelineQueueSize;
+  private final boolean longestFirst;
+  private final boolean checkpoint;
+  private final int checkpointIntervalSeconds;
+  private final int bgzfInflateThreads;
+  private final int contigThreads;
+  private final int convertThreads;
+  private final int convertBatchSize;
+  private final String regions;
+  private final boolean incremental;
+  private final boolean plan;
+  private final int planCalibrationFiles;
 
   /**
    * State
@@ -85,11 +138,28 @@ public class Importer implements Runnable {
   private boolean isInitDccTransformerFactory = false;
   private boolean isInitMetadataContainer = false;
   private boolean isInitSSMValidators = false;
+  private CheckpointJournal checkpointJournal;
+  private ImportManifest importManifest;
+  private Optional<GenomicRegions> genomicRegions = Optional.empty();
+
+  private void initGenomicRegions(){
+    genomicRegions = parseGenomicRegions(regions);
+    genomicRegions.ifPresent(r -> log.info("Only importing the regions [{}]: {}", r.getName(), r));
+  }
+
+  /**
+   * A region restricted import is written apart from the whole genome import, under a directory named after the regions
+   */
+  private String getRegionsOutputTsvDir(){
+    return genomicRegions.isPresent() ?
+        PATH.join(outputTsvDir, REGIONS_TSV_SUBDIRECTORY, genomicRegions.get().getName()) : outputTsvDir;
+  }
 
   private void initDccTransformerFactory(){
     val fsController = newFsController(hdfsEnabled, optionalHdfsHostname, optionalHdfsPort);
-    dccPrimaryTransformerFactory = newDccPrimaryTransformerFactory(fsController, outputTsvDir);
-    dccMetadataTransformerFactory = newDccMetadataTransformerFactory(fsController, outputTsvDir);
+    val tsvDir = getRegionsOutputTsvDir();
+    dccPrimaryTransformerFactory = newDccPrimaryTransformerFactory(fsController, tsvDir);
+    dccMetadataTransformerFactory = newDccMetadataTransformerFactory(fsController, tsvDir);
     this.isInitDccTransformerFactory = true;
   }
 
@@ -109,7 +179,59 @@ public class Importer implements Runnable {
     isInitSSMValidators = true;
   }
 
+  /**
+   * Each set of regions has its own journal, so that a region restricted import does not mark the whole genome import of
+   * a project as done, or the other way around. A journal of another outputTsvDir is discarded
+   */
+  private void initCheckpointJournal(){
+    if (checkpoint){
+      val journalFilename = genomicRegions.isPresent() ?
+          DOT.join(CHECKPOINT_JOURNAL_FILENAME, REGIONS_TSV_SUBDIRECTORY, genomicRegions.get().getName()) :
+          CHECKPOINT_JOURNAL_FILENAME;
+      checkpointJournal = newCheckpointJournal(Paths.get(PERSISTANCE_DIR).resolve(journalFilename),
+          Paths.get(getRegionsOutputTsvDir()));
+    } else {
+      checkpointJournal = newDisabledCheckpointJournal();
+    }
+  }
+
+  /**
+   * Output sizes can only be checkpointed (and truncated when resuming) on the local filesystem, and only when
+   * files of a project are written one after the other. Otherwise, an interrupted project is redone from scratch
+   */
+  private boolean isCheckpointFiles(){
+    return checkpoint && !hdfsEnabled && fileThreads <= 1;
+  }
+
+  private static String getImportVersion(){
+    val toolVersion = firstNonNull(Importer.class.getPackage().getImplementationVersion(), UNKNOWN_VERSION);
+    return toolVersion + "/" + DICTIONARY_VERSION;
+  }
+
+  private void initImportManifest(){
+    importManifest = newImportManifest(Paths.get(PERSISTANCE_DIR).resolve(IMPORT_MANIFEST_FILENAME), getImportVersion());
+  }
+
+  private List<PortalMetadata> getPortalMetadatas(String dccProjectCode){
+    return metadataContainer.getMetadataContexts(dccProjectCode).stream()
+        .map(MetadataContext::getPortalMetadata)
+        .collect(toImmutableList());
+  }
+
+  // Only the dccProjectCodes with new, changed or removed files since the last import
+  private List<String> filterChangedProjects(Collection<String> dccProjectCodes){
+    val changed = dccProjectCodes.stream()
+        .filter(d -> !importManifest.isUpToDate(d, getPortalMetadatas(d)))
+        .collect(toImmutableList());
+    log.info("Incremental import: {} of {} dccProjectCodes changed since the last import: {}",
+        changed.size(), dccProjectCodes.size(), changed);
+    return changed;
+  }
+
   private void init(){
+    initGenomicRegions();
+    initCheckpointJournal();
+    initImportManifest();
     initDccTransformerFactory();
     initMetadataContainer();
     if (enableSSMValidation){
@@ -118,40 +240,129 @@ public class Importer implements Runnable {
   }
 
 
+  private ProcessorOptions newProcessorOptions(){
+    return ProcessorOptions.builder()
+        .fileThreads(fileThreads)
+        .pipelineQueueSize(pipelineQueueSize)
+        .longestFirst(longestFirst)
+        .checkpointFiles(isCheckpointFiles())
+        .checkpointIntervalSeconds(checkpointIntervalSeconds)
+        .bgzfInflateThreads(bgzfInflateThreads)
+        .contigThreads(contigThreads)
+        .convertThreads(convertThreads)
+        .convertBatchSize(convertBatchSize)
+        .regions(genomicRegions)
+        .build();
+  }
+
+  private DccProjectProcessor newProcessor(StorageFactory storageFactory, VariantFilterFactory variantFilterFactory,
+      AtomicIntegerCounter metadataContextCounter, CostModel costModel){
+    if (enableSSMValidation){
+      return newProcessorWithValidation(storageFactory,dccPrimaryTransformerFactory,
+          dccMetadataTransformerFactory,metadataContainer,variantFilterFactory, metadataContextCounter,ssmPrimaryValidator, ssmMetadataValidator,
+          costModel, checkpointJournal, newProcessorOptions());
+    } else {
+      return newProcessorNoValidation(storageFactory, dccPrimaryTransformerFactory, dccMetadataTransformerFactory,
+          metadataContainer,variantFilterFactory, metadataContextCounter, costModel, checkpointJournal,
+          newProcessorOptions());
+    }
+  }
+
+  /**
+   * Calibrates on a few files converted into a scratch directory, so that the outputs in outputTsvDir are untouched
+   */
+  @SneakyThrows
+  private void runPlan(Collection<String> dccProjectCodes, StorageFactory storageFactory,
+      DccProjectProcessor dccProjectProcessor){
+    val calibrationTsvDir = Files.createTempDirectory("pcawg-plan-");
+    try {
+      CapacityPlanner.builder()
+          .metadataContainer(metadataContainer)
+          .dccProjectCodes(dccProjectCodes)
+          .storageFactory(storageFactory)
+          .dccProjectProcessor(dccProjectProcessor)
+          .calibrationTransformerFactory(newDccPrimaryTransformerFactory(newLocalFsController(), calibrationTsvDir.toString()))
+          .numCalibrationFiles(planCalibrationFiles)
+          .projectThreads(projectThreads)
+          .fileThreads(fileThreads)
+          .prefetchDepth(prefetchDepth)
+          .prefetchDiskBudgetBytes(prefetchDiskBudgetMb * 1024L * 1024L)
+          .persistVcfDownloads(persistVcfDownloads)
+          .build()
+          .run();
+    } finally {
+      try (Stream<Path> paths = Files.walk(calibrationTsvDir)){
+        paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+      }
+    }
+  }
+
   @SneakyThrows
   @Override
   public void run() {
     init();
     val totalDccProjectCodes = metadataContainer.getDccProjectCodes().size();
-    int countDccProjectCodes  = 0;
+    val dccProjectCodeCounter = newDefaultAtomicIntegerCounter();
 
-    val metadataContextCounter = newDefaultIntegerCounter();
-    val variantFilterFactory = newVariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering);
+    val metadataContextCounter = newDefaultAtomicIntegerCounter();
+    val failedDccProjectCodeCounter = newDefaultAtomicIntegerCounter();
+    val costModel = newCostModel();
+    val variantFilterFactory = newVariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering, snpEffMode, snpEffProcesses,
+        snpEffCache ? Optional.of(Paths.get(PERSISTANCE_DIR)) : Optional.empty(),
+        isNullOrEmpty(codingRegions) ? Optional.empty() : Optional.of(Paths.get(codingRegions)));
     val storageFactory = StorageFactory.builder()
         .bypassMD5Check(bypassMD5Check)
         .outputVcfDir(Paths.get(outputVcfDir))
         .persistVcfDownloads(persistVcfDownloads)
         .token(token)
         .useCollab(useCollab)
+        .prefetchDepth(prefetchDepth)
+        .prefetchDiskBudgetBytes(prefetchDiskBudgetMb * 1024L * 1024L)
         .build();
 
-    // Loop through each dccProjectCode
-    for (val dccProjectCode : metadataContainer.getDccProjectCodes()) {
+    // Each dccProjectCode gets its own processor, and therefore its own Storage and DccTransformers.
+    // Only the VariantFilterFactory, SSMValidators and counters are shared between workers
+    final Consumer<String> projectProcessor = dccProjectCode -> {
       log.info("Processing DccProjectCode ( {} / {} ): {}",
-          ++countDccProjectCodes, totalDccProjectCodes, dccProjectCode);
+          dccProjectCodeCounter.incrAndGet(), totalDccProjectCodes, dccProjectCode);
+      val allFilesConverted = newProcessor(storageFactory, variantFilterFactory, metadataContextCounter, costModel)
+          .process(dccProjectCode);
+      // A project with failed files is retried by the next incremental import. The manifest only tracks whole genome imports
+      if (allFilesConverted && !genomicRegions.isPresent()){
+        importManifest.record(dccProjectCode, getPortalMetadatas(dccProjectCode));
+      } else if (!allFilesConverted){
+        failedDccProjectCodeCounter.incr();
+      }
+    };
 
-      DccProjectProcessor processor = null;
-      if (enableSSMValidation){
-        processor = newProcessorWithValidation(storageFactory,dccPrimaryTransformerFactory,
-            dccMetadataTransformerFactory,metadataContainer,variantFilterFactory, metadataContextCounter,ssmPrimaryValidator, ssmMetadataValidator);
+    // Largest projects first, so that a large project picked up last does not stretch the tail of the run
+    final Collection<String> orderedDccProjectCodes = longestFirst ?
+        costModel.orderLongestFirst(metadataContainer) : metadataContainer.getDccProjectCodes();
+    final Collection<String> dccProjectCodes = incremental ?
+        filterChangedProjects(orderedDccProjectCodes) : orderedDccProjectCodes;
+
+    try {
+      if (plan){
+        runPlan(dccProjectCodes, storageFactory, newProcessor(storageFactory, variantFilterFactory, metadataContextCounter, costModel));
+        return;
+      }
+      if (projectThreads > 1){
+        log.info("Processing DccProjectCodes with {} worker threads", projectThreads);
+        runAll("project-worker", projectThreads, dccProjectCodes, projectProcessor);
       } else {
-        processor = newProcessorNoValidation(storageFactory, dccPrimaryTransformerFactory, dccMetadataTransformerFactory,
-            metadataContainer,variantFilterFactory, metadataContextCounter);
+        dccProjectCodes.forEach(projectProcessor);
       }
-      processor.process(dccProjectCode);
-
+      // The journal is kept for the next run to resume the projects with failed files
+      if (failedDccProjectCodeCounter.getCount() == 0){
+        checkpointJournal.complete();
+      } else {
+        log.warn("{} of {} DccProjectCodes had failed files, keeping the checkpoint journal for the next run",
+            failedDccProjectCodeCounter.getCount(), dccProjectCodes.size());
+      }
+    } finally {
+      variantFilterFactory.close();
+      checkpointJournal.close();
     }
-    variantFilterFactory.close();
   }
 
 }
@@ -0,0 +1,63 @@
+package org.icgc.dcc.pcawg.client;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+import org.icgc.dcc.pcawg.client.vcf.GenomicRegions;
+
+import java.util.Optional;
+
+/**
+ * How a DccProjectProcessor spreads, orders, checkpoints and restricts the conversion of the files of a project
+ */
+@Value
+@Builder
+public class ProcessorOptions {
+
+  /**
+   * Files of a project converted at the same time
+   */
+  private final int fileThreads;
+
+  /**
+   * Capacity of the queues between the stages of the conversion of a file, or 0 to convert each variant in turn
+   */
+  private final int pipelineQueueSize;
+
+  /**
+   * Convert the files with the most variants first, as estimated by the CostModel
+   */
+  private final boolean longestFirst;
+
+  /**
+   * Record each converted file in the CheckpointJournal, so an interrupted project is resumed after it
+   */
+  private final boolean checkpointFiles;
+
+  /**
+   * Seconds between the checkpoints within a file, or 0 to only checkpoint whole files
+   */
+  private final int checkpointIntervalSeconds;
+
+  /**
+   * Threads inflating the blocks of a BGZF file, or 0 to inflate them on the reading thread
+   */
+  private final int bgzfInflateThreads;
+
+  /**
+   * Contigs of a BGZF file converted at the same time
+   */
+  private final int contigThreads;
+
+  /**
+   * Threads converting batches of convertBatchSize variants of a file
+   */
+  private final int convertThreads;
+  private final int convertBatchSize;
+
+  /**
+   * If present, only the variants overlapping these regions are converted
+   */
+  @NonNull private final Optional<GenomicRegions> regions;
+
+}
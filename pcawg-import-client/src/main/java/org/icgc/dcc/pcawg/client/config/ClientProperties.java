@@ -17,7 +17,10 @@
  */
 package org.icgc.dcc.pcawg.client.config;
 
+import org.icgc.dcc.pcawg.client.filter.coding.SnpEffMode;
+
 import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
 import static java.lang.System.getProperty;
 
 public class ClientProperties {
@@ -30,6 +33,7 @@ public class ClientProperties {
   public static final String TOKEN = getProperty("token");
   public static final String HDFS_ADDRESS = getProperty("hdfs_address","localhost");
   public static final String HDFS_PORT = getProperty("hdfs_port","50075");
+  public static final int IO_CONCURRENCY = parseInt(getProperty("io_concurrency", "32"));
 
   public static final boolean STORAGE_PERSIST_MODE = parseBoolean(getProperty("persist_mode", FALSE));
   public static final String STORAGE_OUTPUT_VCF_STORAGE_DIR = "storedVCFs";
@@ -48,6 +52,8 @@ public class ClientProperties {
 
   public static final String OUTPUT_TSV_DIRECTORY = "/tmp/tsvDir."+System.currentTimeMillis();
 
+  public static final String REGIONS_TSV_SUBDIRECTORY = "regions";
+
   public static final String SSM_P_TSV_FILENAME_PREFIX = "ssm_p";
   public static final String SSM_P_TSV_FILENAME_EXTENSION = "txt";
 
@@ -72,4 +78,25 @@ public class ClientProperties {
   public static final boolean DEFAULT_BYPASS_NOISE_FILTER = true;
   public static final boolean DEFAULT_ENABLE_SSM_VALIDATION = false;
   public static final String DEFAULT_STUDY = "PCAWG";
+  public static final int DEFAULT_PROJECT_THREADS = 1;
+  public static final int DEFAULT_FILE_THREADS = 1;
+  public static final int DEFAULT_PREFETCH_DEPTH = 0;
+  public static final long DEFAULT_PREFETCH_DISK_BUDGET_MB = 4096;
+  public static final int DEFAULT_PIPELINE_QUEUE_SIZE = 0;
+  public static final boolean DEFAULT_LONGEST_FIRST = true;
+  public static final boolean DEFAULT_CHECKPOINT = true;
+  public static final int DEFAULT_CHECKPOINT_INTERVAL_SECONDS = 300;
+  public static final int DEFAULT_BGZF_INFLATE_THREADS = 0;
+  public static final int DEFAULT_CONTIG_THREADS = 0;
+  public static final int DEFAULT_CONVERT_THREADS = 0;
+  public static final int DEFAULT_CONVERT_BATCH_SIZE = 512;
+  public static final String DEFAULT_REGIONS = "";
+  public static final int DEFAULT_SNPEFF_PROCESSES = 1;
+  public static final boolean DEFAULT_SNPEFF_CACHE = true;
+  public static final SnpEffMode DEFAULT_SNPEFF_MODE = SnpEffMode.PROCESS;
+  public static final String DEFAULT_CODING_REGIONS = "";
+  public static final boolean DEFAULT_INCREMENTAL = false;
+  public static final boolean DEFAULT_PLAN = false;
+  public static final int DEFAULT_PLAN_CALIBRATION_FILES = 3;
+  public static final String UNKNOWN_VERSION = "unknown";
 }
@@ -2,6 +2,7 @@ package org.icgc.dcc.pcawg.client.core.model.ssm;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import lombok.NonNull;
 import lombok.val;
@@ -12,6 +13,7 @@ import org.icgc.dcc.submission.dictionary.model.Restriction;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
@@ -34,6 +36,11 @@ public final class SSMValidator <T, F extends org.icgc.dcc.pcawg.client.core.mod
   private final FileSchema schema;
   private final F[] fieldArray;
 
+  /**
+   * Compiled Patterns are immutable, so they are cached and shared by all threads using this validator
+   */
+  private final ConcurrentMap<String, Pattern> patternCache = Maps.newConcurrentMap();
+
   private SSMValidator(FileSchema schema, F[] fieldArray){
     this.schema = schema;
     this.fieldArray = fieldArray;
@@ -42,7 +49,7 @@ public final class SSMValidator <T, F extends org.icgc.dcc.pcawg.client.core.mod
   private boolean validateRegex(Restriction restriction, @NonNull String valueToValidate){
     if (restriction.getType() == REGEX){
       val patternString = restriction.getConfig().get("pattern").toString();
-      val pattern = Pattern.compile(patternString);
+      val pattern = patternCache.computeIfAbsent(patternString, Pattern::compile);
       return pattern.matcher(valueToValidate).matches();
     } else {
       return true;
@@ -4,4 +4,11 @@ public interface FieldExtractor<T> {
 
   String extractStringValue(T data);
 
+  /**
+   * Appends the same value as extractStringValue, without building it as a String when possible
+   */
+  default void appendValue(T data, StringBuilder builder){
+    builder.append(extractStringValue(data));
+  }
+
 }
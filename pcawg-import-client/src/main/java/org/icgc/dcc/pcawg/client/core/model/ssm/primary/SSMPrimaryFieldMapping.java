@@ -1,11 +1,10 @@
 package org.icgc.dcc.pcawg.client.core.model.ssm.primary;
 
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
 import java.util.function.Function;
+import java.util.function.ToIntFunction;
 
-@RequiredArgsConstructor
 public enum SSMPrimaryFieldMapping implements FieldExtractor<SSMPrimary> {
   ANALYSIS_ID                         ("analysis_id", SSMPrimary::getAnalysisId),
   ANALYZED_SAMPLE_ID                  ("analyzed_sample_id", SSMPrimary::getAnalyzedSampleId),
@@ -34,8 +33,24 @@ public enum SSMPrimaryFieldMapping implements FieldExtractor<SSMPrimary> {
   @NonNull
   private final String name;
 
-  @NonNull
+  /**
+   * Exactly one of functor and intFunctor is set. The int fields are read through intFunctor, so that they are
+   * appended without boxing
+   */
   private final Function<SSMPrimary, ? super Object> functor;
+  private final ToIntFunction<SSMPrimary> intFunctor;
+
+  SSMPrimaryFieldMapping(@NonNull String name, @NonNull Function<SSMPrimary, ? super Object> functor){
+    this.name = name;
+    this.functor = functor;
+    this.intFunctor = null;
+  }
+
+  SSMPrimaryFieldMapping(@NonNull String name, @NonNull ToIntFunction<SSMPrimary> intFunctor){
+    this.name = name;
+    this.functor = null;
+    this.intFunctor = intFunctor;
+  }
 
   @Override
   public String toString(){
@@ -44,7 +59,19 @@ public enum SSMPrimaryFieldMapping implements FieldExtractor<SSMPrimary> {
 
   @Override
   public String extractStringValue(SSMPrimary data){
+    if (intFunctor != null){
+      return Integer.toString(intFunctor.applyAsInt(data));
+    }
     return functor.apply(data).toString();
   }
 
+  @Override
+  public void appendValue(SSMPrimary data, StringBuilder builder){
+    if (intFunctor != null){
+      builder.append(intFunctor.applyAsInt(data));
+    } else {
+      builder.append(functor.apply(data).toString());
+    }
+  }
+
 }
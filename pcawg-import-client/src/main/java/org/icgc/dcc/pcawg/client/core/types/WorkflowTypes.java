@@ -23,10 +23,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.val;
 import org.icgc.dcc.pcawg.client.utils.CompareState;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Predicate;
 
 import static com.google.common.base.Preconditions.checkState;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
 import static org.icgc.dcc.common.core.util.stream.Streams.stream;
 
@@ -93,6 +96,63 @@ public enum WorkflowTypes {
     return workflowType;
   }
 
+  /**
+   * Callers of each name length, so that a caller name is only compared to the names of the same length
+   */
+  private static final WorkflowTypes[][] WORKFLOW_TYPES_BY_NAME_LENGTH = indexByNameLength();
+
+  /**
+   * The WorkflowTypes ordered by name, which is the order of the callers in the consensus files
+   */
+  private static final List<WorkflowTypes> NAME_ORDER = stream(WORKFLOW_TYPES)
+      .sorted(Comparator.comparing(WorkflowTypes::getName))
+      .collect(toImmutableList());
+
+  private static WorkflowTypes[][] indexByNameLength(){
+    val maxLength = stream(WORKFLOW_TYPES).mapToInt(w -> w.getName().length()).max().getAsInt();
+    val index = new WorkflowTypes[maxLength + 1][];
+    for (int length = 0; length <= maxLength; length++){
+      final int nameLength = length;
+      index[length] = stream(WORKFLOW_TYPES)
+          .filter(w -> w.getName().length() == nameLength)
+          .toArray(WorkflowTypes[]::new);
+    }
+    return index;
+  }
+
+  /**
+   * Same as parseMatch(s.substring(start, end), false), without allocating
+   */
+  public static WorkflowTypes parseMatch(@NonNull String s, final int start, final int end){
+    val length = end - start;
+    if (length < WORKFLOW_TYPES_BY_NAME_LENGTH.length){
+      for (val w : WORKFLOW_TYPES_BY_NAME_LENGTH[length]){
+        if (s.startsWith(w.getName(), start)){
+          return w;
+        }
+      }
+    }
+    return WorkflowTypes.UNKNOWN;
+  }
+
+  /**
+   * @return the WorkflowTypes ordered by name
+   */
+  public static List<WorkflowTypes> getNameOrder(){
+    return NAME_ORDER;
+  }
+
+  /**
+   * @return the bit of this WorkflowType in a bitmask of WorkflowTypes
+   */
+  public int getMask(){
+    return 1 << ordinal();
+  }
+
+  public boolean isInMask(final int mask){
+    return (mask & getMask()) != 0;
+  }
+
   public static WorkflowTypes parseContains(String name, boolean check){
     val workflowType = parse(name, w -> w.isIn(name) );
     if (check) {
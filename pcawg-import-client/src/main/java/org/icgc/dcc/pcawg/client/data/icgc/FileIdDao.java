@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -35,6 +36,7 @@ import static org.icgc.dcc.pcawg.client.data.icgc.IdResolver.getAllSubmitterSamp
 import static org.icgc.dcc.pcawg.client.data.icgc.IdResolver.getAllTcgaAliquotBarcodes;
 import static org.icgc.dcc.pcawg.client.download.query.PortalSubmittedSampleIdQueryCreator.newSubmitterSampleIdQueryCreator;
 import static org.icgc.dcc.pcawg.client.download.query.PortalTcgaAliquotBarcodeQueryCreator.newTcgaAliquotBarcodeQueryCreator;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.IoExecutor.getDefaultIoExecutor;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -88,18 +90,21 @@ public class FileIdDao implements Serializable {
 
   }
 
+  // Each query is independent, so they are all issued concurrently on the I/O executor
   private static <T extends ObjectNodeConverter>  Set<IdPair> procQuery(Iterable<T> queries, int totalSize, int batchSize, Function<ObjectNode, IdPair> extractFunctor) {
     val setBuilder = ImmutableSet.<IdPair>builder();
-    int count = 0;
+    val count = new AtomicInteger(0);
     int total = (int)Math.ceil(totalSize/(double)batchSize);
-    for (val q : queries){
-      log.info("Querying Portal for Request {} / {}", ++count, total);
-      val pairs = getResponse(q).stream()
-          .map(extractFunctor)
-          .distinct()
-          .collect(toImmutableSet());
-      setBuilder.addAll(pairs);
-    }
+    getDefaultIoExecutor()
+        .mapAll(queries, q -> {
+          val pairs = getResponse(q).stream()
+              .map(extractFunctor)
+              .distinct()
+              .collect(toImmutableSet());
+          log.info("Queried Portal for Request {} / {}", count.incrementAndGet(), total);
+          return pairs;
+        })
+        .forEach(setBuilder::addAll);
     return setBuilder.build();
   }
 
@@ -0,0 +1,121 @@
+package org.icgc.dcc.pcawg.client.download;
+
+import com.google.common.collect.Maps;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
+import org.icgc.dcc.pcawg.client.download.context.MetadataContext;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+
+/**
+ * Estimates the cost of converting a file, so that the most expensive work can be scheduled first.
+ * The cost of a file is its size multiplied by the variants per byte of its data type (snv_mnv, indel, ...).
+ * Until files of a data type have been converted, the ratio observed over all data types is used, and until then,
+ * the cost is the file size alone.
+ * Handing the longest work out first to a pool of workers keeps a large file picked up last from stretching the
+ * tail of the run.
+ */
+@Slf4j
+public final class CostModel {
+
+  private static final double DEFAULT_VARIANTS_PER_BYTE = 1.0;
+  private static final String ALL_DATA_TYPES = "*";
+
+  public static CostModel newCostModel(){
+    return new CostModel();
+  }
+
+  private final ConcurrentMap<String, Observation> observationMap = Maps.newConcurrentMap();
+
+  private CostModel(){ }
+
+  private static String getKey(PortalMetadata portalMetadata){
+    return portalMetadata.getPortalFilename().getDataType();
+  }
+
+  public void recordObserved(@NonNull PortalMetadata portalMetadata, final long variantCount){
+    val bytes = portalMetadata.getFileSize();
+    if (bytes <= 0){
+      return;
+    }
+    observationMap.computeIfAbsent(getKey(portalMetadata), k -> new Observation()).add(bytes, variantCount);
+    observationMap.computeIfAbsent(ALL_DATA_TYPES, k -> new Observation()).add(bytes, variantCount);
+  }
+
+  public double getVariantsPerByte(@NonNull PortalMetadata portalMetadata){
+    val observation = observationMap.get(getKey(portalMetadata));
+    if (observation != null && observation.hasData()){
+      return observation.getVariantsPerByte();
+    }
+    val overall = observationMap.get(ALL_DATA_TYPES);
+    if (overall != null && overall.hasData()){
+      return overall.getVariantsPerByte();
+    }
+    return DEFAULT_VARIANTS_PER_BYTE;
+  }
+
+  public double estimateCost(@NonNull PortalMetadata portalMetadata){
+    return portalMetadata.getFileSize() * getVariantsPerByte(portalMetadata);
+  }
+
+  public double estimateCost(@NonNull MetadataContext metadataContext){
+    return estimateCost(metadataContext.getPortalMetadata());
+  }
+
+  public double estimateCost(@NonNull Collection<MetadataContext> metadataContexts){
+    return metadataContexts.stream()
+        .mapToDouble(this::estimateCost)
+        .sum();
+  }
+
+  public List<MetadataContext> orderLongestFirst(@NonNull Collection<MetadataContext> metadataContexts){
+    return sortDescending(metadataContexts, this::estimateCost);
+  }
+
+  /**
+   * Orders the dccProjectCodes by the total estimated cost of their files, most expensive first
+   */
+  public List<String> orderLongestFirst(@NonNull MetadataContainer metadataContainer){
+    val projectCosts = Maps.<String, Double>newHashMap();
+    for (val dccProjectCode : metadataContainer.getDccProjectCodes()){
+      projectCosts.put(dccProjectCode, estimateCost(metadataContainer.getMetadataContexts(dccProjectCode)));
+    }
+    return sortDescending(projectCosts.keySet(), projectCosts::get);
+  }
+
+  private static <T> List<T> sortDescending(Collection<T> items, ToDoubleFunction<T> costFunction){
+    return items.stream()
+        .sorted(Comparator.comparingDouble(costFunction).reversed())
+        .collect(toImmutableList());
+  }
+
+  private static class Observation {
+
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final AtomicLong variants = new AtomicLong(0);
+
+    void add(final long byteCount, final long variantCount){
+      bytes.addAndGet(byteCount);
+      variants.addAndGet(variantCount);
+    }
+
+    boolean hasData(){
+      return bytes.get() > 0 && variants.get() > 0;
+    }
+
+    double getVariantsPerByte(){
+      return variants.get() / (double) bytes.get();
+    }
+
+  }
+
+}
@@ -15,8 +15,10 @@ import java.net.URL;
 import java.net.URLEncoder;
 import java.util.List;
 
+import static com.google.common.base.MoreObjects.firstNonNull;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.PORTAL_API;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.IoExecutor.getDefaultIoExecutor;
 
 @Builder
 public class Portal {
@@ -25,14 +27,21 @@ public class Portal {
   private static final Joiner AMPERSAND_JOINER = Joiner.on("&");
   private static final int PORTAL_FETCH_SIZE = 100;
   private static final String HITS = "hits";
+  private static final String PAGINATION = "pagination";
+  private static final String TOTAL = "total";
   private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
 
   @NonNull
   private final ObjectNodeConverter jsonQueryGenerator;
 
+  /**
+   * Optional, defaults to PORTAL_API
+   */
+  private final String portalApi;
+
   @SneakyThrows
   public URL getUrl(int size, int from) {
-    val endpoint = PORTAL_API + REPOSITORY_FILES_ENDPOINT;
+    val endpoint = firstNonNull(portalApi, PORTAL_API) + REPOSITORY_FILES_ENDPOINT;
     val include = "facets";
     val filters = URLEncoder.encode(jsonQueryGenerator.toObjectNode().toString(), UTF_8.name());
     val urlEnding = AMPERSAND_JOINER.join(
@@ -48,26 +57,47 @@ public class Portal {
     return result.get(HITS);
   }
 
+  private static int getTotal(JsonNode result) {
+    return result.path(PAGINATION).path(TOTAL).asInt(-1);
+  }
+
+  private static void addHits(ImmutableList.Builder<ObjectNode> fileMetas, JsonNode hits){
+    for (val hit : hits) {
+      val fileMeta = (ObjectNode) hit;
+      fileMetas.add(fileMeta);
+    }
+  }
+
+  /**
+   * The first page reports the total number of hits, so the remaining pages are fetched concurrently
+   * on the I/O executor. If the total is not reported, the pages are fetched one after the other
+   */
   public List<ObjectNode> getFileMetas() {
     val fileMetas = ImmutableList.<ObjectNode> builder();
     val size = PORTAL_FETCH_SIZE;
     int from = 1;
 
-    while (true) {
-      val url = getUrl(size, from);
-      val result = read(url);
-      val hits = getHits(result);
-
-      for (val hit : hits) {
-        val fileMeta = (ObjectNode) hit;
-        fileMetas.add(fileMeta);
-      }
+    val firstResult = read(getUrl(size, from));
+    val firstHits = getHits(firstResult);
+    addHits(fileMetas, firstHits);
+    val total = getTotal(firstResult);
 
-      if (hits.size() < size) {
-        break;
+    if (total >= 0) {
+      val froms = ImmutableList.<Integer>builder();
+      for (from += size; from <= total; from += size) {
+        froms.add(from);
       }
+      getDefaultIoExecutor()
+          .mapAll(froms.build(), f -> getHits(read(getUrl(size, f))))
+          .forEach(hits -> addHits(fileMetas, hits));
+      return fileMetas.build();
+    }
 
+    JsonNode hits = firstHits;
+    while (hits.size() == size) {
       from += size;
+      hits = getHits(read(getUrl(size, from)));
+      addHits(fileMetas, hits);
     }
     return fileMetas.build();
   }
@@ -0,0 +1,100 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Looks up the decision of every line in a CodingDecisionCache before submitting it to the CodingFilter, and caches
+ * the decisions it predicts. The cache is stored when destroyed, so that the next runs skip the variants already
+ * predicted
+ */
+@Slf4j
+@RequiredArgsConstructor(access = PRIVATE)
+public class CachedCodingFilter implements CodingFilter {
+
+  private static final char TAB = '\t';
+
+  public static CachedCodingFilter newCachedCodingFilter(CodingFilter codingFilter,
+      CodingDecisionCache codingDecisionCache){
+    return new CachedCodingFilter(codingFilter, codingDecisionCache);
+  }
+
+  /**
+   * Dependencies
+   */
+  @NonNull private final CodingFilter codingFilter;
+  @NonNull private final CodingDecisionCache codingDecisionCache;
+
+  /**
+   * State
+   */
+  @Getter private final AtomicLong hitCounter = new AtomicLong(0);
+  @Getter private final AtomicLong missCounter = new AtomicLong(0);
+
+  @Override
+  public CompletableFuture<Boolean> submit(String line) {
+    val key = newKey(line);
+    val cached = codingDecisionCache.get(key);
+    if (cached.isPresent()){
+      hitCounter.incrementAndGet();
+      return CompletableFuture.completedFuture(cached.get());
+    }
+    missCounter.incrementAndGet();
+    return codingFilter.submit(line).thenApply(coding -> {
+      codingDecisionCache.put(key, coding);
+      return coding;
+    });
+  }
+
+  /**
+   * The key of the CHROM, POS, REF and ALT columns of the vcf line
+   */
+  private long newKey(String line){
+    val chromEnd = line.indexOf(TAB);
+    val posEnd = line.indexOf(TAB, chromEnd + 1);
+    val idEnd = line.indexOf(TAB, posEnd + 1);
+    val refEnd = line.indexOf(TAB, idEnd + 1);
+    if (chromEnd < 0 || posEnd < 0 || idEnd < 0 || refEnd < 0){
+      throw new IllegalArgumentException(String.format("The vcf line [%s] has less than 5 columns", line));
+    }
+    val altEnd = line.indexOf(TAB, refEnd + 1);
+    return codingDecisionCache.newKey(line.substring(0, chromEnd),
+        Integer.parseInt(line.substring(chromEnd + 1, posEnd)),
+        line.substring(idEnd + 1, refEnd),
+        altEnd < 0 ? line.substring(refEnd + 1) : line.substring(refEnd + 1, altEnd));
+  }
+
+  @Override
+  public Boolean await(CompletableFuture<Boolean> prediction) {
+    return codingFilter.await(prediction);
+  }
+
+  @Override
+  public void flush() {
+    codingFilter.flush();
+  }
+
+  @Override
+  public boolean isAlive() {
+    return codingFilter.isAlive();
+  }
+
+  @Override
+  public void destroy() {
+    try {
+      codingFilter.destroy();
+    } finally {
+      log.info("{} coding predictions were cached, {} were not", hitCounter.get(), missCounter.get());
+      codingDecisionCache.close();
+    }
+  }
+
+}
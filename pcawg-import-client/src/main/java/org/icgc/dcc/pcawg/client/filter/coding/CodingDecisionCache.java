@@ -0,0 +1,315 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.Cleanup;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.newWorkerExecutor;
+
+/**
+ * Coding decisions of SnpEff that persist across runs, keyed by the chromosome, position, ref and alt alleles of a
+ * variant, and the SnpEff database version they were predicted with.
+ * The file is a header followed by a sorted array of longs, memory mapped and binary searched. Each long is a 62 bit
+ * hash of the key, shifted left, with the decision in its lowest bit. A hash collision could only flip the decision of
+ * a variant with probability around n^2 / 2^62, which is negligible for the number of variants of an import.
+ * The most recent decisions are also kept in an LRU in front of the file. The decisions of the current run are merged
+ * into the file by store, which rewrites it atomically. So that an interrupted run keeps most of its decisions, store
+ * also runs every storeIntervalEntries decisions, on a thread of its own, since put is called by the threads reading
+ * the predictions. The file is only mapped when loaded: the decisions stored since are looked up in a sorted array
+ */
+@Slf4j
+public class CodingDecisionCache {
+
+  public static final String CODING_DECISION_CACHE_FILENAME_PREFIX = "snpeff.coding.";
+  public static final String CODING_DECISION_CACHE_FILENAME_EXTENSION = ".cache";
+
+  /**
+   * Constants
+   */
+  private static final long MAGIC = 0x534E50454646434CL;
+  private static final int HEADER_LONGS = 3;
+  private static final int LRU_SIZE = 1 << 20;
+  private static final int INITIAL_NEW_ENTRIES = 1 << 12;
+  private static final int STORE_INTERVAL_ENTRIES = 1 << 20;
+  private static final int STORE_TIMEOUT_MINUTES = 30;
+  private static final long MAX_MAPPED_ENTRIES = Integer.MAX_VALUE / Long.BYTES - HEADER_LONGS;
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  private static final Optional<Boolean> CODING = Optional.of(true);
+  private static final Optional<Boolean> NOT_CODING = Optional.of(false);
+
+  /**
+   * @return the cache of the databaseVersion, in the persistDir
+   */
+  public static CodingDecisionCache newCodingDecisionCache(@NonNull Path persistDir, @NonNull String databaseVersion){
+    return newCodingDecisionCache(persistDir, databaseVersion, STORE_INTERVAL_ENTRIES);
+  }
+
+  static CodingDecisionCache newCodingDecisionCache(@NonNull Path persistDir, @NonNull String databaseVersion,
+      final int storeIntervalEntries){
+    val cachePath = persistDir.resolve(CODING_DECISION_CACHE_FILENAME_PREFIX + databaseVersion
+        + CODING_DECISION_CACHE_FILENAME_EXTENSION);
+    val cache = new CodingDecisionCache(cachePath, databaseVersion, storeIntervalEntries);
+    cache.load();
+    return cache;
+  }
+
+  /**
+   * Configuration
+   */
+  @Getter private final Path cachePath;
+  private final String databaseVersion;
+  private final long databaseVersionHash;
+  private final int storeIntervalEntries;
+
+  /**
+   * State
+   */
+  private final Cache<Long, Boolean> lru = CacheBuilder.newBuilder().maximumSize(LRU_SIZE).build();
+  private volatile LongBuffer storedEntries = LongBuffer.allocate(0);
+  private volatile LongBuffer storedRunEntries = LongBuffer.allocate(0);
+  private final Object storeLock = new Object();
+  private long[] newEntries = new long[INITIAL_NEW_ENTRIES];
+  private int numNewEntries = 0;
+  private ExecutorService storeExecutor;
+  private boolean storeScheduled;
+
+  private CodingDecisionCache(Path cachePath, String databaseVersion, final int storeIntervalEntries){
+    checkArgument(storeIntervalEntries > 0, "The storeIntervalEntries [%s] must be greater than 0",
+        storeIntervalEntries);
+    this.cachePath = cachePath;
+    this.databaseVersion = databaseVersion;
+    this.databaseVersionHash = HASH_FUNCTION.hashString(databaseVersion, UTF_8).asLong();
+    this.storeIntervalEntries = storeIntervalEntries;
+  }
+
+  private void load() {
+    if (!Files.isRegularFile(cachePath)){
+      log.info("No SnpEff coding decision cache found at [{}]", cachePath);
+      return;
+    }
+    val entries = map(cachePath);
+    if (entries.isPresent()){
+      storedEntries = entries.get();
+      log.info("Loaded {} SnpEff coding decisions from [{}]", storedEntries.limit(), cachePath);
+    }
+  }
+
+  /**
+   * @return the entries of the cache file, without its header. Empty if the file is not a cache of the
+   * databaseVersion
+   */
+  @SneakyThrows
+  private Optional<LongBuffer> map(Path path){
+    @Cleanup val channel = FileChannel.open(path, READ);
+    val size = channel.size();
+    if (size < HEADER_LONGS * Long.BYTES || size % Long.BYTES != 0
+        || size / Long.BYTES - HEADER_LONGS > MAX_MAPPED_ENTRIES){
+      log.warn("Ignoring the SnpEff coding decision cache [{}], its size of {} bytes is not valid", path, size);
+      return Optional.empty();
+    }
+    val longs = channel.map(READ_ONLY, 0, size).asLongBuffer();
+    val numEntries = size / Long.BYTES - HEADER_LONGS;
+    if (longs.get(0) != MAGIC || longs.get(1) != databaseVersionHash || longs.get(2) != numEntries){
+      log.warn("Ignoring the SnpEff coding decision cache [{}], it is not a cache of the database version [{}]",
+          path, databaseVersion);
+      return Optional.empty();
+    }
+    longs.position(HEADER_LONGS);
+    return Optional.of(longs.slice());
+  }
+
+  public long newKey(@NonNull String chromosome, final int position, @NonNull String ref, @NonNull String alt){
+    return HASH_FUNCTION.newHasher()
+        .putLong(databaseVersionHash)
+        .putString(chromosome, UTF_8)
+        .putInt(position)
+        .putString(ref, UTF_8)
+        .putChar('>')
+        .putString(alt, UTF_8)
+        .hash()
+        .asLong() >>> 2;
+  }
+
+  /**
+   * @param key returned by newKey
+   * @return empty if the decision of the key is not cached
+   */
+  public Optional<Boolean> get(final long key){
+    Boolean coding = lru.getIfPresent(key);
+    if (coding == null){
+      long entry = findStoredEntry(storedEntries, key);
+      if (entry < 0){
+        entry = findStoredEntry(storedRunEntries, key);
+      }
+      if (entry < 0){
+        return Optional.empty();
+      }
+      coding = (entry & 1) == 1;
+      lru.put(key, coding);
+    }
+    return coding ? CODING : NOT_CODING;
+  }
+
+  /**
+   * @return the entry of the key, or -1 if not found
+   */
+  private static long findStoredEntry(LongBuffer entries, final long key){
+    int low = 0;
+    int high = entries.limit() - 1;
+    while (low <= high){
+      val middle = (low + high) >>> 1;
+      val entry = entries.get(middle);
+      val middleKey = entry >>> 1;
+      if (middleKey < key){
+        low = middle + 1;
+      } else if (middleKey > key){
+        high = middle - 1;
+      } else {
+        return entry;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Only appends the decision, the periodic store is handed to the store thread
+   */
+  public void put(final long key, final boolean coding){
+    lru.put(key, coding);
+    synchronized (this){
+      if (numNewEntries == newEntries.length){
+        newEntries = Arrays.copyOf(newEntries, newEntries.length * 2);
+      }
+      newEntries[numNewEntries++] = key << 1 | (coding ? 1 : 0);
+      if (numNewEntries >= storeIntervalEntries && !storeScheduled){
+        storeScheduled = true;
+        if (storeExecutor == null){
+          storeExecutor = newWorkerExecutor("snpeff-cache-store", 1);
+        }
+        storeExecutor.execute(this::storeInBackground);
+      }
+    }
+  }
+
+  private void storeInBackground(){
+    try {
+      store();
+    } catch (Throwable t){
+      log.error("Failed to store the SnpEff coding decisions into [{}]: {}", cachePath, t.getMessage());
+    }
+  }
+
+  /**
+   * Merges the decisions put since the last store into the cache file. The decisions put meanwhile are kept for the
+   * next store
+   */
+  @SneakyThrows
+  public void store(){
+    synchronized (storeLock){
+      final long[] added;
+      synchronized (this){
+        storeScheduled = false;
+        if (numNewEntries == 0){
+          return;
+        }
+        added = Arrays.copyOf(newEntries, numNewEntries);
+        numNewEntries = 0;
+      }
+      Arrays.sort(added);
+      val merged = new long[storedRunEntries.limit() + added.length];
+      val numMerged = new AtomicInteger(0);
+      forEachMerged(storedRunEntries, added, entry -> merged[numMerged.getAndIncrement()] = entry);
+      val run = Arrays.copyOf(merged, numMerged.get());
+      storedRunEntries = LongBuffer.wrap(run);
+
+      val stored = storedEntries;
+      Files.createDirectories(cachePath.toAbsolutePath().getParent());
+      val tempPath = cachePath.resolveSibling(cachePath.getFileName() + ".tmp");
+      val numEntries = new AtomicLong(0);
+      forEachMerged(stored, run, entry -> numEntries.incrementAndGet());
+      try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))){
+        output.writeLong(MAGIC);
+        output.writeLong(databaseVersionHash);
+        output.writeLong(numEntries.get());
+        forEachMerged(stored, run, entry -> writeLong(output, entry));
+      }
+      // The file loaded is still mapped, and was only unlinked, so it does not need to be mapped again
+      Files.move(tempPath, cachePath, REPLACE_EXISTING, ATOMIC_MOVE);
+      log.info("Stored {} new SnpEff coding decisions into [{}], which has {}", added.length, cachePath,
+          numEntries.get());
+    }
+  }
+
+  /**
+   * Waits for the periodic store in progress, if any, then stores the remaining decisions
+   */
+  @SneakyThrows
+  public void close(){
+    final ExecutorService executor;
+    synchronized (this){
+      executor = storeExecutor;
+      storeExecutor = null;
+    }
+    if (executor != null){
+      executor.shutdown();
+      if (!executor.awaitTermination(STORE_TIMEOUT_MINUTES, MINUTES)){
+        log.error("Timeout after waiting {} min for the SnpEff coding decisions to be stored", STORE_TIMEOUT_MINUTES);
+      }
+    }
+    store();
+  }
+
+  /**
+   * Merges both sorted arrays of entries, keeping the stored entry of a key that was added again
+   */
+  private static void forEachMerged(LongBuffer stored, long[] added, LongConsumer consumer){
+    int s = 0;
+    int a = 0;
+    long lastKey = -1;
+    while (s < stored.limit() || a < added.length){
+      final long entry;
+      if (a == added.length || (s < stored.limit() && stored.get(s) >>> 1 <= added[a] >>> 1)){
+        entry = stored.get(s++);
+      } else {
+        entry = added[a++];
+      }
+      if (entry >>> 1 != lastKey){
+        consumer.accept(entry);
+        lastKey = entry >>> 1;
+      }
+    }
+  }
+
+  @SneakyThrows
+  private static void writeLong(DataOutputStream output, final long value){
+    output.writeLong(value);
+  }
+
+}
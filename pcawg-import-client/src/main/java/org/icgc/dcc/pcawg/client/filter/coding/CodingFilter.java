@@ -0,0 +1,42 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Predicts whether the variants of vcf lines are coding. Requests are pipelined: the prediction of a line is submitted
+ * without waiting for it, and waited for later with await. Implementations are thread safe
+ */
+public interface CodingFilter {
+
+  /**
+   * Might buffer the line, until flush, or until a prediction is waited for
+   */
+  CompletableFuture<Boolean> submit(String line);
+
+  /**
+   * Waits for a prediction returned by submit, flushing the buffered requests first if it is not ready
+   */
+  Boolean await(CompletableFuture<Boolean> prediction);
+
+  /**
+   * Sends the buffered requests
+   */
+  void flush();
+
+  /**
+   * @return false if the predictions can no longer be computed, for example because a process crashed
+   */
+  boolean isAlive();
+
+  void destroy();
+
+  /**
+   * Waits for the prediction of a single line. Use submit to keep several lines in flight
+   */
+  default Boolean isCoding(String line) {
+    final CompletableFuture<Boolean> prediction = submit(line);
+    flush();
+    return await(prediction);
+  }
+
+}
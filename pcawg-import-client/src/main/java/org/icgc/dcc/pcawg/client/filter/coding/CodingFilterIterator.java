@@ -0,0 +1,68 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Queues;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Only the coding elements of the source, in their original order. Up to windowSize elements are submitted to the
+ * CodingFilter ahead of the one being returned, so that their predictions are computed while waiting for the
+ * first one.
+ * Since the source is read ahead, the elements it returned are not all handled by the time it is asked for the next one
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class CodingFilterIterator<T> extends AbstractIterator<T> {
+
+  public static <T> Iterator<T> newCodingFilterIterator(CodingFilter codingFilter, Iterator<T> source,
+      Function<? super T, String> encoder, final int windowSize){
+    checkArgument(windowSize > 0, "The windowSize [%s] must be greater than 0", windowSize);
+    return new CodingFilterIterator<T>(codingFilter, source, encoder, windowSize);
+  }
+
+  /**
+   * Dependencies
+   */
+  @NonNull private final CodingFilter codingFilter;
+  @NonNull private final Iterator<T> source;
+  @NonNull private final Function<? super T, String> encoder;
+
+  /**
+   * Configuration
+   */
+  private final int windowSize;
+
+  /**
+   * State
+   */
+  private final Queue<T> pendingElements = Queues.newArrayDeque();
+  private final Queue<CompletableFuture<Boolean>> pendingPredictions = Queues.newArrayDeque();
+
+  @Override
+  protected T computeNext() {
+    while (true){
+      while (pendingElements.size() < windowSize && source.hasNext()){
+        val element = source.next();
+        pendingPredictions.add(codingFilter.submit(encoder.apply(element)));
+        pendingElements.add(element);
+      }
+      if (pendingElements.isEmpty()){
+        return endOfData();
+      }
+      val element = pendingElements.remove();
+      if (codingFilter.await(pendingPredictions.remove())){
+        return element;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,243 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.newWorkerExecutor;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.runAll;
+
+/**
+ * Spreads the requests over several CodingFilters, round robin, so that several SnpEff processes annotate at the
+ * same time. The predictions are waited for in the order of the requests of each caller, whatever worker computed them.
+ * A worker found dead is restarted before it gets its next request, and the requests it lost are resubmitted, up to
+ * MAX_ATTEMPTS times each. The failed requests are resubmitted in batches on a retry thread rather than by the thread
+ * failing them, which is the one reading the results of the dead worker, and the workers are flushed once per batch
+ */
+@Slf4j
+public class CodingFilterPool implements CodingFilter {
+
+  /**
+   * Constants
+   */
+  private static final int MAX_ATTEMPTS = 3;
+
+  /**
+   * Longer than the timeout of a SnpEffCodingFilter, to leave the time to restart a worker
+   */
+  private static final int PREDICTION_TIMEOUT_MINUTES = 10;
+
+  /**
+   * The first process resolves, and if needed downloads, the SnpEff database, which the others then share
+   */
+  public static CodingFilterPool newSnpEffCodingFilterPool(final int numProcesses){
+    return newCodingFilterPool(numProcesses, SnpEffCodingFilter::new);
+  }
+
+  public static CodingFilterPool newCodingFilterPool(final int numWorkers,
+      @NonNull Supplier<? extends CodingFilter> workerFactory){
+    checkArgument(numWorkers > 0, "The numWorkers [%s] must be greater than 0", numWorkers);
+    return new CodingFilterPool(numWorkers, workerFactory);
+  }
+
+  /**
+   * Dependencies
+   */
+  private final Supplier<? extends CodingFilter> workerFactory;
+
+  /**
+   * State
+   */
+  private final AtomicReferenceArray<CodingFilter> workers;
+  private final Object[] workerLocks;
+  private final AtomicLong requestCounter = new AtomicLong(0);
+  private final Queue<Retry> retries = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean retriesScheduled = new AtomicBoolean(false);
+  private final ExecutorService retryExecutor = newWorkerExecutor("coding-filter-retry", 1);
+  private volatile boolean destroyed = false;
+
+  private CodingFilterPool(final int numWorkers, Supplier<? extends CodingFilter> workerFactory){
+    this.workerFactory = workerFactory;
+    this.workers = new AtomicReferenceArray<CodingFilter>(numWorkers);
+    this.workerLocks = new Object[numWorkers];
+    for (int i = 0; i < numWorkers; i++){
+      workerLocks[i] = new Object();
+    }
+    log.info("Starting {} coding filter workers", numWorkers);
+    workers.set(0, workerFactory.get());
+    if (numWorkers > 1){
+      runAll("coding-filter-bootstrap", numWorkers - 1,
+          IntStream.range(1, numWorkers).boxed().collect(toImmutableList()),
+          i -> workers.set(i, workerFactory.get()));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Boolean> submit(String line) {
+    val prediction = new CompletableFuture<Boolean>();
+    submit(line, prediction, 1);
+    return prediction;
+  }
+
+  private void submit(String line, CompletableFuture<Boolean> prediction, final int attempt){
+    val index = (int) (requestCounter.getAndIncrement() % workers.length());
+    try {
+      getAliveWorker(index).submit(line).whenComplete((coding, t) -> {
+        if (t == null){
+          prediction.complete(coding);
+        } else {
+          retry(line, prediction, attempt, t);
+        }
+      });
+    } catch (Throwable t){
+      retry(line, prediction, attempt, t);
+    }
+  }
+
+  private void retry(String line, CompletableFuture<Boolean> prediction, final int attempt, Throwable cause){
+    if (destroyed || attempt >= MAX_ATTEMPTS){
+      prediction.completeExceptionally(cause);
+      return;
+    }
+    retries.add(new Retry(line, prediction, attempt, cause));
+    if (retriesScheduled.compareAndSet(false, true)){
+      try {
+        retryExecutor.execute(this::resubmitRetries);
+      } catch (RejectedExecutionException e){
+        // Destroyed meanwhile
+        failRetries();
+      }
+    }
+  }
+
+  /**
+   * Resubmits all the failed requests queued so far, possibly restarting their workers
+   */
+  private void resubmitRetries(){
+    retriesScheduled.set(false);
+    if (destroyed){
+      failRetries();
+      return;
+    }
+    int numResubmitted = 0;
+    Retry retry;
+    Retry lastRetry = null;
+    while ((retry = retries.poll()) != null){
+      submit(retry.line, retry.prediction, retry.attempt + 1);
+      numResubmitted++;
+      lastRetry = retry;
+    }
+    if (numResubmitted > 0){
+      log.warn("Resubmitted {} coding predictions (attempt {} failed: {})", numResubmitted, lastRetry.attempt,
+          lastRetry.cause.getMessage());
+      // The callers might already be waiting for these predictions
+      flush();
+    }
+  }
+
+  private void failRetries(){
+    Retry retry;
+    while ((retry = retries.poll()) != null){
+      retry.prediction.completeExceptionally(retry.cause);
+    }
+  }
+
+  /**
+   * Health check of the worker, restarted if its process ended
+   */
+  private CodingFilter getAliveWorker(final int index){
+    val worker = workers.get(index);
+    if (worker.isAlive() || destroyed){
+      return worker;
+    }
+    synchronized (workerLocks[index]){
+      val current = workers.get(index);
+      if (current.isAlive()){
+        return current;
+      }
+      log.warn("Restarting the coding filter worker {}, it is no longer alive", index);
+      current.destroy();
+      val restarted = workerFactory.get();
+      workers.set(index, restarted);
+      return restarted;
+    }
+  }
+
+  @Override
+  @SneakyThrows
+  public Boolean await(CompletableFuture<Boolean> prediction) {
+    if (!prediction.isDone()){
+      flush();
+    }
+    try {
+      return prediction.get(PREDICTION_TIMEOUT_MINUTES, MINUTES);
+    } catch (TimeoutException e){
+      throw new IllegalStateException(
+          String.format("Timeout after waiting %s min for a coding prediction", PREDICTION_TIMEOUT_MINUTES));
+    } catch (ExecutionException e){
+      throw e.getCause();
+    }
+  }
+
+  @Override
+  public void flush() {
+    for (int i = 0; i < workers.length(); i++){
+      workers.get(i).flush();
+    }
+  }
+
+  /**
+   * Alive as long as any worker is, since the dead ones are restarted
+   */
+  @Override
+  public boolean isAlive() {
+    for (int i = 0; i < workers.length(); i++){
+      if (workers.get(i).isAlive()){
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void destroy() {
+    destroyed = true;
+    retryExecutor.shutdown();
+    for (int i = 0; i < workers.length(); i++){
+      workers.get(i).destroy();
+    }
+    failRetries();
+  }
+
+  /**
+   * A request whose attempt failed, waiting to be resubmitted
+   */
+  @RequiredArgsConstructor
+  private static final class Retry {
+
+    private final String line;
+    private final CompletableFuture<Boolean> prediction;
+    private final int attempt;
+    private final Throwable cause;
+
+  }
+
+}
@@ -0,0 +1,231 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import lombok.Cleanup;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * The coding regions of the genome, used to reject the variants that cannot have a coding effect before asking SnpEff.
+ * Loaded either from a GTF file, like the Ensembl GRCh37.75 one the SnpEff database is built from, of which only the
+ * CDS, start_codon and stop_codon features are kept, or from a BED file of coding regions. Both may be gzipped.
+ * The regions are padded by PADDING bases on each side, then merged, and kept per contig in two sorted int arrays of
+ * starts and ends, so that a lookup is a binary search without any allocation. The contig names are normalised, so
+ * that the UCSC names like chr1 and chrM match the Ensembl names like 1 and MT the consensus VCFs use
+ */
+@Slf4j
+@RequiredArgsConstructor(access = PRIVATE)
+public final class CodingRegionIndex {
+
+  /**
+   * Constants
+   */
+  private static final Set<String> GTF_CODING_FEATURES = ImmutableSet.of("CDS", "start_codon", "stop_codon");
+  private static final int GTF_FEATURE = 2;
+  private static final int GTF_START = 3;
+  private static final int GTF_END = 4;
+  private static final String BED_EXTENSION = ".bed";
+  private static final String GZIP_EXTENSION = ".gz";
+  private static final Splitter TAB = Splitter.on('\t');
+  private static final String UCSC_CONTIG_PREFIX = "chr";
+  private static final String UCSC_MITOCHONDRIAL_CONTIG = "M";
+  private static final String MITOCHONDRIAL_CONTIG = "MT";
+
+  /**
+   * Margin around the coding regions, so that an insertion right after the last coding base, or a coding region ending
+   * a few bases off in another annotation of the same gene build, is still sent to SnpEff
+   */
+  private static final int PADDING = 3;
+
+  /**
+   * Keeps the records of a GTF or BED file that are coding regions, with 1-based and inclusive start and end
+   */
+  @SneakyThrows
+  public static CodingRegionIndex readCodingRegionIndex(@NonNull Path path){
+    checkArgument(Files.isRegularFile(path), "The coding regions file [%s] DNE", path);
+    val filename = path.getFileName().toString();
+    val isBed = filename.endsWith(BED_EXTENSION) || filename.endsWith(BED_EXTENSION + GZIP_EXTENSION);
+    val builders = Maps.<String, RegionsBuilder>newHashMap();
+    @Cleanup val reader = newReader(path);
+    String line;
+    while ((line = reader.readLine()) != null){
+      if (line.isEmpty() || line.startsWith("#") || line.startsWith("track") || line.startsWith("browser")){
+        continue;
+      }
+      val columns = TAB.splitToList(line);
+      if (isBed){
+        checkArgument(columns.size() >= 3, "The BED line [%s] of [%s] has less than 3 columns", line, path);
+        // BED intervals are 0-based and half open
+        builders.computeIfAbsent(normalizeContig(columns.get(0)), c -> new RegionsBuilder())
+            .add(Integer.parseInt(columns.get(1).trim()) + 1, Integer.parseInt(columns.get(2).trim()));
+      } else {
+        checkArgument(columns.size() > GTF_END, "The GTF line [%s] of [%s] has less than 5 columns", line, path);
+        if (GTF_CODING_FEATURES.contains(columns.get(GTF_FEATURE))){
+          builders.computeIfAbsent(normalizeContig(columns.get(0)), c -> new RegionsBuilder())
+              .add(Integer.parseInt(columns.get(GTF_START)), Integer.parseInt(columns.get(GTF_END)));
+        }
+      }
+    }
+    val index = newCodingRegionIndex(builders);
+    log.info("Loaded {} coding regions of {} contigs from [{}]", index.getNumRegions(), index.regions.size(), path);
+    return index;
+  }
+
+  /**
+   * @return the contig without its chr prefix, and MT for chrM, so only the contigs named the UCSC way are allocated
+   */
+  static String normalizeContig(@NonNull String contig){
+    if (!contig.regionMatches(true, 0, UCSC_CONTIG_PREFIX, 0, UCSC_CONTIG_PREFIX.length())){
+      return contig;
+    }
+    val name = contig.substring(UCSC_CONTIG_PREFIX.length());
+    return name.equals(UCSC_MITOCHONDRIAL_CONTIG) ? MITOCHONDRIAL_CONTIG : name;
+  }
+
+  private static BufferedReader newReader(Path path) throws IOException {
+    InputStream input = Files.newInputStream(path);
+    if (path.getFileName().toString().endsWith(GZIP_EXTENSION)){
+      input = new GZIPInputStream(input);
+    }
+    return new BufferedReader(new InputStreamReader(input, UTF_8));
+  }
+
+  private static CodingRegionIndex newCodingRegionIndex(Map<String, RegionsBuilder> builders){
+    val regions = ImmutableMap.<String, ContigRegions>builder();
+    builders.forEach((contig, builder) -> regions.put(contig, builder.build()));
+    return new CodingRegionIndex(regions.build());
+  }
+
+  /**
+   * State
+   */
+  @NonNull private final Map<String, ContigRegions> regions;
+
+  /**
+   * @return true if the bases of the reference allele of the variant overlap a coding region
+   */
+  public boolean overlaps(@NonNull ConsensusVariant variant){
+    val start = variant.getStart();
+    return overlaps(variant.getContig(), start, start + variant.getReferenceAlleleString().length() - 1);
+  }
+
+  public boolean overlaps(@NonNull String contig, final int start, final int end){
+    val contigRegions = regions.get(normalizeContig(contig));
+    return contigRegions != null && contigRegions.overlaps(start, end);
+  }
+
+  /**
+   * Fails if none of the contigs of a VCF has coding regions, since every variant of it would then be rejected as not
+   * coding, as happens when the VCF and the coding regions file are not of the same genome build
+   * @param vcfContigs the contigs of the header of the VCF, which are not checked if there are none
+   */
+  public void checkContigs(@NonNull Collection<String> vcfContigs){
+    if (vcfContigs.isEmpty()){
+      return;
+    }
+    val matching = vcfContigs.stream()
+        .map(CodingRegionIndex::normalizeContig)
+        .filter(regions::containsKey)
+        .count();
+    checkState(matching > 0, "None of the %s contigs of the VCF %s have coding regions, whose contigs are %s",
+        vcfContigs.size(), vcfContigs, regions.keySet());
+    log.debug("{} of the {} contigs of the VCF have coding regions", matching, vcfContigs.size());
+  }
+
+  public int getNumRegions(){
+    int numRegions = 0;
+    for (val contigRegions : regions.values()){
+      numRegions += contigRegions.starts.length;
+    }
+    return numRegions;
+  }
+
+  /**
+   * Sorted regions of a contig that neither overlap nor touch, so the only region that can overlap an interval is the
+   * last one starting before its end
+   */
+  @RequiredArgsConstructor(access = PRIVATE)
+  private static final class ContigRegions {
+
+    private final int[] starts;
+    private final int[] ends;
+
+    boolean overlaps(final int start, final int end){
+      int i = Arrays.binarySearch(starts, end);
+      if (i < 0){
+        i = -i - 2;
+      }
+      return i >= 0 && ends[i] >= start;
+    }
+
+  }
+
+  /**
+   * The regions of a contig as they are read, each packed in a long with its start in the high bits, so that they are
+   * sorted as primitives
+   */
+  private static final class RegionsBuilder {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] regions = new long[INITIAL_CAPACITY];
+    private int numRegions = 0;
+
+    RegionsBuilder add(final int start, final int end){
+      checkArgument(start >= 1 && start <= end, "The coding region [%s-%s] is not valid", start, end);
+      if (numRegions == regions.length){
+        regions = Arrays.copyOf(regions, regions.length * 2);
+      }
+      val paddedStart = Math.max(1, start - PADDING);
+      val paddedEnd = (int) Math.min(Integer.MAX_VALUE, (long) end + PADDING);
+      regions[numRegions++] = (long) paddedStart << 32 | paddedEnd;
+      return this;
+    }
+
+    private ContigRegions build(){
+      val sorted = Arrays.copyOf(regions, numRegions);
+      Arrays.sort(sorted);
+      val starts = new int[numRegions];
+      val ends = new int[numRegions];
+      int numMerged = 0;
+      for (val region : sorted){
+        val start = (int) (region >>> 32);
+        val end = (int) region;
+        if (numMerged > 0 && (long) start <= (long) ends[numMerged - 1] + 1){
+          ends[numMerged - 1] = Math.max(ends[numMerged - 1], end);
+        } else {
+          starts[numMerged] = start;
+          ends[numMerged] = end;
+          numMerged++;
+        }
+      }
+      return new ContigRegions(Arrays.copyOf(starts, numMerged), Arrays.copyOf(ends, numMerged));
+    }
+
+  }
+
+}
@@ -0,0 +1,133 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import lombok.NoArgsConstructor;
+import lombok.val;
+import org.icgc.dcc.release.job.annotate.model.ConsequenceType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.pcawg.client.filter.coding.ResultsHandler.CODING_TYPES;
+
+/**
+ * Decides whether the EFF field of an annotated line has a coding effect, by walking the field in place, without
+ * splitting it or parsing the effects into objects. The consequence types of the effects, like missense_variant, are
+ * matched against a table of the ConsequenceTypes indexed by length, and the scan stops at the first coding one.
+ * Nothing is allocated. An effect whose consequence type is not in the table cannot be decided, in which case the
+ * caller falls back to SnpEffectParser
+ */
+@NoArgsConstructor(access = PRIVATE)
+final class EffScanner {
+
+  private static final String INFO_EFF_FIELD = "EFF=";
+  private static final Set<ConsequenceType> CODING_TYPE_SET = EnumSet.copyOf(CODING_TYPES);
+
+  /**
+   * The ConsequenceTypes by length of their sequence ontology term, which is their lower cased name
+   */
+  private static final ConsequenceType[][] TYPES_BY_TERM_LENGTH = newTypesByTermLength();
+
+  private static ConsequenceType[][] newTypesByTermLength(){
+    int maxLength = 0;
+    for (val type : ConsequenceType.values()){
+      maxLength = Math.max(maxLength, type.name().length());
+    }
+    val typesByLength = new ConsequenceType[maxLength + 1][0];
+    for (val type : ConsequenceType.values()){
+      val length = type.name().length();
+      typesByLength[length] = Arrays.copyOf(typesByLength[length], typesByLength[length].length + 1);
+      typesByLength[length][typesByLength[length].length - 1] = type;
+    }
+    return typesByLength;
+  }
+
+  /**
+   * @return TRUE if an effect is coding, FALSE if none is, or null if an effect has an unknown consequence type and
+   * none is coding
+   */
+  static Boolean scanCoding(String line){
+    val effStart = line.indexOf(INFO_EFF_FIELD);
+    if (effStart < 0){
+      return Boolean.FALSE;
+    }
+    val length = line.length();
+    boolean undecided = false;
+    int i = effStart + INFO_EFF_FIELD.length();
+    while (i < length){
+      // The consequence types of an effect, joined by + or &, up to the opening parenthesis of its details
+      int termStart = i;
+      char c = 0;
+      while (i < length){
+        c = line.charAt(i);
+        if (c == '+' || c == '&' || c == '(' || c == ',' || c == ';' || c == '\t'){
+          val type = findType(line, termStart, i);
+          if (type == null){
+            undecided = true;
+          } else if (CODING_TYPE_SET.contains(type)){
+            return Boolean.TRUE;
+          }
+          if (c != '+' && c != '&'){
+            break;
+          }
+          termStart = i + 1;
+        }
+        i++;
+      }
+      if (i == length){
+        val type = findType(line, termStart, i);
+        if (type == null){
+          undecided = true;
+        } else if (CODING_TYPE_SET.contains(type)){
+          return Boolean.TRUE;
+        }
+        break;
+      }
+      if (c == '('){
+        i = skipDetails(line, i);
+        if (i == length){
+          break;
+        }
+        c = line.charAt(i);
+      }
+      if (c != ','){
+        // The end of the EFF field
+        break;
+      }
+      i++;
+    }
+    return undecided ? null : Boolean.FALSE;
+  }
+
+  /**
+   * @return the index of the character after the closing parenthesis of the details starting at openIndex
+   */
+  private static int skipDetails(String line, final int openIndex){
+    val length = line.length();
+    int depth = 0;
+    for (int i = openIndex; i < length; i++){
+      val c = line.charAt(i);
+      if (c == '('){
+        depth++;
+      } else if (c == ')' && --depth == 0){
+        return i + 1;
+      }
+    }
+    return length;
+  }
+
+  private static ConsequenceType findType(String line, final int start, final int end){
+    val termLength = end - start;
+    if (termLength <= 0 || termLength >= TYPES_BY_TERM_LENGTH.length){
+      return null;
+    }
+    for (val type : TYPES_BY_TERM_LENGTH[termLength]){
+      if (line.regionMatches(true, start, type.name(), 0, termLength)){
+        return type;
+      }
+    }
+    return null;
+  }
+
+}
@@ -0,0 +1,221 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.base.Splitter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.icgc.dcc.pcawg.client.filter.coding.ResultsHandler.CODING_TERMS;
+import static org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter.newSnpEffProperties;
+import static org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter.resolveDataDir;
+import static org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter.resolveJar;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.newWorkerExecutor;
+
+/**
+ * Predicts whether variants are coding with SnpEff loaded in this JVM, instead of a SnpEff process fed through a pipe.
+ * The database is loaded once, and the predictions of the lines are computed on numThreads threads, straight from the
+ * effects of the predictor, without printing and parsing the annotated lines.
+ * The SnpEff jar is only resolved at runtime, so its classes are bound by reflection, once, when the filter is
+ * created. Only the API of SnpEff 3.6 is supported: the filter fails to start with any other version.
+ * The predictor is only read once its forest is built, so it is shared by the threads. A VcfEntry keeps a reference
+ * to the VcfFileIterator it was parsed for, which is not thread safe, so each thread parses with its own iterator
+ */
+@Slf4j
+public class InProcessSnpEffCodingFilter implements CodingFilter {
+
+  /**
+   * Constants
+   */
+  private static final String SNPEFF_PACKAGE = "ca.mcgill.mcb.pcingo.snpEffect";
+  private static final String CONFIG_CLASS = SNPEFF_PACKAGE + ".config.Config";
+  private static final String VCF_FILE_ITERATOR_CLASS = "ca.mcgill.mcb.pcingo.fileIterator.VcfFileIterator";
+  private static final String VCF_ENTRY_CLASS = "ca.mcgill.mcb.pcingo.vcf.VcfEntry";
+  private static final String CHANGE_EFFECT_CLASS = SNPEFF_PACKAGE + ".ChangeEffect";
+  private static final String SNPEFF_CONFIG_FILENAME = "snpEff.config";
+  private static final String GENOME_VERSION = "GRCh37.75";
+  private static final int PREDICTION_TIMEOUT_MINUTES = 5;
+  private static final Splitter EFFECT_TERM_SPLITTER = Splitter.on('&');
+
+  public static InProcessSnpEffCodingFilter newInProcessSnpEffCodingFilter(final int numThreads){
+    checkArgument(numThreads > 0, "The numThreads [%s] must be greater than 0", numThreads);
+    return new InProcessSnpEffCodingFilter(numThreads);
+  }
+
+  /**
+   * Dependencies
+   */
+  private final URLClassLoader classLoader;
+  private final Object predictor;
+  private final Object genome;
+  private final ThreadLocal<Object> vcfFileIterators = ThreadLocal.withInitial(this::newVcfFileIterator);
+
+  /**
+   * SnpEff API
+   */
+  private final Constructor<?> vcfFileIteratorConstructor;
+  private final Method setGenomeMethod;
+  private final Constructor<?> vcfEntryConstructor;
+  private final Method seqChangesMethod;
+  private final Method seqChangeEffectMethod;
+  private final Method effectTypeStringMethod;
+
+  /**
+   * State
+   */
+  private final ExecutorService executor;
+  private volatile boolean alive = true;
+
+  @SneakyThrows
+  private InProcessSnpEffCodingFilter(final int numThreads){
+    log.info("*** *** Loading SnpEff in process *** ***");
+    val properties = newSnpEffProperties();
+    val jar = resolveJar(properties);
+    val dataDir = resolveDataDir(properties);
+    this.classLoader = new URLClassLoader(new URL[] { jar.toURI().toURL() }, getClass().getClassLoader());
+
+    val configFile = new File(jar.getParentFile(), SNPEFF_CONFIG_FILENAME);
+    val config = newConfig(configFile, dataDir);
+    this.predictor = invoke(config, "loadSnpEffectPredictor");
+    invoke(config, "setSnpEffectPredictor", predictor);
+    invoke(predictor, "buildForest");
+
+    this.genome = invoke(config, "getGenome");
+
+    val vcfFileIteratorClass = classLoader.loadClass(VCF_FILE_ITERATOR_CLASS);
+    this.vcfFileIteratorConstructor = vcfFileIteratorClass.getConstructor(BufferedReader.class);
+    this.setGenomeMethod = findMethod(vcfFileIteratorClass, "setGenome", 1);
+    val vcfEntryClass = classLoader.loadClass(VCF_ENTRY_CLASS);
+    this.vcfEntryConstructor = vcfEntryClass.getConstructor(vcfFileIteratorClass, String.class, int.class,
+        boolean.class);
+    this.seqChangesMethod = vcfEntryClass.getMethod("seqChanges");
+    this.seqChangeEffectMethod = findMethod(predictor.getClass(), "seqChangeEffect", 1);
+    this.effectTypeStringMethod = classLoader.loadClass(CHANGE_EFFECT_CLASS)
+        .getMethod("getEffectTypeString", boolean.class);
+    this.executor = newWorkerExecutor("snpeff-in-process", numThreads);
+    log.info("Loaded the SnpEff database [{}] from [{}], predicting on {} threads", properties.getDatabaseVersion(),
+        dataDir, numThreads);
+  }
+
+  /**
+   * The data dir is given to the Config when it accepts one, otherwise the one of the config file is used
+   */
+  private Object newConfig(File configFile, File dataDir) throws ReflectiveOperationException {
+    val configClass = classLoader.loadClass(CONFIG_CLASS);
+    try {
+      return configClass.getConstructor(String.class, String.class, String.class)
+          .newInstance(GENOME_VERSION, configFile.getPath(), dataDir.getPath());
+    } catch (NoSuchMethodException e){
+      return configClass.getConstructor(String.class, String.class)
+          .newInstance(GENOME_VERSION, configFile.getPath());
+    }
+  }
+
+  /**
+   * Iterator over no line, only used to parse the lines of a thread, with the genome of the predictor
+   */
+  @SneakyThrows
+  private Object newVcfFileIterator(){
+    val vcfFileIterator = vcfFileIteratorConstructor.newInstance(new BufferedReader(new StringReader("")));
+    setGenomeMethod.invoke(vcfFileIterator, genome);
+    return vcfFileIterator;
+  }
+
+  private static Method findMethod(Class<?> type, String name, final int numParameters)
+      throws NoSuchMethodException {
+    for (val method : type.getMethods()){
+      if (method.getName().equals(name) && method.getParameterCount() == numParameters){
+        return method;
+      }
+    }
+    throw new NoSuchMethodException(String.format("%s.%s with %s parameters", type.getName(), name, numParameters));
+  }
+
+  private static Object invoke(Object target, String name, Object ... args) throws ReflectiveOperationException {
+    return findMethod(target.getClass(), name, args.length).invoke(target, args);
+  }
+
+  /**
+   * The line is parsed by SnpEff itself, so that its alleles are normalized exactly as by the SnpEff process
+   */
+  @SneakyThrows
+  private boolean predict(String line){
+    try {
+      val vcfEntry = vcfEntryConstructor.newInstance(vcfFileIterators.get(), line, 0, true);
+      for (val seqChange : (Iterable<?>) seqChangesMethod.invoke(vcfEntry)){
+        for (val effect : (Iterable<?>) seqChangeEffectMethod.invoke(predictor, seqChange)){
+          if (isCodingTerm((String) effectTypeStringMethod.invoke(effect, true))){
+            return true;
+          }
+        }
+      }
+      return false;
+    } catch (InvocationTargetException e){
+      throw e.getCause();
+    }
+  }
+
+  private static boolean isCodingTerm(String effectTypeString){
+    for (val term : EFFECT_TERM_SPLITTER.split(effectTypeString)){
+      if (CODING_TERMS.contains(term.toLowerCase())){
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public CompletableFuture<Boolean> submit(String line) {
+    checkState(alive, "The in process SnpEff coding filter was destroyed");
+    return CompletableFuture.supplyAsync(() -> predict(line), executor);
+  }
+
+  @Override
+  @SneakyThrows
+  public Boolean await(CompletableFuture<Boolean> prediction) {
+    try {
+      return prediction.get(PREDICTION_TIMEOUT_MINUTES, MINUTES);
+    } catch (TimeoutException e){
+      throw new IllegalStateException(
+          String.format("Timeout after waiting %s min for a prediction of SnpEff", PREDICTION_TIMEOUT_MINUTES));
+    } catch (ExecutionException e){
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Nothing is buffered
+   */
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public boolean isAlive() {
+    return alive;
+  }
+
+  @Override
+  @SneakyThrows
+  public void destroy() {
+    alive = false;
+    executor.shutdownNow();
+    classLoader.close();
+  }
+
+}
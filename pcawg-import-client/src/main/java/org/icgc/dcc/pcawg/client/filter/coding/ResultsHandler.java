@@ -13,20 +13,27 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.regex.Pattern;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
-import static java.util.regex.Pattern.compile;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
 import static org.icgc.dcc.release.job.annotate.model.ConsequenceType.*;
 
+/**
+ * Reads the annotated lines of the SnpEff process, and completes the pending predictions in the order their lines were
+ * submitted, since SnpEff answers its input lines in order. When the process ends, the predictions still pending are
+ * failed, so that no caller waits for them until the timeout
+ */
 @Slf4j
 public class ResultsHandler implements Runnable {
 
-  private static final Pattern SKIP_ANNOTATION_PATTERN = compile("^#|Reading cancer samples pedigree from VCF header");
-  private static final List<ConsequenceType> CODING_TYPES = ImmutableList.of(
+  private static final String HEADER_PREFIX = "#";
+  private static final String PEDIGREE_MESSAGE = "Reading cancer samples pedigree from VCF header";
+  static final List<ConsequenceType> CODING_TYPES = ImmutableList.of(
       FRAMESHIFT_VARIANT,
       MISSENSE_VARIANT,
       INITIATOR_CODON_VARIANT,
@@ -43,6 +50,13 @@ public class ResultsHandler implements Runnable {
       STOP_RETAINED_VARIANT
   );
 
+  /**
+   * The sequence ontology terms of the CODING_TYPES, like missense_variant
+   */
+  static final Set<String> CODING_TERMS = CODING_TYPES.stream()
+      .map(t -> t.name().toLowerCase())
+      .collect(toImmutableSet());
+
   /**
    * Constants
    */
@@ -58,28 +72,55 @@ public class ResultsHandler implements Runnable {
    * State.
    */
   @NonNull
-  private final BlockingQueue<Boolean> queue;
+  private final Queue<CompletableFuture<Boolean>> pendingPredictions;
 
-  public ResultsHandler(@NonNull InputStream input, @NonNull BlockingQueue<Boolean> queue, String geneBuildVersion) {
+  public ResultsHandler(@NonNull InputStream input, @NonNull Queue<CompletableFuture<Boolean>> pendingPredictions,
+      String geneBuildVersion) {
     this.input = input;
-    this.queue = queue;
+    this.pendingPredictions = pendingPredictions;
   }
 
   @Override
   @SneakyThrows
   public void run() {
-    val reader = new BufferedReader(new InputStreamReader(input, UTF_8));
-    String line;
-    while ((line = reader.readLine()) != null) {
-      if (isSkipLine(line)) {
-        continue;
+    try {
+      val reader = new BufferedReader(new InputStreamReader(input, UTF_8));
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (isSkipLine(line)) {
+          continue;
+        }
+
+        val prediction = pendingPredictions.poll();
+        if (prediction == null) {
+          log.warn("Ignoring the SnpEff output line without a pending request: {}", line);
+          continue;
+        }
+        prediction.complete(isCoding(line));
       }
+      failPendingPredictions(new IllegalStateException("The SnpEff process closed its output"));
+    } catch (Throwable t) {
+      failPendingPredictions(t);
+      throw t;
+    }
+  }
 
-      queue.put(isCoding(line));
+  private void failPendingPredictions(Throwable cause) {
+    CompletableFuture<Boolean> prediction;
+    while ((prediction = pendingPredictions.poll()) != null) {
+      prediction.completeExceptionally(cause);
     }
   }
 
-  private boolean isCoding(String line) {
+  /**
+   * Decided by the EffScanner, unless the line has an effect it does not know
+   */
+  private static boolean isCoding(String line) {
+    val coding = EffScanner.scanCoding(line);
+    return coding != null ? coding : parseCoding(line);
+  }
+
+  static boolean parseCoding(String line) {
     String[] lineSplit = line.split(INFO_EFF_FIELD);
     if (lineSplit.length < 2) {
       return false;
@@ -96,9 +137,7 @@ public class ResultsHandler implements Runnable {
   }
 
   private static boolean isSkipLine(String line) {
-    val matcher = SKIP_ANNOTATION_PATTERN.matcher(line);
-
-    return matcher.find();
+    return line.startsWith(HEADER_PREFIX) || line.contains(PEDIGREE_MESSAGE);
   }
 
 }
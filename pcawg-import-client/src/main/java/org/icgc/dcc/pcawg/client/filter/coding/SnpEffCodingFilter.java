@@ -16,70 +16,164 @@ import org.icgc.dcc.release.job.annotate.snpeff.SnpEffLogHandler;
 import org.icgc.dcc.release.job.annotate.snpeff.SnpEffPredictor;
 import org.icgc.dcc.release.job.annotate.snpeff.SnpEffProcess;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.PrintStream;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeoutException;
 
+import static com.google.common.base.Preconditions.checkState;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MINUTES;
 
+/**
+ * Predicts whether variants are coding with a SnpEff process, fed through its stdin and answering on its stdout.
+ * Requests are pipelined: submit writes the line of a variant to a buffer and returns the future of its prediction,
+ * without waiting for it, so that many variants are in flight and SnpEff is never idle waiting for the next line.
+ * The buffer is flushed every FLUSH_INTERVAL_REQUESTS requests, or when a caller waits for a prediction that is not
+ * ready. At most MAX_IN_FLIGHT_REQUESTS requests are pending at any time, bounding the memory of both sides of the pipe
+ */
 @Slf4j
-public class SnpEffCodingFilter {
+public class SnpEffCodingFilter implements CodingFilter {
 
   /**
    * Configuration
    */
-  private SnpEffProperties properties = new SnpEffProperties();
+  private SnpEffProperties properties = newSnpEffProperties();
+
+  public static final String SNPEFF_DATABASE_VERSION = "3.6c-GRCh37.75";
 
   /**
    * Constants
    */
   private static final int PREDICTION_TIMEOUT_MINUTES = 5;
+  static final int MAX_IN_FLIGHT_REQUESTS = 4096;
+  private static final int FLUSH_INTERVAL_REQUESTS = 256;
+  private static final int REQUEST_BUFFER_SIZE = 1 << 16;
 
   /**
    * State.
    */
-  private BlockingQueue<Boolean> queue = new ArrayBlockingQueue<>(100);
+  private final Queue<CompletableFuture<Boolean>> pendingPredictions = new ConcurrentLinkedQueue<>();
+  private final Semaphore inFlightPermits = new Semaphore(MAX_IN_FLIGHT_REQUESTS);
   private SnpEffProcess process;
   private ExecutorService executor = Executors.newFixedThreadPool(2);
   private PrintStream stream;
+  private int unflushedRequests = 0;
 
   @SneakyThrows
   public SnpEffCodingFilter() {
     log.info("*** *** Bootstrapping SnpEff *** ***");
 
-    setProperties();
-    process = new SnpEffProcess(this.resolveJar(), this.resolveJava(), this.resolveDataDir(), this.properties.getDatabaseVersion());
-    stream = new PrintStream(process.getOutputStream(), false, UTF_8.name());
+    process = new SnpEffProcess(resolveJar(properties), this.resolveJava(), resolveDataDir(properties), this.properties.getDatabaseVersion());
+    stream = new PrintStream(new BufferedOutputStream(process.getOutputStream(), REQUEST_BUFFER_SIZE), false,
+        UTF_8.name());
 
-    executor.execute(new ResultsHandler(process.getInputStream(), queue, properties.getGeneBuildVersion()));
+    executor.execute(new ResultsHandler(process.getInputStream(), pendingPredictions,
+        properties.getGeneBuildVersion()));
     executor.execute(new SnpEffLogHandler(process.getErrorStream()));
     initializeSnpEff();
   }
 
+  /**
+   * Writes the line to SnpEff without waiting for its prediction. Thread safe: the line and its prediction are
+   * matched purely by order, so they are queued together under the lock of the stream.
+   * Blocks while MAX_IN_FLIGHT_REQUESTS predictions are pending
+   */
+  @Override
   @SneakyThrows
-  public Boolean isCoding(String line) {
-    stream.println(line);
-    stream.flush();
+  public CompletableFuture<Boolean> submit(String line) {
+    checkAlive();
+    if (!inFlightPermits.tryAcquire()) {
+      // The pending requests might still be buffered, and would never be answered
+      flush();
+      if (!inFlightPermits.tryAcquire(PREDICTION_TIMEOUT_MINUTES, MINUTES)) {
+        throw newTimeoutException();
+      }
+    }
+    val prediction = new CompletableFuture<Boolean>();
+    prediction.whenComplete((coding, t) -> inFlightPermits.release());
+    boolean queued = false;
+    try {
+      synchronized (stream) {
+        checkAlive();
+        pendingPredictions.add(prediction);
+        queued = true;
+        stream.println(line);
+        if (++unflushedRequests >= FLUSH_INTERVAL_REQUESTS) {
+          flushStream();
+        }
+      }
+    } catch (RuntimeException e) {
+      // Not queued, so never completed by the ResultsHandler
+      if (!queued) {
+        inFlightPermits.release();
+      }
+      throw e;
+    }
+    return prediction;
+  }
 
-    val predictions = queue.poll(PREDICTION_TIMEOUT_MINUTES, MINUTES);
-    val timeout = predictions == null;
-    if (timeout) {
-      val exitCode = process.isAlive() ? process.exitValue() : "<still running!>";
-      throw new IllegalStateException(
-          String.format("Timeout after waiting %s min for next prediction from SnpEff process. Exit code = %s",
-              PREDICTION_TIMEOUT_MINUTES,
-              exitCode));
+  private void checkAlive() {
+    checkState(process.isAlive(), "The SnpEff process ended. Exit code = %s", getExitCode());
+  }
+
+  @Override
+  public void flush() {
+    synchronized (stream) {
+      flushStream();
+    }
+  }
+
+  @Override
+  @SneakyThrows
+  public Boolean await(CompletableFuture<Boolean> prediction) {
+    if (!prediction.isDone()) {
+      flush();
     }
+    try {
+      return prediction.get(PREDICTION_TIMEOUT_MINUTES, MINUTES);
+    } catch (TimeoutException e) {
+      throw newTimeoutException();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private void flushStream() {
+    stream.flush();
+    unflushedRequests = 0;
+  }
+
+  private IllegalStateException newTimeoutException() {
+    return new IllegalStateException(
+        String.format("Timeout after waiting %s min for next prediction from SnpEff process. Exit code = %s",
+            PREDICTION_TIMEOUT_MINUTES,
+            getExitCode()));
+  }
 
-    return predictions;
+  private Object getExitCode() {
+    return process.isAlive() ? "<still running!>" : process.exitValue();
   }
 
+  @Override
+  public boolean isAlive() {
+    return process.isAlive();
+  }
+
+  /**
+   * The pending predictions fail once the ResultsHandler reads the end of the output of the process
+   */
+  @Override
   public void destroy() {
     process.destroy();
+    executor.shutdown();
   }
 
   @SneakyThrows
@@ -104,13 +198,16 @@ public class SnpEffCodingFilter {
     return resolver.resolve();
   }
 
-  private File resolveJar() {
-    SnpEffJarResolver resolver = new SnpEffJarResolver(this.properties.getResourceDir(), this.properties.getVersion());
+  static File resolveJar(SnpEffProperties properties) {
+    SnpEffJarResolver resolver = new SnpEffJarResolver(properties.getResourceDir(), properties.getVersion());
     return resolver.resolve();
   }
 
-  private File resolveDataDir() {
-    SnpEffDatabaseResolver resolver = new SnpEffDatabaseResolver(this.properties.getResourceDir(), this.properties.getResourceUrl(), this.properties.getDatabaseVersion());
+  /**
+   * Downloads the database if it is not in the resource dir yet
+   */
+  static File resolveDataDir(SnpEffProperties properties) {
+    SnpEffDatabaseResolver resolver = new SnpEffDatabaseResolver(properties.getResourceDir(), properties.getResourceUrl(), properties.getDatabaseVersion());
     return resolver.resolve();
   }
 
@@ -125,14 +222,16 @@ public class SnpEffCodingFilter {
         ImmutableList.of("Patient_01_Germline", "Patient_01_Somatic"));
   }
 
-  private void setProperties() {
-    properties.setDatabaseVersion("3.6c-GRCh37.75");
+  static SnpEffProperties newSnpEffProperties() {
+    val properties = new SnpEffProperties();
+    properties.setDatabaseVersion(SNPEFF_DATABASE_VERSION);
     properties.setGeneBuildVersion("75");
     properties.setMaxFileSizeMb(512);
     properties.setReferenceGenomeVersion("GRCh37.75.v1");
     properties.setResourceDir(new File("/tmp/dcc-release"));
     properties.setResourceUrl("https://artifacts.oicr.on.ca/artifactory/simple/dcc-dependencies/org/icgc/dcc");
     properties.setVersion("3.6c");
+    return properties;
   }
 
 }
@@ -0,0 +1,18 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+/**
+ * How SnpEff predicts the coding variants
+ */
+public enum SnpEffMode {
+
+  /**
+   * SnpEff processes, fed through pipes
+   */
+  PROCESS,
+
+  /**
+   * SnpEff loaded in the JVM of the importer, see InProcessSnpEffCodingFilter
+   */
+  IN_PROCESS;
+
+}
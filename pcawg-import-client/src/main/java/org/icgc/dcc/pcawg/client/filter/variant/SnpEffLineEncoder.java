@@ -0,0 +1,36 @@
+package org.icgc.dcc.pcawg.client.filter.variant;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Encodes variants as the shortest vcf lines SnpEff predicts the effects of: the CHROM, POS, ID, REF and ALT columns,
+ * followed by missing QUAL, FILTER and INFO columns. The INFO and sample columns of the records are never needed by
+ * SnpEff, so they are neither encoded nor written to its pipe.
+ * The lines are built in a reused buffer, so an encoder must not be shared by threads
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class SnpEffLineEncoder {
+
+  private static final String MISSING_COLUMNS = "\t.\t.\t.";
+  private static final int INITIAL_CAPACITY = 256;
+
+  public static SnpEffLineEncoder newSnpEffLineEncoder(){
+    return new SnpEffLineEncoder();
+  }
+
+  /**
+   * State
+   */
+  private final StringBuilder builder = new StringBuilder(INITIAL_CAPACITY);
+
+  public String encode(@NonNull ConsensusVariant variant){
+    builder.setLength(0);
+    variant.appendVariantColumns(builder);
+    return builder.append(MISSING_COLUMNS).toString();
+  }
+
+}
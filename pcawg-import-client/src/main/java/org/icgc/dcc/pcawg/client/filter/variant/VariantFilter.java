@@ -1,40 +1,57 @@
 package org.icgc.dcc.pcawg.client.filter.variant;
 
-import htsjdk.variant.variantcontext.VariantContext;
-import htsjdk.variant.vcf.VCFEncoder;
-import lombok.NonNull;
+import com.google.common.collect.Iterators;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
-import org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter;
+import org.icgc.dcc.pcawg.client.filter.coding.CodingFilter;
+import org.icgc.dcc.pcawg.client.filter.coding.CodingRegionIndex;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingFilterIterator.newCodingFilterIterator;
+import static org.icgc.dcc.pcawg.client.filter.variant.SnpEffLineEncoder.newSnpEffLineEncoder;
 
 @RequiredArgsConstructor
 @Slf4j
 public class VariantFilter {
 
-  @NonNull private final VCFEncoder encoder;
-  private final SnpEffCodingFilter snpEffCodingFilter;
+  private final CodingFilter snpEffCodingFilter;
+
+  /**
+   * If not null, the variants outside of its coding regions are rejected without asking SnpEff
+   */
+  private final CodingRegionIndex codingRegionIndex;
   private final boolean isUsProject;
   private final boolean bypassTcgaFiltering;
   private final boolean bypassNoiseFiltering;
 
-  public boolean passedAllFilters(VariantContext variantContext){
-    return passedNoiseFilter(variantContext) && passedTcgaFilter(variantContext);
+  /**
+   * Only used by the thread filtering the variants
+   */
+  private final SnpEffLineEncoder encoder = newSnpEffLineEncoder();
+
+  public boolean passedAllFilters(ConsensusVariant variant){
+    return passedNoiseFilter(variant) && passedTcgaFilter(variant);
   }
 
-  public boolean notPassedAllFilters(VariantContext variantContext){
-    return ! passedAllFilters(variantContext);
+  public boolean notPassedAllFilters(ConsensusVariant variant){
+    return ! passedAllFilters(variant);
   }
 
-  public boolean passedTcgaFilter(VariantContext variantContext){
+  public boolean passedTcgaFilter(ConsensusVariant variant){
     if (bypassTcgaFiltering){
       return true;
     } else if (isUsProject){
       if (snpEffCodingFilter == null){
         log.error("SnpEffCodingFilter is null but not expecting null");
         return false;
-      }else {
-        val variantString = encoder.encode(variantContext);
+      } else if (!isCodingCandidate(variant)){
+        return false;
+      } else {
+        val variantString = encoder.encode(variant);
         return snpEffCodingFilter.isCoding(variantString);
       }
     } else {
@@ -42,11 +59,37 @@ public class VariantFilter {
     }
   }
 
-  public boolean passedNoiseFilter(VariantContext variantContext){
+  /**
+   * Same as filtering the variants with passedTcgaFilter, but the SnpEff predictions of up to windowSize variants are
+   * in flight at once, so the variants are read ahead of the ones returned
+   */
+  public Iterator<ConsensusVariant> passedTcgaFilter(Iterator<ConsensusVariant> variants, final int windowSize){
+    if (bypassTcgaFiltering || !isUsProject || snpEffCodingFilter == null){
+      return Iterators.filter(variants, this::passedTcgaFilter);
+    }
+    return newCodingFilterIterator(snpEffCodingFilter, Iterators.filter(variants, this::isCodingCandidate),
+        encoder::encode, windowSize);
+  }
+
+  /**
+   * Fails if the variants of a VCF with these contigs would all be rejected by the coding regions, see
+   * CodingRegionIndex.checkContigs
+   */
+  public void checkContigs(Collection<String> vcfContigs){
+    if (!bypassTcgaFiltering && isUsProject && codingRegionIndex != null){
+      codingRegionIndex.checkContigs(vcfContigs);
+    }
+  }
+
+  private boolean isCodingCandidate(ConsensusVariant variant){
+    return codingRegionIndex == null || codingRegionIndex.overlaps(variant);
+  }
+
+  public boolean passedNoiseFilter(ConsensusVariant variant){
     if (bypassNoiseFiltering) {
       return true;
     } else {
-      return variantContext.isNotFiltered();
+      return variant.isNotFiltered();
     }
   }
 
@@ -1,55 +1,81 @@
 package org.icgc.dcc.pcawg.client.filter.variant;
 
-import htsjdk.variant.vcf.VCFEncoder;
-import htsjdk.variant.vcf.VCFFileReader;
-import htsjdk.variant.vcf.VCFHeader;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.val;
+import org.icgc.dcc.pcawg.client.filter.coding.CodingFilter;
+import org.icgc.dcc.pcawg.client.filter.coding.CodingRegionIndex;
 import org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter;
+import org.icgc.dcc.pcawg.client.filter.coding.SnpEffMode;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
 
 import static lombok.AccessLevel.PRIVATE;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFEncoder;
+import static org.icgc.dcc.pcawg.client.filter.coding.CachedCodingFilter.newCachedCodingFilter;
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingDecisionCache.newCodingDecisionCache;
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingFilterPool.newSnpEffCodingFilterPool;
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingRegionIndex.readCodingRegionIndex;
+import static org.icgc.dcc.pcawg.client.filter.coding.InProcessSnpEffCodingFilter.newInProcessSnpEffCodingFilter;
+import static org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter.SNPEFF_DATABASE_VERSION;
 
 @RequiredArgsConstructor(access = PRIVATE)
 @Getter
 public class VariantFilterFactory implements Closeable{
 
   public static final VariantFilterFactory newVariantFilterFactory(final boolean bypassTcgaFiltering, final boolean bypassNoiseFiltering){
-    SnpEffCodingFilter snpEffCodingFilter = null;
+    return newVariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering, SnpEffMode.PROCESS, 1, Optional.empty(),
+        Optional.empty());
+  }
+
+  /**
+   * @param snpEffProcesses number of SnpEff processes the coding predictions are spread over, or of threads in the
+   * IN_PROCESS snpEffMode
+   * @param codingDecisionCacheDir if present, the coding predictions are cached across runs in this directory
+   * @param codingRegionsFile if present, the GTF or BED file of the coding regions outside of which the variants are
+   * rejected without asking SnpEff
+   */
+  public static final VariantFilterFactory newVariantFilterFactory(final boolean bypassTcgaFiltering, final boolean bypassNoiseFiltering,
+      SnpEffMode snpEffMode, final int snpEffProcesses, Optional<Path> codingDecisionCacheDir,
+      Optional<Path> codingRegionsFile){
+    CodingFilter snpEffCodingFilter = null;
+    CodingRegionIndex codingRegionIndex = null;
     if (!bypassTcgaFiltering){
-      snpEffCodingFilter = new SnpEffCodingFilter();
+      if (codingRegionsFile.isPresent()){
+        codingRegionIndex = readCodingRegionIndex(codingRegionsFile.get());
+      }
+      if (snpEffMode == SnpEffMode.IN_PROCESS){
+        snpEffCodingFilter = newInProcessSnpEffCodingFilter(snpEffProcesses);
+      } else {
+        snpEffCodingFilter = snpEffProcesses > 1 ? newSnpEffCodingFilterPool(snpEffProcesses) : new SnpEffCodingFilter();
+      }
+      if (codingDecisionCacheDir.isPresent()){
+        snpEffCodingFilter = newCachedCodingFilter(snpEffCodingFilter,
+            newCodingDecisionCache(codingDecisionCacheDir.get(), SNPEFF_DATABASE_VERSION));
+      }
     }
-    return new VariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering, snpEffCodingFilter);
+    return new VariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering, snpEffCodingFilter, codingRegionIndex);
   }
 
-  public static final VariantFilterFactory newVariantFilterFactory(SnpEffCodingFilter snpEffCodingFilter, final boolean bypassTcgaFiltering, final boolean bypassNoiseFiltering){
-    return new VariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering, snpEffCodingFilter);
+  public static final VariantFilterFactory newVariantFilterFactory(CodingFilter snpEffCodingFilter, final boolean bypassTcgaFiltering, final boolean bypassNoiseFiltering){
+    return new VariantFilterFactory(bypassTcgaFiltering, bypassNoiseFiltering, snpEffCodingFilter, null);
   }
 
   private final boolean bypassTcgaFiltering;
   private final boolean bypassNoiseFiltering;
-  private final SnpEffCodingFilter snpEffCodingFilter;
-
-  public VariantFilter createVariantFilter(VCFHeader vcfHeader, final boolean isUsProject){
-    val vcfEncoder = newDefaultVCFEncoder(vcfHeader);
-    return createVariantFilter(vcfEncoder, isUsProject);
-  }
-
-  public VariantFilter createVariantFilter(VCFFileReader vcfFileReader, final boolean isUsProject){
-    val vcfEncoder = newDefaultVCFEncoder(vcfFileReader);
-    return createVariantFilter(vcfEncoder, isUsProject);
-  }
+  private final CodingFilter snpEffCodingFilter;
+  private final CodingRegionIndex codingRegionIndex;
 
-  public VariantFilter createVariantFilter(VCFEncoder vcfEncoder, final boolean isUsProject){
-    return new VariantFilter(vcfEncoder,snpEffCodingFilter,isUsProject,bypassTcgaFiltering, bypassNoiseFiltering);
+  /**
+   * The variants are encoded for SnpEff with a SnpEffLineEncoder, so the header of the vcf is not needed
+   */
+  public VariantFilter createVariantFilter(final boolean isUsProject){
+    return createVariantFilter(snpEffCodingFilter, isUsProject);
   }
 
-  public VariantFilter createVariantFilter(SnpEffCodingFilter snpEffCodingFilter, VCFEncoder vcfEncoder, final boolean isUsProject){
-    return new VariantFilter(vcfEncoder,snpEffCodingFilter,isUsProject,bypassTcgaFiltering, bypassNoiseFiltering);
+  public VariantFilter createVariantFilter(CodingFilter snpEffCodingFilter, final boolean isUsProject){
+    return new VariantFilter(snpEffCodingFilter,codingRegionIndex,isUsProject,bypassTcgaFiltering, bypassNoiseFiltering);
   }
 
   @Override public void close() throws IOException {
@@ -5,6 +5,7 @@ import lombok.NonNull;
 import lombok.val;
 import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -12,7 +13,7 @@ import java.nio.file.Path;
 
 import static com.google.common.base.Preconditions.checkState;
 
-public interface Storage {
+public interface Storage extends Closeable {
 
   static String calcMd5Sum(@NonNull Path file) throws IOException {
     checkState(file.toFile().isFile(), "The input path [%s] is not a file", file);
@@ -26,4 +27,13 @@ public interface Storage {
 
   File getFile(@NonNull PortalMetadata portalMetadata);
 
+  /**
+   * Called once the caller is done with a file returned by getFile. Implementations that hand out
+   * temporary files can reclaim them here
+   */
+  default void release(@NonNull File file){ }
+
+  @Override
+  default void close() { }
+
 }
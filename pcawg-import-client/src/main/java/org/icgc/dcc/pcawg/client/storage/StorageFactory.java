@@ -4,11 +4,14 @@ import lombok.Builder;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
 
 import java.nio.file.Path;
+import java.util.List;
 
 import static org.icgc.dcc.pcawg.client.storage.impl.LocalStorage.newLocalStorage;
 import static org.icgc.dcc.pcawg.client.storage.impl.PortalStorage.newPortalStorage;
+import static org.icgc.dcc.pcawg.client.storage.impl.PrefetchingStorage.newPrefetchingStorage;
 
 @RequiredArgsConstructor
 @Builder
@@ -19,6 +22,8 @@ public class StorageFactory {
   private final boolean bypassMD5Check;
   @NonNull private final String token;
   private final boolean persistVcfDownloads;
+  private final int prefetchDepth;
+  private final long prefetchDiskBudgetBytes;
 
   public Storage getStorage(String dccProjectCode){
     if(useCollab){
@@ -29,5 +34,17 @@ public class StorageFactory {
     }
   }
 
+  /**
+   * Same as getStorage, but when prefetching is enabled and files are downloaded, the next prefetchDepth files of
+   * portalMetadatas are downloaded in the background. The returned Storage must be closed
+   */
+  public Storage getStorage(String dccProjectCode, List<PortalMetadata> portalMetadatas){
+    val storage = getStorage(dccProjectCode);
+    if (useCollab && prefetchDepth > 0){
+      return newPrefetchingStorage(storage, dccProjectCode, portalMetadatas, prefetchDepth, prefetchDiskBudgetBytes);
+    }
+    return storage;
+  }
+
 
 }
@@ -41,6 +41,7 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.icgc.dcc.common.core.json.Jackson.DEFAULT;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.STORAGE_API;
 import static org.icgc.dcc.pcawg.client.storage.Storage.calcMd5Sum;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.IoExecutor.getDefaultIoExecutor;
 
 @Value
 @Slf4j
@@ -53,15 +54,14 @@ public class PortalStorage implements Storage {
 
   private final long currentTime;
 
-  private final Path tempFile;
-
   private final boolean bypassMD5Check;
 
   private final String token;
 
+  // Each download gets its own temp file, so that concurrent downloads do not clobber each other
+  @SneakyThrows
   private static Path createTempFile(Path outputDir){
-    val filename = "tmp." + System.currentTimeMillis() + ".vcf.gz";
-    val path = outputDir.resolve(filename);
+    val path = Files.createTempFile(outputDir, "tmp.", ".vcf.gz");
     path.toFile().deleteOnExit();
     return path;
   }
@@ -77,7 +77,6 @@ public class PortalStorage implements Storage {
     this.outputDir = Paths.get(outputDirName).toAbsolutePath();
     initDir(outputDir);
     this.currentTime = System.currentTimeMillis();
-    this.tempFile = createTempFile(outputDir);
   }
 
   @SneakyThrows
@@ -104,17 +103,18 @@ public class PortalStorage implements Storage {
     initDir(parentDir);
   }
 
-  // Download file regardless of persist mode
-  @SneakyThrows
+  // Download file regardless of persist mode. Runs on the I/O executor, which bounds the number of concurrent downloads
   private File downloadFileByObjectId(@NonNull final String objectId, @NonNull final String filename) {
-    val objectUrl = getObjectUrl(STORAGE_API,objectId);
-    val output = Paths.get(filename);
+    return getDefaultIoExecutor().call(() -> {
+      val objectUrl = getObjectUrl(STORAGE_API,objectId);
+      val output = Paths.get(filename);
 
-    @Cleanup
-    val input = objectUrl.openStream();
-    copy(input, output, REPLACE_EXISTING);
+      @Cleanup
+      val input = objectUrl.openStream();
+      copy(input, output, REPLACE_EXISTING);
 
-    return output.toFile();
+      return output.toFile();
+    });
   }
 
   @SneakyThrows
@@ -149,17 +149,26 @@ public class PortalStorage implements Storage {
         return downloadFileByObjectId(objectId, absFilename);
       }
     } else {
+      val tempFile = createTempFile(outputDir);
       return downloadFileByObjectId(objectId, tempFile.toAbsolutePath().toString());
     }
   }
 
-  @SneakyThrows
+  @Override @SneakyThrows
+  public void release(@NonNull File file) {
+    if (!persist){
+      Files.deleteIfExists(file.toPath());
+    }
+  }
+
   public URL getObjectUrl(@NonNull final String api, @NonNull final String objectId) {
-    val storageUrl = new URL(api + "/download/" + objectId + "?offset=0&length=-1&external=true");
-    val connection = (HttpURLConnection) storageUrl.openConnection();
-    connection.setRequestProperty(AUTHORIZATION, "Bearer " + token);
-    val object = readObject(connection);
-    return getUrl(object);
+    return getDefaultIoExecutor().call(() -> {
+      val storageUrl = new URL(api + "/download/" + objectId + "?offset=0&length=-1&external=true");
+      val connection = (HttpURLConnection) storageUrl.openConnection();
+      connection.setRequestProperty(AUTHORIZATION, "Bearer " + token);
+      val object = readObject(connection);
+      return getUrl(object);
+    });
   }
 
 
@@ -0,0 +1,167 @@
+package org.icgc.dcc.pcawg.client.storage.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
+import org.icgc.dcc.pcawg.client.storage.Storage;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.WorkerPool.newWorkerExecutor;
+
+/**
+ * Decorates a Storage, and downloads the next prefetchDepth files of a project in the background while the current
+ * file is being converted, so that network time overlaps conversion time.
+ * The files are prefetched in the order of the input portalMetadatas list. Files that are downloaded but not yet released
+ * count against the diskBudgetBytes (based on the portal file size), and prefetching pauses while the budget is exhausted.
+ * A file that is requested but was not prefetched is always downloaded, regardless of the budget.
+ */
+@Slf4j
+public class PrefetchingStorage implements Storage {
+
+  public static PrefetchingStorage newPrefetchingStorage(@NonNull Storage storage, String name,
+      @NonNull List<PortalMetadata> portalMetadatas, final int prefetchDepth, final long diskBudgetBytes){
+    return new PrefetchingStorage(storage, name, portalMetadatas, prefetchDepth, diskBudgetBytes);
+  }
+
+  /**
+   * Dependencies
+   */
+  private final Storage storage;
+  private final ExecutorService executor;
+
+  /**
+   * Configuration
+   */
+  private final List<PortalMetadata> portalMetadatas;
+  private final int prefetchDepth;
+  private final long diskBudgetBytes;
+
+  /**
+   * State, guarded by this
+   */
+  private final Map<String, Future<File>> scheduledMap = Maps.newHashMap();
+  private final Map<File, Long> reservedBytesMap = Maps.newHashMap();
+  private long reservedBytes = 0;
+  private int nextIndex = 0;
+
+  private PrefetchingStorage(Storage storage, String name, List<PortalMetadata> portalMetadatas,
+      final int prefetchDepth, final long diskBudgetBytes) {
+    checkArgument(prefetchDepth > 0, "The prefetchDepth [%s] must be greater than 0", prefetchDepth);
+    checkArgument(diskBudgetBytes > 0, "The diskBudgetBytes [%s] must be greater than 0", diskBudgetBytes);
+    this.storage = storage;
+    this.portalMetadatas = ImmutableList.copyOf(portalMetadatas);
+    this.prefetchDepth = prefetchDepth;
+    this.diskBudgetBytes = diskBudgetBytes;
+    this.executor = newWorkerExecutor(name + "-prefetch", 1);
+  }
+
+  @Override
+  public File getFile(@NonNull PortalMetadata portalMetadata) {
+    final Future<File> future;
+    synchronized (this){
+      val objectId = portalMetadata.getObjectId();
+      if (!scheduledMap.containsKey(objectId)){
+        schedule(portalMetadata);
+      }
+      future = scheduledMap.remove(objectId);
+      skipPast(portalMetadata);
+      fill();
+    }
+    File file = null;
+    try {
+      file = waitFor(future);
+      return file;
+    } finally {
+      synchronized (this){
+        if (file == null){
+          // Failed downloads do not hold on to their share of the budget
+          reservedBytes -= portalMetadata.getFileSize();
+          fill();
+        } else {
+          reservedBytesMap.put(file, portalMetadata.getFileSize());
+        }
+      }
+    }
+  }
+
+  @Override
+  public void release(@NonNull File file) {
+    storage.release(file);
+    synchronized (this){
+      val bytes = reservedBytesMap.remove(file);
+      if (bytes != null){
+        reservedBytes -= bytes;
+      }
+      fill();
+    }
+  }
+
+  /**
+   * Stops prefetching, and releases any file that was prefetched but never requested
+   */
+  @Override
+  public synchronized void close() {
+    executor.shutdownNow();
+    for (val future : scheduledMap.values()){
+      if (!future.isDone()){
+        future.cancel(true);
+        continue;
+      }
+      try {
+        storage.release(future.get());
+      } catch (Exception e){
+        log.warn("Unused prefetched file could not be released: {}", e.getMessage());
+      }
+    }
+    scheduledMap.clear();
+  }
+
+  private void schedule(PortalMetadata portalMetadata){
+    reservedBytes += portalMetadata.getFileSize();
+    scheduledMap.put(portalMetadata.getObjectId(), executor.submit(() -> storage.getFile(portalMetadata)));
+  }
+
+  // Files before the requested one are no longer worth prefetching
+  private void skipPast(PortalMetadata portalMetadata){
+    val index = portalMetadatas.indexOf(portalMetadata);
+    if (index >= nextIndex){
+      nextIndex = index + 1;
+    }
+  }
+
+  private void fill(){
+    while (nextIndex < portalMetadatas.size() && scheduledMap.size() < prefetchDepth){
+      val next = portalMetadatas.get(nextIndex);
+      val overBudget = reservedBytes + next.getFileSize() > diskBudgetBytes;
+      if (overBudget){
+        log.debug("Prefetching paused: reserved {} bytes of the {} byte budget", reservedBytes, diskBudgetBytes);
+        break;
+      }
+      if (!scheduledMap.containsKey(next.getObjectId())){
+        schedule(next);
+      }
+      nextIndex++;
+    }
+  }
+
+  @SneakyThrows
+  private static File waitFor(Future<File> future){
+    try {
+      return future.get();
+    } catch (ExecutionException e){
+      throw e.getCause();
+    }
+  }
+
+}
@@ -31,6 +31,13 @@ public class DccTransformerFactory<T> {
   private final boolean append;
 
   public DccTransformer<T> getDccTransformer(String dccProjectCode){
+    return getDccTransformer(dccProjectCode, append);
+  }
+
+  /**
+   * Overrides the configured append mode, for example to resume writing to outputs of an interrupted run
+   */
+  public DccTransformer<T> getDccTransformer(String dccProjectCode, final boolean append){
     return DccTransformer.<T>newDccTransformer(fsController, tsvConverter,
         outputDirectory,dccProjectCode, fileNamePrefix,
         fileExtension, append);
@@ -13,6 +13,13 @@ public interface TSVConverter<T> {
 
   String toTSVData(T t);
 
+  /**
+   * Appends the same row as toTSVData to the builder, so that a caller writing many rows can reuse it
+   */
+  default void appendTSVData(T t, StringBuilder builder){
+    builder.append(toTSVData(t));
+  }
+
   String toTSVHeader();
 
 }
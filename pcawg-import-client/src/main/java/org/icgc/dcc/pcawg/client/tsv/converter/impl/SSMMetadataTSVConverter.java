@@ -1,6 +1,7 @@
 package org.icgc.dcc.pcawg.client.tsv.converter.impl;
 
 import lombok.NoArgsConstructor;
+import lombok.val;
 import org.icgc.dcc.pcawg.client.core.model.ssm.metadata.SSMMetadata;
 import org.icgc.dcc.pcawg.client.core.model.ssm.metadata.SSMMetadataFieldMapping;
 import org.icgc.dcc.pcawg.client.tsv.converter.TSVConverter;
@@ -10,15 +11,32 @@ import static org.icgc.dcc.common.core.util.stream.Streams.stream;
 @NoArgsConstructor
 public class SSMMetadataTSVConverter implements TSVConverter<SSMMetadata> {
 
+  /**
+   * Constants
+   */
+  private static final SSMMetadataFieldMapping[] FIELDS = SSMMetadataFieldMapping.values();
+  private static final char TAB = '\t';
+  private static final int INITIAL_ROW_CAPACITY = 512;
+
   public static final SSMMetadataTSVConverter newSSMMetadataTSVConverter(){
     return new SSMMetadataTSVConverter();
   }
 
   @Override
   public String toTSVData(SSMMetadata ssmMetadata) {
-    return stream(SSMMetadataFieldMapping.values())
-        .map(x -> x.extractStringValue(ssmMetadata))
-        .collect(getTsvCollectorInstance());
+    val builder = new StringBuilder(INITIAL_ROW_CAPACITY);
+    appendTSVData(ssmMetadata, builder);
+    return builder.toString();
+  }
+
+  @Override
+  public void appendTSVData(SSMMetadata ssmMetadata, StringBuilder builder) {
+    for (int i = 0; i < FIELDS.length; i++){
+      if (i > 0){
+        builder.append(TAB);
+      }
+      FIELDS[i].appendValue(ssmMetadata, builder);
+    }
   }
 
   @Override
@@ -1,6 +1,7 @@
 package org.icgc.dcc.pcawg.client.tsv.converter.impl;
 
 import lombok.NoArgsConstructor;
+import lombok.val;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimaryFieldMapping;
 import org.icgc.dcc.pcawg.client.tsv.converter.TSVConverter;
@@ -10,15 +11,32 @@ import static org.icgc.dcc.common.core.util.stream.Streams.stream;
 @NoArgsConstructor
 public class SSMPrimaryTSVConverter implements TSVConverter<SSMPrimary> {
 
+  /**
+   * Constants
+   */
+  private static final SSMPrimaryFieldMapping[] FIELDS = SSMPrimaryFieldMapping.values();
+  private static final char TAB = '\t';
+  private static final int INITIAL_ROW_CAPACITY = 256;
+
   public static final SSMPrimaryTSVConverter newSSMPrimaryTSVConverter(){
     return new SSMPrimaryTSVConverter();
   }
 
   @Override
   public String toTSVData(SSMPrimary ssmPrimary) {
-    return stream(SSMPrimaryFieldMapping.values())
-        .map(x -> x.extractStringValue(ssmPrimary))
-        .collect(getTsvCollectorInstance());
+    val builder = new StringBuilder(INITIAL_ROW_CAPACITY);
+    appendTSVData(ssmPrimary, builder);
+    return builder.toString();
+  }
+
+  @Override
+  public void appendTSVData(SSMPrimary ssmPrimary, StringBuilder builder) {
+    for (int i = 0; i < FIELDS.length; i++){
+      if (i > 0){
+        builder.append(TAB);
+      }
+      FIELDS[i].appendValue(ssmPrimary, builder);
+    }
   }
 
   @Override
@@ -3,6 +3,7 @@ package org.icgc.dcc.pcawg.client.tsv.transformer.impl;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import lombok.val;
 import org.icgc.dcc.pcawg.client.tsv.transformer.Transformer;
 import org.icgc.dcc.pcawg.client.tsv.converter.TSVConverter;
 
@@ -16,7 +17,8 @@ import java.io.Writer;
 @Slf4j
 public final class BaseTransformer<T> implements Transformer<T> {
 
-  private static final String NEWLINE = "\n";
+  private static final char NEWLINE = '\n';
+  private static final int INITIAL_ROW_CAPACITY = 512;
 
   private final TSVConverter<T> tsvConverter;
 
@@ -25,6 +27,12 @@ public final class BaseTransformer<T> implements Transformer<T> {
   @Getter
   private boolean writeHeader;
 
+  /**
+   * Reused for every row, since the rows of a transformer are written by one thread at a time
+   */
+  private final StringBuilder rowBuilder = new StringBuilder(INITIAL_ROW_CAPACITY);
+  private char[] rowBuffer = new char[INITIAL_ROW_CAPACITY];
+
   public static <T> BaseTransformer<T> newBaseTransformer( final TSVConverter<T> tsvConverter, final Writer writer, final boolean isNewFile){
     return new BaseTransformer<T>(tsvConverter, writer, isNewFile);
   }
@@ -36,13 +44,40 @@ public final class BaseTransformer<T> implements Transformer<T> {
     this.writer = writer;
   }
 
+  /**
+   * The row is appended to the reused rowBuilder, then copied to the writer through the reused rowBuffer, so that no
+   * String is built for it
+   */
   @Override @SneakyThrows
   public void transform(T t){
+    writeHeaderIfNeeded();
+    rowBuilder.setLength(0);
+    tsvConverter.appendTSVData(t, rowBuilder);
+    rowBuilder.append(NEWLINE);
+    val length = rowBuilder.length();
+    if (rowBuffer.length < length){
+      rowBuffer = new char[Math.max(length, rowBuffer.length * 2)];
+    }
+    rowBuilder.getChars(0, length, rowBuffer, 0);
+    writer.write(rowBuffer, 0, length);
+  }
+
+  /**
+   * Writes a data row already converted by an equivalent TSVConverter, preceded by the header if not written yet
+   */
+  @SneakyThrows
+  public void writeData(String tsvData){
+    writeHeaderIfNeeded();
+    writer.write(tsvData);
+    writer.write(NEWLINE);
+  }
+
+  private void writeHeaderIfNeeded() throws IOException {
     if(writeHeader){
-      writer.write(tsvConverter.toTSVHeader()+NEWLINE);
+      writer.write(tsvConverter.toTSVHeader());
+      writer.write(NEWLINE);
       writeHeader = false;
     }
-    writer.write(tsvConverter.toTSVData(t)+ NEWLINE);
   }
 
   @Override
@@ -1,7 +1,9 @@
 package org.icgc.dcc.pcawg.client.tsv.transformer.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -14,22 +16,32 @@ import org.icgc.dcc.pcawg.client.tsv.fscontroller.FsController;
 import org.icgc.dcc.pcawg.client.tsv.transformer.Transformer;
 import org.icgc.dcc.pcawg.client.tsv.writer.impl.LocalWriterContext;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static org.icgc.dcc.common.core.util.Joiners.DOT;
 import static org.icgc.dcc.common.core.util.Joiners.PATH;
+import static org.icgc.dcc.pcawg.client.tsv.fscontroller.impl.LocalFsController.newLocalFsController;
 import static org.icgc.dcc.pcawg.client.tsv.transformer.impl.BaseTransformer.newBaseTransformer;
 
 /**
  * This class creates a pool of Writers (lazily) and records which one was actually writen to.
  * If a writer was not writen to at all, then when close is called, those unwritten files (which will be touched to the filesystem) are deleted
- * The life span of this object is fully dependant on dccProjectCode. Since we are iterating through each project code 1by1, all the writers
- * for a specific dccProjectCode are opened upon call, and closed when this object is closed.
+ * The life span of this object is fully dependant on dccProjectCode. All the writers for a specific dccProjectCode are opened
+ * upon call, and closed when this object is closed.
+ * Files of the same dccProjectCode may be converted concurrently, so writes are serialized per WorkflowTypes, using one lock
+ * per writer. Writers of different WorkflowTypes never block each other.
  * @param <T>
  */
 @RequiredArgsConstructor
@@ -44,8 +56,16 @@ public final class DccTransformer<T> implements Transformer<DccTransformerContex
         fileExtension, append);
   }
 
-  private static <T> Map<WorkflowTypes, Transformer<T>> createEmptyTransformerMap(){
-    return Maps.newEnumMap(WorkflowTypes.class);
+  private static <T> Map<WorkflowTypes, BaseTransformer<T>> createEmptyTransformerMap(){
+    return Maps.newConcurrentMap();
+  }
+
+  private static Map<WorkflowTypes, Object> createLockMap(){
+    val map = Maps.<WorkflowTypes, Object>newEnumMap(WorkflowTypes.class);
+    for (val workflowType : WorkflowTypes.values()){
+      map.put(workflowType, new Object());
+    }
+    return map;
   }
 
   /**
@@ -66,8 +86,11 @@ public final class DccTransformer<T> implements Transformer<DccTransformerContex
   /**
    * State
    */
-  private Map<WorkflowTypes, Transformer<T>> transformerMap = Maps.newEnumMap(WorkflowTypes.class);
-  private Map<WorkflowTypes, Boolean> hasBeenWritenMap= Maps.newEnumMap(WorkflowTypes.class);
+  private final Map<WorkflowTypes, Object> lockMap = createLockMap();
+  private Map<WorkflowTypes, BaseTransformer<T>> transformerMap = createEmptyTransformerMap();
+  private Map<WorkflowTypes, Boolean> hasBeenWritenMap= Maps.newConcurrentMap();
+  private final Map<WorkflowTypes, AtomicLong> rowCountMap = Maps.newConcurrentMap();
+  private final Set<WorkflowTypes> truncatedSet = Sets.newConcurrentHashSet();
 
 
   public List<Path> getWrittenPaths(){
@@ -88,37 +111,143 @@ public final class DccTransformer<T> implements Transformer<DccTransformerContex
   }
 
   public void transform(WorkflowTypes workflowType, T t) throws IOException {
-    val transformer = getTransformer(workflowType);
-    transformer.transform(t);
-    recordWriteTo(workflowType);
+    synchronized (lockMap.get(workflowType)){
+      val transformer = getTransformer(workflowType);
+      transformer.transform(t);
+      recordWriteTo(workflowType);
+      rowCountMap.computeIfAbsent(workflowType, w -> new AtomicLong(0)).incrementAndGet();
+    }
+  }
+
+  /**
+   * @return a transformer writing the same outputs as this one, but under the local partDirectory and from scratch,
+   * whose rows can later be appended to this transformer with appendPart
+   */
+  public DccTransformer<T> newPartTransformer(@NonNull Path partDirectory){
+    return newDccTransformer(newLocalFsController(), tsvConverter, partDirectory, dccProjectCode, fileNamePrefix,
+        fileExtension, false);
+  }
+
+  /**
+   * Closes the part, appends its data rows to the outputs of this transformer, in the order they were written, and
+   * deletes the outputs of the part.
+   * The rows of a WorkflowTypes are appended under its lock, so they are not interleaved with the rows of other writes
+   */
+  public void appendPart(@NonNull DccTransformer<T> part) throws IOException {
+    part.close();
+    for (val entry : part.rowCountMap.entrySet()){
+      val workflowType = entry.getKey();
+      val partPath = part.getOutputPath(workflowType);
+      try (BufferedReader reader = Files.newBufferedReader(partPath, UTF_8)){
+        // Skip the header of the part
+        reader.readLine();
+        synchronized (lockMap.get(workflowType)){
+          val transformer = getTransformer(workflowType);
+          String line;
+          while ((line = reader.readLine()) != null){
+            transformer.writeData(line);
+          }
+          recordWriteTo(workflowType);
+          rowCountMap.computeIfAbsent(workflowType, w -> new AtomicLong(0)).addAndGet(entry.getValue().get());
+        }
+      }
+      Files.deleteIfExists(partPath);
+    }
+  }
+
+  /**
+   * @return the data row of t, which can be written later with transformEncoded. Thread safe, so rows can be encoded
+   * concurrently, outside of the locks
+   */
+  public String encode(T t){
+    return tsvConverter.toTSVData(t);
+  }
+
+  /**
+   * Writes a data row returned by encode
+   */
+  public void transformEncoded(DccTransformerContext<String> ctx){
+    val workflowType = ctx.getWorkflowTypes();
+    synchronized (lockMap.get(workflowType)){
+      val transformer = getTransformer(workflowType);
+      transformer.writeData(ctx.getObject());
+      recordWriteTo(workflowType);
+      rowCountMap.computeIfAbsent(workflowType, w -> new AtomicLong(0)).incrementAndGet();
+    }
   }
 
   private void recordWriteTo(WorkflowTypes workflowType){
     if (hasBeenWritenMap == null){
-      hasBeenWritenMap = Maps.newEnumMap(WorkflowTypes.class);
+      hasBeenWritenMap = Maps.newConcurrentMap();
     }
     hasBeenWritenMap.put(workflowType, true);
   }
 
+  /**
+   * Discards the rows written to the local outputs since they had the given sizes, for example the rows of a file that
+   * failed part way. The writers of the outputs are closed, and the next rows are appended to the truncated outputs.
+   * Outputs without a size are deleted. Must not be called while rows are being written
+   * @param outputBytes sizes to truncate the outputs back to
+   * @param rowCounts row counts of the outputs at these sizes, as returned by getRowCounts back then
+   */
+  public void truncate(@NonNull Map<Path, Long> outputBytes, @NonNull Map<Path, Long> rowCounts) throws IOException {
+    for (val workflowType : WorkflowTypes.values()){
+      synchronized (lockMap.get(workflowType)){
+        val transformer = transformerMap.remove(workflowType);
+        if (transformer != null){
+          transformer.close();
+        }
+        val outputPath = getOutputPath(workflowType);
+        val bytes = outputBytes.get(outputPath);
+        if (bytes == null){
+          fsController.deleteIfExists(outputPath);
+          hasBeenWritenMap.remove(workflowType);
+        } else {
+          try (FileChannel channel = FileChannel.open(outputPath, WRITE)){
+            channel.truncate(bytes);
+          }
+          truncatedSet.add(workflowType);
+        }
+        val rows = rowCounts.get(outputPath);
+        if (rows == null){
+          rowCountMap.remove(workflowType);
+        } else {
+          rowCountMap.computeIfAbsent(workflowType, w -> new AtomicLong(0)).set(rows);
+        }
+      }
+    }
+  }
+
   @SneakyThrows
-  private Transformer<T> createNewTransformer(WorkflowTypes workflowType){
+  private BaseTransformer<T> createNewTransformer(WorkflowTypes workflowType){
     val outputPath = getOutputPath(workflowType);
     boolean fileExists = fsController.exists(outputPath);
-    val writeHeader = !append || !fileExists ;
-    val writer = createNewFileWriter(workflowType);
+    // A truncated output is appended to, since it holds the rows kept by the truncation
+    val appendToOutput = append || truncatedSet.contains(workflowType);
+    val writeHeader = !appendToOutput || !fileExists ;
+    val writer = createNewFileWriter(workflowType, appendToOutput);
     return newBaseTransformer(tsvConverter,writer, writeHeader);
   }
 
-  private Path getOutputPath(WorkflowTypes workflowType){
+  /**
+   * @return the number of data rows (excluding headers) written by this transformer, for each written output path
+   */
+  public Map<Path, Long> getRowCounts(){
+    val out = ImmutableMap.<Path, Long>builder();
+    rowCountMap.forEach((w, count) -> out.put(getOutputPath(w), count.get()));
+    return out.build();
+  }
+
+  public Path getOutputPath(WorkflowTypes workflowType){
     return Paths.get(createOutputFilename(workflowType, dccProjectCode));
   }
 
   @SneakyThrows
-  private Writer createNewFileWriter(WorkflowTypes workflowType){
+  private Writer createNewFileWriter(WorkflowTypes workflowType, final boolean appendToOutput){
     val outputPath = getOutputPath(workflowType);
     val writerContext = LocalWriterContext.builder()
         .path(outputPath)
-        .append(append)
+        .append(appendToOutput)
         .build();
     return fsController.createWriter(writerContext);
   }
@@ -132,7 +261,7 @@ public final class DccTransformer<T> implements Transformer<DccTransformerContex
   }
 
 
-  private Transformer<T> getTransformer(WorkflowTypes workflowType){
+  private BaseTransformer<T> getTransformer(WorkflowTypes workflowType){
     if (transformerMap == null){
       transformerMap = createEmptyTransformerMap();
     }
@@ -166,9 +295,9 @@ public final class DccTransformer<T> implements Transformer<DccTransformerContex
 
   @Override
   public void flush() throws IOException {
-    for(val transformer : transformerMap.values()){
-      if (transformer != null){
-        transformer.flush();
+    for(val entry : transformerMap.entrySet()){
+      synchronized (lockMap.get(entry.getKey())){
+        entry.getValue().flush();
       }
     }
   }
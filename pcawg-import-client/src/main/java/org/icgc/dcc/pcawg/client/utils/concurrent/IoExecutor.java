@@ -0,0 +1,165 @@
+package org.icgc.dcc.pcawg.client.utils.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.IO_CONCURRENCY;
+
+/**
+ * Executes blocking I/O calls (portal queries, object url lookups, downloads) off the calling thread.
+ * On JVMs that support virtual threads, every call gets its own virtual thread, so thousands of calls can be in flight
+ * without sizing a pool. On older JVMs, a fixed pool of maxConcurrency platform threads is used instead.
+ * In both cases, at most maxConcurrency calls run at the same time, so that remote services are not flooded.
+ * Calls made from within an I/O task are run inline on the calling task, since waiting on nested tasks while holding a
+ * permit could otherwise deadlock
+ */
+@Slf4j
+public final class IoExecutor implements Closeable {
+
+  private static final String VIRTUAL_THREAD_EXECUTOR_METHOD = "newVirtualThreadPerTaskExecutor";
+
+  private static final ThreadLocal<Boolean> IN_IO_TASK = ThreadLocal.withInitial(() -> false);
+
+  private static final IoExecutor DEFAULT_IO_EXECUTOR = newIoExecutor(IO_CONCURRENCY);
+
+  public static IoExecutor getDefaultIoExecutor(){
+    return DEFAULT_IO_EXECUTOR;
+  }
+
+  public static IoExecutor newIoExecutor(final int maxConcurrency){
+    return new IoExecutor(maxConcurrency, true);
+  }
+
+  public static IoExecutor newPlatformIoExecutor(final int maxConcurrency){
+    return new IoExecutor(maxConcurrency, false);
+  }
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+
+  @Getter private final int maxConcurrency;
+  @Getter private final boolean virtual;
+
+  private IoExecutor(final int maxConcurrency, final boolean preferVirtual){
+    checkArgument(maxConcurrency > 0, "The maxConcurrency [%s] must be greater than 0", maxConcurrency);
+    this.maxConcurrency = maxConcurrency;
+    this.permits = new Semaphore(maxConcurrency);
+    val virtualExecutor = preferVirtual ? createVirtualThreadExecutor() : null;
+    this.virtual = virtualExecutor != null;
+    this.executor = virtual ? virtualExecutor : createPlatformThreadExecutor(maxConcurrency);
+  }
+
+  /**
+   * Looked up reflectively, since the client is still built for java 8
+   */
+  private static ExecutorService createVirtualThreadExecutor(){
+    try {
+      val method = Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_METHOD);
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e){
+      log.debug("Virtual threads are not available on this JVM, using platform threads");
+      return null;
+    }
+  }
+
+  private static ExecutorService createPlatformThreadExecutor(final int numThreads){
+    val threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("io-%d")
+        .setDaemon(true)
+        .build();
+    return Executors.newFixedThreadPool(numThreads, threadFactory);
+  }
+
+  public <T> Future<T> submit(@NonNull Callable<T> callable){
+    if (IN_IO_TASK.get()){
+      return runInline(callable);
+    }
+    return executor.submit(() -> {
+      permits.acquire();
+      IN_IO_TASK.set(true);
+      try {
+        return callable.call();
+      } finally {
+        IN_IO_TASK.set(false);
+        permits.release();
+      }
+    });
+  }
+
+  private static <T> Future<T> runInline(Callable<T> callable){
+    val future = new CompletableFuture<T>();
+    try {
+      future.complete(callable.call());
+    } catch (Throwable t){
+      future.completeExceptionally(t);
+    }
+    return future;
+  }
+
+  /**
+   * Runs the callable on an I/O thread and waits for its result. Used to bound the number of concurrent
+   * calls made by independent callers. Failures are rethrown as is
+   */
+  public <T> T call(@NonNull Callable<T> callable){
+    return waitFor(submit(callable));
+  }
+
+  /**
+   * Applies the function to every input concurrently, and returns the results in the order of the inputs.
+   * All calls are given the chance to complete, after which the first failure (if any) is rethrown
+   */
+  @SneakyThrows
+  public <T, R> List<R> mapAll(@NonNull Iterable<T> inputs, @NonNull Function<T, R> function){
+    val futures = ImmutableList.<Future<R>>builder();
+    for (val input : inputs){
+      futures.add(submit(() -> function.apply(input)));
+    }
+    val results = ImmutableList.<R>builder();
+    Throwable firstFailure = null;
+    for (val future : futures.build()){
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e){
+        if (firstFailure == null){
+          firstFailure = e.getCause();
+        }
+      }
+    }
+    if (firstFailure != null){
+      throw firstFailure;
+    }
+    return results.build();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  @SneakyThrows
+  private static <T> T waitFor(Future<T> future){
+    try {
+      return future.get();
+    } catch (ExecutionException e){
+      throw e.getCause();
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+package org.icgc.dcc.pcawg.client.utils.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Alternative to a StagedPipeline for when the work between reading and writing is pure CPU work, that a single
+ * thread per stage cannot keep up with.
+ * The calling thread cuts the source into batches, a ForkJoinPool maps the elements of the batches in parallel, and a
+ * sequencer thread hands the results to the sink, batch after batch, in the order of the source. So the sink sees
+ * exactly what a sequential Stream would have given it.
+ * At most IN_FLIGHT_BATCHES_PER_THREAD batches per thread are read ahead of the sink, so memory stays bounded.
+ * The first failure of the source, a batch or the sink stops the pipeline, and is rethrown by forEachOrdered.
+ */
+@Slf4j
+@NoArgsConstructor(access = PRIVATE)
+public final class OrderedBatchPipeline {
+
+  private static final int IN_FLIGHT_BATCHES_PER_THREAD = 4;
+
+  /**
+   * @param function must be thread safe, since the elements of different batches are mapped concurrently
+   * @param sink only called from the sequencer thread, one result at a time
+   */
+  @SneakyThrows
+  public static <T, R> void forEachOrdered(@NonNull String name, @NonNull Stream<T> source, final int batchSize,
+      final int numThreads, @NonNull Function<? super T, ? extends Collection<? extends R>> function,
+      @NonNull Consumer<? super R> sink){
+    checkArgument(batchSize > 0, "The batchSize [%s] must be greater than 0", batchSize);
+    checkArgument(numThreads > 0, "The numThreads [%s] must be greater than 0", numThreads);
+    val pool = new ForkJoinPool(numThreads, newWorkerThreadFactory(name), null, false);
+    final BlockingQueue<ForkJoinTask<List<R>>> inFlight =
+        new ArrayBlockingQueue<ForkJoinTask<List<R>>>(numThreads * IN_FLIGHT_BATCHES_PER_THREAD);
+    final ForkJoinTask<List<R>> end = ForkJoinTask.adapt(() -> ImmutableList.<R>of());
+    val failure = new AtomicReference<Throwable>();
+    val numBatches = new AtomicLong(0);
+    val numResults = new AtomicLong(0);
+    val reader = Thread.currentThread();
+    val start = System.nanoTime();
+
+    final Thread sequencer = new Thread(() -> {
+      try {
+        while (true){
+          val task = inFlight.take();
+          if (task == end){
+            break;
+          }
+          for (val result : task.join()){
+            sink.accept(result);
+            numResults.incrementAndGet();
+          }
+        }
+      } catch (Throwable t){
+        if (failure.compareAndSet(null, t)){
+          log.error("[{}] failed: {}", name, t.getMessage());
+        }
+        // Unblock the reader waiting on a full queue
+        reader.interrupt();
+      }
+    }, name + "-sequencer");
+    sequencer.setDaemon(true);
+    sequencer.start();
+
+    try {
+      val iterator = source.sequential().iterator();
+      while (iterator.hasNext() && failure.get() == null){
+        final List<T> batch = Lists.newArrayListWithCapacity(batchSize);
+        while (batch.size() < batchSize && iterator.hasNext()){
+          batch.add(iterator.next());
+        }
+        inFlight.put(pool.submit(() -> mapBatch(batch, function)));
+        numBatches.incrementAndGet();
+      }
+      inFlight.put(end);
+      sequencer.join();
+    } catch (Throwable t){
+      if (failure.compareAndSet(null, t)){
+        log.error("[{}] failed: {}", name, t.getMessage());
+      }
+      // Clear the interrupt of the sequencer, if any, then stop the sequencer
+      Thread.interrupted();
+      sequencer.interrupt();
+      sequencer.join();
+    } finally {
+      pool.shutdownNow();
+    }
+    Thread.interrupted();
+
+    if (failure.get() != null){
+      throw failure.get();
+    }
+    log.info("[{}] Mapped {} batches of up to {} elements on {} threads into {} results in {} ms", name,
+        numBatches.get(), batchSize, numThreads, numResults.get(), NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private static <T, R> List<R> mapBatch(List<T> batch, Function<? super T, ? extends Collection<? extends R>> function){
+    final List<R> results = Lists.newArrayListWithCapacity(batch.size());
+    for (val t : batch){
+      results.addAll(function.apply(t));
+    }
+    return results;
+  }
+
+  private static ForkJoinWorkerThreadFactory newWorkerThreadFactory(String name){
+    return pool -> {
+      val thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+      thread.setName(name + "-batch-worker-" + thread.getPoolIndex());
+      return thread;
+    };
+  }
+
+}
@@ -0,0 +1,266 @@
+package org.icgc.dcc.pcawg.client.utils.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+
+/**
+ * Alternative to a sequential Stream pipeline, where every stage runs on its own thread and hands its output to the
+ * next stage through a bounded queue. A full queue blocks the upstream stage (backpressure), so memory stays bounded
+ * and the throughput is set by the slowest stage, instead of the sum of all stages.
+ * Each stage has exactly one thread, so stateful stage functions do not need to be thread safe, and the order of the
+ * source is preserved all the way to the terminal stage.
+ * The first failure in any stage stops all the stages, and is rethrown by forEach.
+ * @param <T> type of the elements output by the last stage
+ */
+@Slf4j
+public final class StagedPipeline<T> {
+
+  private static final Object END = new Object();
+
+  public static <T> StagedPipeline<T> newStagedPipeline(String name, String sourceStageName, Stream<T> source,
+      final int queueCapacity){
+    checkArgument(queueCapacity > 0, "The queueCapacity [%s] must be greater than 0", queueCapacity);
+    return new StagedPipeline<T>(name, source, queueCapacity, ImmutableList.of(new Stage(sourceStageName, null)));
+  }
+
+  @NonNull private final String name;
+  @NonNull private final Stream<?> source;
+  private final int queueCapacity;
+  @NonNull private final List<Stage> stages;
+
+  private volatile Throwable failure;
+  private volatile List<Thread> threads = ImmutableList.of();
+
+  private StagedPipeline(String name, Stream<?> source, final int queueCapacity, List<Stage> stages) {
+    this.name = name;
+    this.source = source;
+    this.queueCapacity = queueCapacity;
+    this.stages = stages;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <R> StagedPipeline<R> addStage(String stageName, BiConsumer<T, Consumer<Object>> body){
+    val newStages = ImmutableList.<Stage>builder()
+        .addAll(stages)
+        .add(new Stage(stageName, (BiConsumer<Object, Consumer<Object>>) (BiConsumer<?, ?>) body))
+        .build();
+    return new StagedPipeline<R>(name, source, queueCapacity, newStages);
+  }
+
+  public <R> StagedPipeline<R> map(String stageName, Function<? super T, ? extends R> function){
+    return addStage(stageName, (t, out) -> out.accept(function.apply(t)));
+  }
+
+  public <R> StagedPipeline<R> flatMap(String stageName, Function<? super T, ? extends Collection<? extends R>> function){
+    return addStage(stageName, (t, out) -> function.apply(t).forEach(out));
+  }
+
+  public StagedPipeline<T> filter(String stageName, Predicate<? super T> predicate){
+    return addStage(stageName, (t, out) -> {
+      if (predicate.test(t)){
+        out.accept(t);
+      }
+    });
+  }
+
+  /**
+   * Starts every stage, consumes the output of the last stage on its own thread, and blocks until the source is
+   * exhausted and all elements are consumed. A pipeline can only be run once.
+   * @return the statistics of each stage, in pipeline order
+   */
+  @SneakyThrows
+  public List<StageStats> forEach(String stageName, Consumer<? super T> consumer){
+    val pipeline = this.<Void>addStage(stageName, (t, out) -> consumer.accept(t));
+    pipeline.run();
+    val stats = pipeline.getStats();
+    stats.forEach(s -> log.info("[{}] {}", name, s));
+    return stats;
+  }
+
+  public List<StageStats> getStats(){
+    return stages.stream()
+        .map(Stage::toStats)
+        .collect(toImmutableList());
+  }
+
+  private void run() throws Throwable {
+    val numStages = stages.size();
+    val queues = ImmutableList.<BlockingQueue<Object>>builder();
+    for (int i = 1; i < numStages; i++){
+      queues.add(new ArrayBlockingQueue<Object>(queueCapacity));
+    }
+    val queueList = queues.build();
+
+    val threadsBuilder = ImmutableList.<Thread>builder();
+    for (int i = 0; i < numStages; i++){
+      val stage = stages.get(i);
+      val input = i == 0 ? null : queueList.get(i - 1);
+      val output = i == numStages - 1 ? null : queueList.get(i);
+      val runnable = i == 0 ? (Runnable) () -> runSource(stage, output) : (Runnable) () -> runStage(stage, input, output);
+      val thread = new Thread(runnable, name + "-" + stage.getName());
+      thread.setDaemon(true);
+      threadsBuilder.add(thread);
+    }
+    this.threads = threadsBuilder.build();
+    this.threads.forEach(Thread::start);
+
+    for (val thread : this.threads){
+      thread.join();
+    }
+    if (failure != null){
+      throw failure;
+    }
+  }
+
+  private void fail(Stage stage, Throwable t){
+    if (t instanceof InterruptedException && failure != null){
+      return;
+    }
+    synchronized (this){
+      if (failure != null){
+        return;
+      }
+      log.error("[{}] stage [{}] failed: {}", name, stage.getName(), t.getMessage());
+      failure = t;
+    }
+    // Unblock every other stage waiting on a queue
+    val current = Thread.currentThread();
+    threads.stream()
+        .filter(thread -> thread != current)
+        .forEach(Thread::interrupt);
+  }
+
+  private void runSource(Stage stage, BlockingQueue<Object> output){
+    val start = System.nanoTime();
+    try {
+      source.sequential().forEach(t -> {
+        stage.getInCount().incrementAndGet();
+        put(output, t);
+        stage.getOutCount().incrementAndGet();
+        checkState(failure == null, "Aborted, since a downstream stage failed");
+      });
+      put(output, END);
+    } catch (Throwable t){
+      fail(stage, t);
+    } finally {
+      stage.getElapsedNanos().set(System.nanoTime() - start);
+    }
+  }
+
+  private void runStage(Stage stage, BlockingQueue<Object> input, BlockingQueue<Object> output){
+    val start = System.nanoTime();
+    final Consumer<Object> emit = o -> {
+      stage.getOutCount().incrementAndGet();
+      if (output != null){
+        // Time spent blocked on a full output queue is backpressure, not work
+        val putStart = System.nanoTime();
+        put(output, o);
+        stage.getBusyNanos().addAndGet(putStart - System.nanoTime());
+      }
+    };
+    try {
+      while (true){
+        stage.recordQueueDepth(input.size());
+        val t = input.take();
+        if (t == END){
+          break;
+        }
+        stage.getInCount().incrementAndGet();
+        val busyStart = System.nanoTime();
+        stage.getBody().accept(t, emit);
+        stage.getBusyNanos().addAndGet(System.nanoTime() - busyStart);
+      }
+      if (output != null){
+        put(output, END);
+      }
+    } catch (Throwable t){
+      fail(stage, t);
+    } finally {
+      stage.getElapsedNanos().set(System.nanoTime() - start);
+    }
+  }
+
+  @SneakyThrows
+  private static void put(BlockingQueue<Object> queue, Object o){
+    queue.put(o);
+  }
+
+  @Value
+  private static class Stage {
+
+    @NonNull private final String name;
+    private final BiConsumer<Object, Consumer<Object>> body;
+
+    private final AtomicLong inCount = new AtomicLong(0);
+    private final AtomicLong outCount = new AtomicLong(0);
+    private final AtomicLong busyNanos = new AtomicLong(0);
+    private final AtomicLong elapsedNanos = new AtomicLong(0);
+    private final AtomicLong queueDepthSum = new AtomicLong(0);
+    private final AtomicLong queueDepthSamples = new AtomicLong(0);
+    private final AtomicLong maxQueueDepth = new AtomicLong(0);
+
+    void recordQueueDepth(final int depth){
+      queueDepthSum.addAndGet(depth);
+      queueDepthSamples.incrementAndGet();
+      maxQueueDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    StageStats toStats(){
+      val samples = queueDepthSamples.get();
+      val avgQueueDepth = samples == 0 ? 0 : queueDepthSum.get() / (double) samples;
+      return new StageStats(name, inCount.get(), outCount.get(), NANOSECONDS.toMillis(busyNanos.get()),
+          NANOSECONDS.toMillis(elapsedNanos.get()), avgQueueDepth, maxQueueDepth.get());
+    }
+
+  }
+
+  /**
+   * Snapshot of a stage. The busy time of the source stage is not measured, since producing and handing off its
+   * elements are interleaved. For the other stages, the throughput is the number of inputs per busy second, which
+   * is what the stage could sustain if it was never starved, while a full input queue shows it is the bottleneck.
+   */
+  @Value
+  public static class StageStats {
+
+    private final String stageName;
+    private final long inCount;
+    private final long outCount;
+    private final long busyMs;
+    private final long elapsedMs;
+    private final double avgQueueDepth;
+    private final long maxQueueDepth;
+
+    public double getThroughput(){
+      val ms = busyMs > 0 ? busyMs : elapsedMs;
+      return ms == 0 ? 0 : inCount * 1000.0 / ms;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Stage[%s] -- In: %s   Out: %s   Busy(ms): %s   Elapsed(ms): %s   AvgQueueDepth: %.1f   MaxQueueDepth: %s   Throughput(count/s): %.1f",
+          stageName, inCount, outCount, busyMs, elapsedMs, avgQueueDepth, maxQueueDepth, getThroughput());
+    }
+
+  }
+
+}
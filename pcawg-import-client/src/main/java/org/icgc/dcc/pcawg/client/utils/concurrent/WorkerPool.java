@@ -0,0 +1,103 @@
+package org.icgc.dcc.pcawg.client.utils.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static lombok.AccessLevel.PRIVATE;
+
+@Slf4j
+@NoArgsConstructor(access = PRIVATE)
+public final class WorkerPool {
+
+  public static ExecutorService newWorkerExecutor(String name, final int numThreads){
+    val threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat(name + "-%d")
+        .build();
+    return Executors.newFixedThreadPool(numThreads, threadFactory);
+  }
+
+  /**
+   * Runs the task for every item on a fixed pool of numThreads named threads, and blocks until all are done.
+   * All items are given the chance to complete, after which the first failure (if any) is rethrown
+   */
+  @SneakyThrows
+  public static <T> void runAll(String name, final int numThreads, Iterable<T> items, Consumer<T> task){
+    val executor = newWorkerExecutor(name, numThreads);
+    try {
+      val futures = ImmutableList.<Future<?>>builder();
+      for (val item : items) {
+        futures.add(executor.submit(() -> task.accept(item)));
+      }
+      Throwable firstFailure = null;
+      for (val future : futures.build()){
+        try {
+          future.get();
+        } catch (ExecutionException e){
+          log.error("[{}] worker failed: {}", name, e.getCause().getMessage());
+          if (firstFailure == null){
+            firstFailure = e.getCause();
+          }
+        }
+      }
+      if (firstFailure != null){
+        throw firstFailure;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Runs the task for every item on a fixed pool of numThreads named threads, and hands the results to the sink on the
+   * calling thread, in the order of the items, each as soon as it and all the results before it are done.
+   * After the first failure, no more results are handed to the sink, the remaining items are given the chance to
+   * complete, and the failure is rethrown
+   */
+  @SneakyThrows
+  public static <T, R> void runAllInOrder(String name, final int numThreads, Iterable<T> items, Function<T, R> task,
+      Consumer<R> sink){
+    val executor = newWorkerExecutor(name, numThreads);
+    try {
+      val futures = ImmutableList.<Future<R>>builder();
+      for (val item : items) {
+        futures.add(executor.submit(() -> task.apply(item)));
+      }
+      Throwable firstFailure = null;
+      for (val future : futures.build()){
+        try {
+          val result = future.get();
+          if (firstFailure == null){
+            sink.accept(result);
+          }
+        } catch (ExecutionException e){
+          log.error("[{}] worker failed: {}", name, e.getCause().getMessage());
+          if (firstFailure == null){
+            firstFailure = e.getCause();
+          }
+        } catch (RuntimeException e){
+          log.error("[{}] failed to handle a result: {}", name, e.getMessage());
+          if (firstFailure == null){
+            firstFailure = e;
+          }
+        }
+      }
+      if (firstFailure != null){
+        throw firstFailure;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
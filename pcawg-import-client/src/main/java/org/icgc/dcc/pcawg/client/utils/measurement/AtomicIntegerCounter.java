@@ -0,0 +1,53 @@
+package org.icgc.dcc.pcawg.client.utils.measurement;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread safe counterpart of {@link IntegerCounter}, for counters that are shared between worker threads
+ */
+public class AtomicIntegerCounter implements Countable<Integer> {
+
+  private static final int DEFAULT_INIT_VAL = 0;
+
+  public static AtomicIntegerCounter newAtomicIntegerCounter(final int initVal){
+    return new AtomicIntegerCounter(initVal);
+  }
+
+  public static AtomicIntegerCounter newDefaultAtomicIntegerCounter(){
+    return newAtomicIntegerCounter(DEFAULT_INIT_VAL);
+  }
+
+  private final int initVal;
+
+  private final AtomicInteger count;
+
+  public AtomicIntegerCounter(final int initVal) {
+    this.initVal = initVal;
+    this.count = new AtomicInteger(initVal);
+  }
+
+  @Override
+  public void incr() {
+    count.incrementAndGet();
+  }
+
+  @Override
+  public void incr(final Integer amount) {
+    count.addAndGet(amount);
+  }
+
+  public int incrAndGet(){
+    return count.incrementAndGet();
+  }
+
+  @Override
+  public void reset() {
+    count.set(initVal);
+  }
+
+  @Override
+  public Integer getCount() {
+    return count.get();
+  }
+
+}
@@ -0,0 +1,357 @@
+package org.icgc.dcc.pcawg.client.utils.persistance;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.types.DataTypes;
+import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.icgc.dcc.common.core.json.Jackson.DEFAULT;
+
+/**
+ * Append-only journal of the work completed by the Importer, used to resume an interrupted import.
+ * Each line is a self contained json entry, written and synced to disk in one go, so a crash can at most leave a
+ * truncated last line, which is ignored when the journal is read back.
+ * <ul>
+ *   <li>PROJECT_START: a dccProjectCode is (re)started from scratch, invalidating its previous FILE_DONE entries</li>
+ *   <li>FILE_DONE: a file of a dccProjectCode was converted. Records the size of each primary output after the file
+ *   was flushed, the rows it wrote, and the workflow/data types needed to rebuild the metadata output</li>
+ *   <li>FILE_PROGRESS: a file of a dccProjectCode was converted up to a BGZF virtual offset. Records the same as
+ *   FILE_DONE, so far, along with the counters of the file. Superseded by the next FILE_PROGRESS or FILE_DONE</li>
+ *   <li>FILE_FAILED: a file of a dccProjectCode failed, and its rows were truncated from the primary outputs. Discards
+ *   the FILE_PROGRESS of the file, so the dccProjectCode is resumed after its last FILE_DONE</li>
+ *   <li>PROJECT_DONE: all the files of a dccProjectCode were converted, and its outputs are complete</li>
+ * </ul>
+ * Every entry records the absolute directory of the outputs it describes. A journal written for another output
+ * directory, as when the default directory of each run differs, is set aside when loaded, so that the outputs of the
+ * current directory are never resumed from the checkpoints of other ones.
+ * The journal is deleted once a whole import completes, so the next import starts over.
+ */
+@Slf4j
+public class CheckpointJournal implements Closeable {
+
+  public static final String CHECKPOINT_JOURNAL_FILENAME = "checkpoint.journal";
+  private static final String DISCARDED_EXTENSION = ".discarded";
+
+  private static final String TYPE = "type";
+  private static final String PROJECT_START = "PROJECT_START";
+  private static final String FILE_DONE = "FILE_DONE";
+  private static final String FILE_PROGRESS = "FILE_PROGRESS";
+  private static final String FILE_FAILED = "FILE_FAILED";
+  private static final String PROJECT_DONE = "PROJECT_DONE";
+  private static final String DCC_PROJECT_CODE = "dccProjectCode";
+  private static final String OUTPUT_DIR = "outputDir";
+  private static final String OBJECT_ID = "objectId";
+  private static final String OUTPUTS = "outputs";
+  private static final String BYTES = "bytes";
+  private static final String ROWS = "rows";
+  private static final String METADATA = "metadata";
+  private static final String WORKFLOW_TYPE = "workflowType";
+  private static final String DATA_TYPE = "dataType";
+  private static final String VIRTUAL_OFFSET = "virtualOffset";
+  private static final String COUNTERS = "counters";
+  private static final char NEWLINE = '\n';
+
+  /**
+   * @param outputDir directory of the outputs of the current run, made absolute
+   */
+  @SneakyThrows
+  public static CheckpointJournal newCheckpointJournal(@NonNull Path journalPath, @NonNull Path outputDir){
+    val journal = new CheckpointJournal(journalPath, outputDir.toAbsolutePath().normalize().toString(), true);
+    journal.load();
+    return journal;
+  }
+
+  /**
+   * Journal that records nothing and never reports completed work
+   */
+  public static CheckpointJournal newDisabledCheckpointJournal(){
+    return new CheckpointJournal(null, null, false);
+  }
+
+  private final Path journalPath;
+  private final String outputDir;
+  @Getter private final boolean enabled;
+
+  /**
+   * State
+   */
+  private final Set<String> doneProjects = Sets.newConcurrentHashSet();
+  private final Map<String, List<FileCheckpoint>> fileCheckpointMap = Maps.newConcurrentMap();
+  private final Map<String, FileProgress> fileProgressMap = Maps.newConcurrentMap();
+  private FileOutputStream output;
+
+  private CheckpointJournal(Path journalPath, String outputDir, final boolean enabled) {
+    this.journalPath = journalPath;
+    this.outputDir = outputDir;
+    this.enabled = enabled;
+  }
+
+  private void load() throws IOException {
+    if (!Files.exists(journalPath)){
+      return;
+    }
+    val content = new String(Files.readAllBytes(journalPath), UTF_8);
+    val lastNewline = content.lastIndexOf(NEWLINE);
+    if (lastNewline < content.length() - 1){
+      log.warn("Ignoring the truncated last entry of the checkpoint journal [{}]", journalPath);
+    }
+    val entries = Lists.<JsonNode>newArrayList();
+    for (val line : content.substring(0, lastNewline + 1).split(String.valueOf(NEWLINE))){
+      if (!line.isEmpty()){
+        entries.add(DEFAULT.readTree(line));
+      }
+    }
+    val otherOutputDir = entries.stream()
+        .map(e -> e.has(OUTPUT_DIR) ? e.get(OUTPUT_DIR).textValue() : "")
+        .filter(d -> !outputDir.equals(d))
+        .findFirst();
+    if (otherOutputDir.isPresent()){
+      val discardedPath = journalPath.resolveSibling(journalPath.getFileName() + DISCARDED_EXTENSION);
+      log.warn("The checkpoint journal [{}] is of the outputs in [{}], not in [{}]: moved it to [{}] and starting over",
+          journalPath, otherOutputDir.get(), outputDir, discardedPath);
+      Files.move(journalPath, discardedPath, REPLACE_EXISTING);
+      return;
+    }
+    entries.forEach(this::apply);
+    log.info("Restored {} entries from the checkpoint journal [{}]: {} dccProjectCodes done, {} in progress",
+        entries.size(), journalPath, doneProjects.size(), fileCheckpointMap.size());
+  }
+
+  private void apply(JsonNode entry){
+    val type = entry.get(TYPE).textValue();
+    val dccProjectCode = entry.get(DCC_PROJECT_CODE).textValue();
+    if (PROJECT_START.equals(type)){
+      doneProjects.remove(dccProjectCode);
+      fileCheckpointMap.remove(dccProjectCode);
+      fileProgressMap.remove(dccProjectCode);
+    } else if (FILE_DONE.equals(type)){
+      fileCheckpointMap.computeIfAbsent(dccProjectCode, k -> Lists.newCopyOnWriteArrayList())
+          .add(parseFileCheckpoint(entry));
+      fileProgressMap.remove(dccProjectCode);
+    } else if (FILE_PROGRESS.equals(type)){
+      fileProgressMap.put(dccProjectCode, parseFileProgress(entry));
+    } else if (FILE_FAILED.equals(type)){
+      fileProgressMap.remove(dccProjectCode);
+    } else if (PROJECT_DONE.equals(type)){
+      doneProjects.add(dccProjectCode);
+      fileCheckpointMap.remove(dccProjectCode);
+      fileProgressMap.remove(dccProjectCode);
+    } else {
+      throw new IllegalStateException(String.format("Unknown checkpoint journal entry type [%s]", type));
+    }
+  }
+
+  public boolean isProjectDone(@NonNull String dccProjectCode){
+    return doneProjects.contains(dccProjectCode);
+  }
+
+  /**
+   * @return the files of the dccProjectCode that completed since it was last started, in completion order
+   */
+  public List<FileCheckpoint> getFileCheckpoints(@NonNull String dccProjectCode){
+    return ImmutableList.copyOf(fileCheckpointMap.getOrDefault(dccProjectCode, ImmutableList.of()));
+  }
+
+  /**
+   * @return the progress of the file of the dccProjectCode that was being converted, after its completed files
+   */
+  public Optional<FileProgress> getFileProgress(@NonNull String dccProjectCode){
+    return Optional.ofNullable(fileProgressMap.get(dccProjectCode));
+  }
+
+  public void recordProjectStart(@NonNull String dccProjectCode){
+    val entry = newEntry(PROJECT_START, dccProjectCode);
+    append(entry);
+  }
+
+  public void recordFileDone(@NonNull FileCheckpoint fileCheckpoint){
+    val entry = newEntry(FILE_DONE, fileCheckpoint.getDccProjectCode());
+    putFileCheckpoint(entry, fileCheckpoint);
+    append(entry);
+  }
+
+  public void recordFileProgress(@NonNull FileProgress fileProgress){
+    val entry = newEntry(FILE_PROGRESS, fileProgress.getFileCheckpoint().getDccProjectCode());
+    putFileCheckpoint(entry, fileProgress.getFileCheckpoint());
+    entry.put(VIRTUAL_OFFSET, fileProgress.getVirtualOffset());
+    val counters = entry.putObject(COUNTERS);
+    fileProgress.getCounters().forEach(counters::put);
+    append(entry);
+  }
+
+  public void recordFileFailed(@NonNull String dccProjectCode, @NonNull String objectId){
+    val entry = newEntry(FILE_FAILED, dccProjectCode);
+    entry.put(OBJECT_ID, objectId);
+    append(entry);
+  }
+
+  public void recordProjectDone(@NonNull String dccProjectCode, @NonNull Map<String, Long> outputRows){
+    val entry = newEntry(PROJECT_DONE, dccProjectCode);
+    val outputs = entry.putObject(OUTPUTS);
+    outputRows.forEach((path, rows) -> outputs.putObject(path).put(ROWS, rows));
+    append(entry);
+  }
+
+  /**
+   * Called once the whole import completed, so that the next import starts from scratch
+   */
+  @SneakyThrows
+  public synchronized void complete(){
+    if (enabled){
+      close();
+      Files.deleteIfExists(journalPath);
+      doneProjects.clear();
+      fileCheckpointMap.clear();
+      log.info("Import complete, deleted the checkpoint journal [{}]", journalPath);
+    }
+  }
+
+  @Override
+  @SneakyThrows
+  public synchronized void close() {
+    if (output != null){
+      output.close();
+      output = null;
+    }
+  }
+
+  private ObjectNode newEntry(String type, String dccProjectCode){
+    val entry = DEFAULT.createObjectNode();
+    entry.put(TYPE, type);
+    entry.put(DCC_PROJECT_CODE, dccProjectCode);
+    entry.put(OUTPUT_DIR, outputDir);
+    return entry;
+  }
+
+  @SneakyThrows
+  private synchronized void append(ObjectNode entry){
+    if (!enabled){
+      return;
+    }
+    apply(entry);
+    if (output == null){
+      Files.createDirectories(journalPath.toAbsolutePath().getParent());
+      output = new FileOutputStream(journalPath.toFile(), true);
+    }
+    output.write((DEFAULT.writeValueAsString(entry) + NEWLINE).getBytes(UTF_8));
+    output.getFD().sync();
+  }
+
+  private static void putFileCheckpoint(ObjectNode entry, FileCheckpoint fileCheckpoint){
+    entry.put(OBJECT_ID, fileCheckpoint.getObjectId());
+    val outputs = entry.putObject(OUTPUTS);
+    for (val path : fileCheckpoint.getOutputBytes().keySet()){
+      outputs.putObject(path)
+          .put(BYTES, fileCheckpoint.getOutputBytes().get(path))
+          .put(ROWS, fileCheckpoint.getOutputRows().getOrDefault(path, 0L));
+    }
+    val metadata = entry.putArray(METADATA);
+    for (val workflowDataType : fileCheckpoint.getWorkflowDataTypes()){
+      metadata.addObject()
+          .put(WORKFLOW_TYPE, workflowDataType.getWorkflowType().name())
+          .put(DATA_TYPE, workflowDataType.getDataType().name());
+    }
+  }
+
+  private static FileProgress parseFileProgress(JsonNode entry){
+    val counters = ImmutableMap.<String, Long>builder();
+    val node = entry.get(COUNTERS);
+    node.fieldNames().forEachRemaining(name -> counters.put(name, node.get(name).longValue()));
+    return new FileProgress(parseFileCheckpoint(entry), entry.get(VIRTUAL_OFFSET).longValue(), counters.build());
+  }
+
+  private static FileCheckpoint parseFileCheckpoint(JsonNode entry){
+    val outputBytes = ImmutableMap.<String, Long>builder();
+    val outputRows = ImmutableMap.<String, Long>builder();
+    val outputs = entry.get(OUTPUTS);
+    outputs.fieldNames().forEachRemaining(path -> {
+      outputBytes.put(path, outputs.get(path).get(BYTES).longValue());
+      outputRows.put(path, outputs.get(path).get(ROWS).longValue());
+    });
+    val workflowDataTypes = ImmutableSet.<WorkflowDataType>builder();
+    for (val node : entry.get(METADATA)){
+      workflowDataTypes.add(new WorkflowDataType(
+          WorkflowTypes.valueOf(node.get(WORKFLOW_TYPE).textValue()),
+          DataTypes.valueOf(node.get(DATA_TYPE).textValue())));
+    }
+    return FileCheckpoint.builder()
+        .dccProjectCode(entry.get(DCC_PROJECT_CODE).textValue())
+        .objectId(entry.get(OBJECT_ID).textValue())
+        .outputBytes(outputBytes.build())
+        .outputRows(outputRows.build())
+        .workflowDataTypes(workflowDataTypes.build())
+        .build();
+  }
+
+  @Value
+  @Builder
+  public static class FileCheckpoint {
+
+    @NonNull private final String dccProjectCode;
+    @NonNull private final String objectId;
+
+    /**
+     * Size of each primary output file, once this file was flushed to it
+     */
+    @NonNull private final Map<String, Long> outputBytes;
+
+    /**
+     * Rows this file added to each primary output file
+     */
+    @NonNull private final Map<String, Long> outputRows;
+
+    @NonNull private final Set<WorkflowDataType> workflowDataTypes;
+
+  }
+
+  @Value
+  public static class FileProgress {
+
+    /**
+     * Outputs, rows and metadata of the file so far
+     */
+    @NonNull private final FileCheckpoint fileCheckpoint;
+
+    /**
+     * BGZF virtual offset of the first record not yet converted
+     */
+    private final long virtualOffset;
+
+    @NonNull private final Map<String, Long> counters;
+
+  }
+
+  @Value
+  public static class WorkflowDataType {
+
+    @NonNull private final WorkflowTypes workflowType;
+    @NonNull private final DataTypes dataType;
+
+  }
+
+}
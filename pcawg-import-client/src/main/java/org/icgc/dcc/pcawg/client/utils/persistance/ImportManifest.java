@@ -0,0 +1,115 @@
+package org.icgc.dcc.pcawg.client.utils.persistance;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.icgc.dcc.common.core.json.Jackson.DEFAULT;
+
+/**
+ * Manifest of the inputs each dccProjectCode was last imported from: the md5sum of every file, along with the version
+ * of the importer and of the dictionary used. An incremental import only reconverts the projects whose inputs or
+ * versions differ from the manifest.
+ * Since the ssm_p and ssm_m outputs are per dccProjectCode, a project with a single new, changed or removed file is
+ * reconverted entirely.
+ * The manifest is rewritten atomically after every completed project.
+ */
+@Slf4j
+public class ImportManifest {
+
+  public static final String IMPORT_MANIFEST_FILENAME = "import.manifest.json";
+
+  private static final String VERSION = "version";
+  private static final String PROJECTS = "projects";
+
+  @SneakyThrows
+  public static ImportManifest newImportManifest(@NonNull Path manifestPath, @NonNull String version){
+    val manifest = new ImportManifest(manifestPath, version);
+    manifest.load();
+    return manifest;
+  }
+
+  private final Path manifestPath;
+  @Getter private final String version;
+
+  /**
+   * State, dccProjectCode -> (objectId -> fileMd5sum)
+   */
+  private final Map<String, Map<String, String>> projectMap = Maps.newTreeMap();
+
+  private ImportManifest(Path manifestPath, String version) {
+    this.manifestPath = manifestPath;
+    this.version = version;
+  }
+
+  private void load() throws IOException {
+    if (!Files.exists(manifestPath)){
+      log.info("No import manifest found at [{}], all dccProjectCodes will be imported", manifestPath);
+      return;
+    }
+    val root = DEFAULT.readTree(manifestPath.toFile());
+    val previousVersion = root.path(VERSION).asText();
+    if (!version.equals(previousVersion)){
+      log.info("The import manifest [{}] was written by version [{}], but the current version is [{}]. "
+          + "All dccProjectCodes will be imported", manifestPath, previousVersion, version);
+      return;
+    }
+    val projects = root.get(PROJECTS);
+    projects.fieldNames().forEachRemaining(dccProjectCode -> {
+      val files = ImmutableMap.<String, String>builder();
+      val node = projects.get(dccProjectCode);
+      node.fieldNames().forEachRemaining(objectId -> files.put(objectId, node.get(objectId).textValue()));
+      projectMap.put(dccProjectCode, files.build());
+    });
+    log.info("Loaded the import manifest [{}] with {} dccProjectCodes", manifestPath, projectMap.size());
+  }
+
+  private static Map<String, String> toFileMap(Collection<PortalMetadata> portalMetadatas){
+    val map = Maps.<String, String>newTreeMap();
+    portalMetadatas.forEach(p -> map.put(p.getObjectId(), p.getFileMd5sum()));
+    return map;
+  }
+
+  /**
+   * @return true if the dccProjectCode was last imported with the same version, from exactly the same files
+   */
+  public synchronized boolean isUpToDate(@NonNull String dccProjectCode, @NonNull Collection<PortalMetadata> portalMetadatas){
+    val previous = projectMap.get(dccProjectCode);
+    return previous != null && previous.equals(toFileMap(portalMetadatas));
+  }
+
+  public synchronized void record(@NonNull String dccProjectCode, @NonNull Collection<PortalMetadata> portalMetadatas){
+    projectMap.put(dccProjectCode, toFileMap(portalMetadatas));
+    store();
+  }
+
+  @SneakyThrows
+  private void store(){
+    val root = DEFAULT.createObjectNode();
+    root.put(VERSION, version);
+    val projects = root.putObject(PROJECTS);
+    projectMap.forEach((dccProjectCode, files) -> {
+      final ObjectNode node = projects.putObject(dccProjectCode);
+      files.forEach(node::put);
+    });
+    Files.createDirectories(manifestPath.toAbsolutePath().getParent());
+    val tempPath = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+    DEFAULT.writerWithDefaultPrettyPrinter().writeValue(tempPath.toFile(), root);
+    Files.move(tempPath, manifestPath, REPLACE_EXISTING, ATOMIC_MOVE);
+  }
+
+}
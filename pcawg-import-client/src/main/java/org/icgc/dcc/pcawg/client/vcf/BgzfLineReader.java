@@ -0,0 +1,27 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Line oriented reader over a block gzipped (BGZF) file, addressed with BGZF virtual offsets: the address of the
+ * compressed block in the upper 48 bits, and the offset within the uncompressed block in the lower 16 bits.
+ */
+public interface BgzfLineReader extends Closeable {
+
+  /**
+   * @return the next line without its line terminator, or null at the end of the file
+   */
+  String readLine() throws IOException;
+
+  /**
+   * @return the virtual offset of the next byte to be read
+   */
+  long getFilePointer();
+
+  /**
+   * Positions the reader at a virtual offset previously returned by getFilePointer
+   */
+  void seek(long virtualOffset) throws IOException;
+
+}
@@ -0,0 +1,367 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static org.icgc.dcc.pcawg.client.vcf.ConsensusVariantParser.newConsensusVariantParser;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegion.newContigRegion;
+import static org.icgc.dcc.pcawg.client.vcf.ParallelBgzfLineReader.newParallelBgzfLineReader;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.POS;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.REF;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.findColumns;
+
+/**
+ * Reads a block gzipped (BGZF) vcf file line by line, tracking the BGZF virtual offset of every record, so that a
+ * partially read file can be resumed from a recorded offset with seek, instead of from the start.
+ * The blocks are either inflated by the reading thread, with a BlockCompressedInputStream, or ahead of it by a
+ * ParallelBgzfLineReader.
+ * A checkpoint handler can be registered, which is called with the virtual offset of the next record, between two
+ * records and at most once per interval. When the records are consumed one at a time (a sequential Stream or a plain
+ * loop), every record before that offset has been fully handled by the time the handler is called.
+ * The records can also be iterated as ConsensusVariants, parsed straight from their lines, optionally restricted to
+ * a single contig or region.
+ * Only one iteration is supported at a time.
+ */
+public class BgzfVcfReader implements Iterable<VariantContext>, Closeable {
+
+  private static final String HEADER_PREFIX = "#";
+  private static final char TAB = '\t';
+
+  @SneakyThrows
+  public static boolean isBgzfFile(@NonNull File vcfFile){
+    try (val input = new BufferedInputStream(new FileInputStream(vcfFile))){
+      return BlockCompressedInputStream.isValidFile(input);
+    }
+  }
+
+  public static BgzfVcfReader newBgzfVcfReader(@NonNull File vcfFile){
+    return newBgzfVcfReader(vcfFile, 0);
+  }
+
+  /**
+   * @param inflateThreads number of threads inflating the blocks ahead of the reader. 0 inflates on the reading thread
+   */
+  @SneakyThrows
+  public static BgzfVcfReader newBgzfVcfReader(@NonNull File vcfFile, final int inflateThreads){
+    checkArgument(vcfFile.exists(), "The VCF File [%s] DNE", vcfFile.getName());
+    val input = inflateThreads > 0 ?
+        newParallelBgzfLineReader(vcfFile, inflateThreads) : newBlockCompressedLineReader(vcfFile);
+    val reader = new BgzfVcfReader(input);
+    reader.readHeader();
+    return reader;
+  }
+
+  @SneakyThrows
+  private static BgzfLineReader newBlockCompressedLineReader(File vcfFile){
+    val input = new BlockCompressedInputStream(vcfFile);
+    return new BgzfLineReader() {
+
+      @Override
+      public String readLine() throws IOException {
+        return input.readLine();
+      }
+
+      @Override
+      public long getFilePointer() {
+        return input.getFilePointer();
+      }
+
+      @Override
+      public void seek(final long virtualOffset) throws IOException {
+        input.seek(virtualOffset);
+      }
+
+      @Override
+      public void close() throws IOException {
+        input.close();
+      }
+
+    };
+  }
+
+  @NonNull private final BgzfLineReader input;
+  private final VCFCodec codec = new VCFCodec();
+  private final ConsensusVariantParser consensusVariantParser = newConsensusVariantParser(codec);
+
+  /**
+   * State
+   */
+  @Getter private VCFHeader fileHeader;
+  private String nextLine;
+  private long nextLineOffset;
+  private LongConsumer checkpointHandler;
+  private long checkpointIntervalNanos;
+  private long lastCheckpointNanos;
+
+  private BgzfVcfReader(BgzfLineReader input) {
+    this.input = input;
+  }
+
+  private void readHeader(){
+    val headerLines = Lists.<String>newArrayList();
+    advance();
+    while (nextLine != null && nextLine.startsWith(HEADER_PREFIX)){
+      headerLines.add(nextLine);
+      advance();
+    }
+    fileHeader = (VCFHeader) codec.readActualHeader(new HeaderLineIterator(headerLines));
+  }
+
+  @SneakyThrows
+  private void advance(){
+    nextLineOffset = input.getFilePointer();
+    nextLine = input.readLine();
+  }
+
+  /**
+   * @return the virtual offset of the next record to be read
+   */
+  public long getFilePointer(){
+    return nextLineOffset;
+  }
+
+  /**
+   * Positions the reader on the record at the virtualOffset, previously returned by getFilePointer
+   */
+  @SneakyThrows
+  public void seek(final long virtualOffset){
+    input.seek(virtualOffset);
+    advance();
+  }
+
+  public void setCheckpointHandler(final long intervalNanos, @NonNull LongConsumer checkpointHandler){
+    checkArgument(intervalNanos > 0, "The checkpoint interval [%s] must be greater than 0", intervalNanos);
+    this.checkpointIntervalNanos = intervalNanos;
+    this.checkpointHandler = checkpointHandler;
+    this.lastCheckpointNanos = System.nanoTime();
+  }
+
+  private void checkpointIfDue(){
+    if (checkpointHandler != null && nextLine != null){
+      val now = System.nanoTime();
+      if (now - lastCheckpointNanos >= checkpointIntervalNanos){
+        checkpointHandler.accept(nextLineOffset);
+        lastCheckpointNanos = System.nanoTime();
+      }
+    }
+  }
+
+  @Override
+  public Iterator<VariantContext> iterator() {
+    return newIterator(codec::decode);
+  }
+
+  /**
+   * @param rejectFiltered if true, the records whose FILTER is neither PASS nor missing are returned by
+   * consensusVariants as a shared filtered record, without being parsed. Only set when the noise filter drops them
+   */
+  public void setRejectFilteredRecords(final boolean rejectFiltered){
+    consensusVariantParser.setRejectFiltered(rejectFiltered);
+  }
+
+  /**
+   * @return the records as ConsensusVariants, which only fall back to a VariantContext for unusual lines
+   */
+  public Iterable<ConsensusVariant> consensusVariants(){
+    return () -> newIterator(consensusVariantParser::parse);
+  }
+
+  /**
+   * @return the records of the contig as ConsensusVariants, from the current position up to the first record of
+   * another contig
+   */
+  public Iterable<ConsensusVariant> consensusVariants(@NonNull String contig){
+    return consensusVariants(newContigRegion(contig));
+  }
+
+  /**
+   * @return the records overlapping the region as ConsensusVariants, from the current position up to the first record
+   * starting after the region. The records before the region are skipped without being parsed
+   */
+  public Iterable<ConsensusVariant> consensusVariants(@NonNull GenomicRegion region){
+    return () -> newIterator(consensusVariantParser::parse, region);
+  }
+
+  /**
+   * Reads the rest of the file, only looking at the contig of every record
+   * @return the virtual offset of the first record of every contig, in the order of the file, or empty if the
+   * records of a contig are not all next to each other
+   */
+  public Optional<Map<String, Long>> scanContigOffsets(){
+    checkState(fileHeader != null, "The header was not read");
+    val contigOffsets = Maps.<String, Long>newLinkedHashMap();
+    String contig = null;
+    while (nextLine != null){
+      if (contig == null || !isContig(nextLine, contig)){
+        contig = getContig(nextLine);
+        if (contigOffsets.put(contig, nextLineOffset) != null){
+          return Optional.empty();
+        }
+      }
+      advance();
+    }
+    return Optional.of(contigOffsets);
+  }
+
+  private static boolean isContig(String line, String contig){
+    return line.length() > contig.length() && line.charAt(contig.length()) == TAB && line.startsWith(contig);
+  }
+
+  /**
+   * @return true if the record of the line, on the contig of the region, ends before the start of the region
+   */
+  private static boolean isBeforeRegion(String line, GenomicRegion region){
+    if (region.getStart() == 1){
+      return false;
+    }
+    val columns = findColumns(line);
+    if (columns == null){
+      return false;
+    }
+    val refLength = columns[REF + 1] - 1 - columns[REF];
+    return (long) parsePosition(line, columns) + refLength - 1 < region.getStart();
+  }
+
+  /**
+   * @return true if the record of the line, on the contig of the region, starts after the end of the region
+   */
+  private static boolean isAfterRegion(String line, GenomicRegion region){
+    if (region.getEnd() == Integer.MAX_VALUE){
+      return false;
+    }
+    val columns = findColumns(line);
+    return columns != null && parsePosition(line, columns) > region.getEnd();
+  }
+
+  /**
+   * @return the POS of the line, or -1 if it is not a number, which is left to the parser to reject
+   */
+  private static long parsePosition(String line, int[] columns){
+    val end = columns[POS + 1] - 1;
+    if (end <= columns[POS] || end - columns[POS] > 18){
+      return -1;
+    }
+    long position = 0;
+    for (int i = columns[POS]; i < end; i++){
+      val c = line.charAt(i);
+      if (c < '0' || c > '9'){
+        return -1;
+      }
+      position = position * 10 + (c - '0');
+    }
+    return position;
+  }
+
+  private static String getContig(String line){
+    val end = line.indexOf(TAB);
+    return end < 0 ? line : line.substring(0, end);
+  }
+
+  private <T> Iterator<T> newIterator(Function<String, T> decoder){
+    return newIterator(decoder, null);
+  }
+
+  /**
+   * @param region if not null, the records ending before the region are skipped, and the iteration stops at the first
+   * record of another contig or starting after the region
+   */
+  private <T> Iterator<T> newIterator(Function<String, T> decoder, GenomicRegion region){
+    checkState(fileHeader != null, "The header was not read");
+    return new Iterator<T>() {
+
+      private boolean isInRegion(){
+        if (region == null){
+          return true;
+        }
+        if (!isContig(nextLine, region.getContig())){
+          return false;
+        }
+        while (isBeforeRegion(nextLine, region)){
+          advance();
+          if (nextLine == null || !isContig(nextLine, region.getContig())){
+            return false;
+          }
+        }
+        return !isAfterRegion(nextLine, region);
+      }
+
+      @Override
+      public boolean hasNext() {
+        checkpointIfDue();
+        return nextLine != null && isInRegion();
+      }
+
+      @Override
+      public T next() {
+        if (nextLine == null || !isInRegion()){
+          throw new NoSuchElementException();
+        }
+        val record = decoder.apply(nextLine);
+        advance();
+        return record;
+      }
+
+    };
+  }
+
+  @Override
+  @SneakyThrows
+  public void close() {
+    input.close();
+  }
+
+  /**
+   * The VCFCodec reads its header through a LineIterator
+   */
+  private static class HeaderLineIterator implements LineIterator {
+
+    private final PeekingIterator<String> delegate;
+
+    HeaderLineIterator(List<String> lines){
+      this.delegate = Iterators.peekingIterator(lines.iterator());
+    }
+
+    @Override
+    public String peek() {
+      return delegate.peek();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return delegate.hasNext();
+    }
+
+    @Override
+    public String next() {
+      return delegate.next();
+    }
+
+  }
+
+}
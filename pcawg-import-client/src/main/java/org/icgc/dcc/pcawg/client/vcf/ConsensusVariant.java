@@ -0,0 +1,56 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import htsjdk.variant.vcf.VCFEncoder;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The fields of a consensus vcf record the converters and filters need. Implemented either over the raw line of the
+ * record, by a RawConsensusVariant, or over a fully decoded htsjdk VariantContext, by a VariantContextConsensusVariant
+ */
+public interface ConsensusVariant {
+
+  String getContig();
+
+  int getStart();
+
+  String getReferenceAlleleString();
+
+  /**
+   * TODO: Assumption is there there is ONLY ONE alternative allele.
+   * @throws IllegalStateException for when there is more than one alternative allele
+   */
+  String getFirstAlternativeAlleleString();
+
+  /**
+   * @return true if the FILTER is PASS or missing
+   */
+  boolean isNotFiltered();
+
+  /**
+   * @return the values of the Callers INFO key, or an empty list if missing
+   */
+  List<String> getCallers();
+
+  /**
+   * @return the bitmask of the WorkflowTypes matching the Callers, or 0 if missing
+   * @see org.icgc.dcc.pcawg.client.core.types.WorkflowTypes#getMask()
+   */
+  int getCallerMask();
+
+  Optional<Integer> getRefCount();
+
+  Optional<Integer> getAltCount();
+
+  /**
+   * @return the record as a vcf line, for tools like SnpEff
+   */
+  String encode(VCFEncoder encoder);
+
+  /**
+   * Appends the CHROM, POS, ID, REF and ALT columns of the record, tab separated, as encoded in a vcf line
+   */
+  void appendVariantColumns(StringBuilder builder);
+
+}
@@ -0,0 +1,122 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderVersion;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.val;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.ALT;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.CHROM;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.FILTER;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.INFO;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.POS;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.REF;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.findColumns;
+import static org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant.isFilteredLine;
+import static org.icgc.dcc.pcawg.client.vcf.VariantContextConsensusVariant.newVariantContextConsensusVariant;
+
+/**
+ * Parses the lines of a consensus vcf file into ConsensusVariants.
+ * Lines with the usual shape (a numeric POS and a single alternative allele, where both alleles are distinct and made
+ * of plain upper case bases) are read as RawConsensusVariants. Any other line (symbolic or multiple alternative
+ * alleles, missing columns, etc) is decoded by htsjdk, so that it is handled, or rejected, exactly like before.
+ * When rejectFiltered is set, the records whose FILTER is neither PASS nor missing are rejected before any of this,
+ * as the shared FilteredConsensusVariant, so that neither their columns nor a VariantContext are built.
+ * Not thread safe, like the VCFCodec it falls back to.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class ConsensusVariantParser {
+
+  public static ConsensusVariantParser newConsensusVariantParser(@NonNull VCFHeader vcfHeader){
+    val codec = new VCFCodec();
+    codec.setVCFHeader(vcfHeader, VCFHeaderVersion.VCF4_1);
+    return newConsensusVariantParser(codec);
+  }
+
+  /**
+   * @param codec whose header was already read
+   */
+  public static ConsensusVariantParser newConsensusVariantParser(@NonNull VCFCodec codec){
+    return new ConsensusVariantParser(codec);
+  }
+
+  @NonNull private final VCFCodec codec;
+
+  /**
+   * Configuration
+   */
+  @Setter private boolean rejectFiltered;
+
+  /**
+   * State
+   */
+  @Getter private long fallbackCount;
+  @Getter private long rejectedCount;
+
+  public ConsensusVariant parse(@NonNull String line){
+    if (rejectFiltered && isFilteredLine(line)){
+      rejectedCount++;
+      return FilteredConsensusVariant.INSTANCE;
+    }
+    val columns = findColumns(line);
+    if (columns != null && isUsual(line, columns)){
+      return new RawConsensusVariant(line, columns);
+    }
+    fallbackCount++;
+    return newVariantContextConsensusVariant(codec.decode(line));
+  }
+
+  private static boolean isUsual(String line, int[] columns){
+    return columns[CHROM + 1] - 1 > columns[CHROM]
+        && isDigits(line, columns[POS], columns[POS + 1] - 1)
+        && isBases(line, columns[REF], columns[REF + 1] - 1)
+        && isBases(line, columns[ALT], columns[ALT + 1] - 1)
+        && !isSameColumn(line, columns, REF, ALT)
+        && columns[FILTER + 1] - 1 > columns[FILTER]
+        && columns[INFO + 1] - 1 > columns[INFO];
+  }
+
+  private static boolean isSameColumn(String line, int[] columns, int column, int otherColumn){
+    val length = columns[column + 1] - 1 - columns[column];
+    return length == columns[otherColumn + 1] - 1 - columns[otherColumn]
+        && line.regionMatches(columns[column], line, columns[otherColumn], length);
+  }
+
+  private static boolean isDigits(String line, int start, int end){
+    if (start >= end || end - start > 9){
+      return false;
+    }
+    for (int i = start; i < end; i++){
+      val c = line.charAt(i);
+      if (c < '0' || c > '9'){
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isBases(String line, int start, int end){
+    if (start >= end){
+      return false;
+    }
+    for (int i = start; i < end; i++){
+      switch (line.charAt(i)){
+        case 'A':
+        case 'C':
+        case 'G':
+        case 'T':
+        case 'N':
+          break;
+        default:
+          return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,76 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import htsjdk.variant.vcf.VCFEncoder;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Stands for any record whose FILTER is neither PASS nor missing, when ConsensusVariantParser rejects them. Only
+ * isNotFiltered can be called, so that the record is counted and then dropped by the noise filter, without anything
+ * built for it
+ */
+enum FilteredConsensusVariant implements ConsensusVariant {
+
+  INSTANCE;
+
+  @Override
+  public boolean isNotFiltered() {
+    return false;
+  }
+
+  private static IllegalStateException newFilteredException(){
+    return new IllegalStateException("The fields of a filtered record are not parsed");
+  }
+
+  @Override
+  public String getContig() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public int getStart() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public String getReferenceAlleleString() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public String getFirstAlternativeAlleleString() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public List<String> getCallers() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public int getCallerMask() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public Optional<Integer> getRefCount() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public Optional<Integer> getAltCount() {
+    throw newFilteredException();
+  }
+
+  @Override
+  public String encode(VCFEncoder encoder) {
+    throw newFilteredException();
+  }
+
+  @Override
+  public void appendVariantColumns(StringBuilder builder) {
+    throw newFilteredException();
+  }
+
+}
@@ -0,0 +1,49 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+import lombok.Value;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Interval of a contig, with 1-based and inclusive start and end positions, like the POS of a vcf record
+ */
+@Value
+@AllArgsConstructor(access = PRIVATE)
+public class GenomicRegion {
+
+  public static GenomicRegion newGenomicRegion(String contig, final int start, final int end){
+    checkArgument(start >= 1 && start <= end, "The region [%s:%s-%s] is not valid", contig, start, end);
+    return new GenomicRegion(contig, start, end);
+  }
+
+  /**
+   * @return the whole contig
+   */
+  public static GenomicRegion newContigRegion(String contig){
+    return new GenomicRegion(contig, 1, Integer.MAX_VALUE);
+  }
+
+  @NonNull private final String contig;
+  private final int start;
+  private final int end;
+
+  public boolean isWholeContig(){
+    return start == 1 && end == Integer.MAX_VALUE;
+  }
+
+  /**
+   * @return true if the interval from start to end, of the same contig, overlaps this region
+   */
+  public boolean overlaps(final int start, final int end){
+    return start <= this.end && end >= this.start;
+  }
+
+  @Override
+  public String toString() {
+    return isWholeContig() ? contig : contig + ":" + start + "-" + end;
+  }
+
+}
@@ -0,0 +1,143 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegion.newContigRegion;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegion.newGenomicRegion;
+
+/**
+ * The regions of the genome an import is restricted to, merged so that they do not overlap.
+ * Given either as a comma separated list of contigs (1,2,X) and intervals (1:1000-2000), or as the path of a BED file
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public final class GenomicRegions {
+
+  private static final String BED_EXTENSION = ".bed";
+  private static final Splitter COMMA = Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final Splitter TAB = Splitter.on('\t');
+  private static final Pattern INTERVAL = Pattern.compile("(.+):(\\d+)-(\\d+)");
+  private static final Pattern UNSAFE_NAME_CHARS = Pattern.compile("[^A-Za-z0-9._-]+");
+
+  /**
+   * @return empty if the regionsSpec is null or blank, meaning the whole genome
+   */
+  public static Optional<GenomicRegions> parseGenomicRegions(String regionsSpec){
+    if (regionsSpec == null || regionsSpec.trim().isEmpty()){
+      return Optional.empty();
+    }
+    val spec = regionsSpec.trim();
+    if (spec.endsWith(BED_EXTENSION)){
+      val bedPath = Paths.get(spec);
+      val name = bedPath.getFileName().toString();
+      return Optional.of(newGenomicRegions(name.substring(0, name.length() - BED_EXTENSION.length()),
+          readBedRegions(bedPath)));
+    }
+    val regions = COMMA.splitToList(spec).stream()
+        .map(GenomicRegions::parseRegion)
+        .collect(toList());
+    return Optional.of(newGenomicRegions(spec, regions));
+  }
+
+  private static GenomicRegions newGenomicRegions(String name, List<GenomicRegion> regions){
+    checkArgument(!regions.isEmpty(), "The regions [%s] are empty", name);
+    return new GenomicRegions(UNSAFE_NAME_CHARS.matcher(name).replaceAll("_"), merge(regions));
+  }
+
+  private static GenomicRegion parseRegion(String region){
+    val matcher = INTERVAL.matcher(region);
+    if (matcher.matches()){
+      return newGenomicRegion(matcher.group(1), Integer.parseInt(matcher.group(2)),
+          Integer.parseInt(matcher.group(3)));
+    }
+    return newContigRegion(region);
+  }
+
+  /**
+   * BED intervals are 0-based and half open
+   */
+  @SneakyThrows
+  private static List<GenomicRegion> readBedRegions(Path bedPath){
+    checkArgument(Files.isRegularFile(bedPath), "The BED file [%s] DNE", bedPath);
+    val regions = ImmutableList.<GenomicRegion>builder();
+    for (val line : Files.readAllLines(bedPath, UTF_8)){
+      if (line.trim().isEmpty() || line.startsWith("#") || line.startsWith("track") || line.startsWith("browser")){
+        continue;
+      }
+      val columns = TAB.splitToList(line);
+      checkArgument(columns.size() >= 3, "The BED line [%s] of [%s] has less than 3 columns", line, bedPath);
+      regions.add(newGenomicRegion(columns.get(0), Integer.parseInt(columns.get(1).trim()) + 1,
+          Integer.parseInt(columns.get(2).trim())));
+    }
+    return regions.build();
+  }
+
+  /**
+   * Sorts the regions of each contig, and merges the ones that overlap or touch. The contigs keep the order they were
+   * first given in
+   */
+  private static List<GenomicRegion> merge(List<GenomicRegion> regions){
+    val regionsByContig = Maps.<String, List<GenomicRegion>>newLinkedHashMap();
+    regions.forEach(r -> regionsByContig.computeIfAbsent(r.getContig(), c -> Lists.newArrayList()).add(r));
+    val merged = ImmutableList.<GenomicRegion>builder();
+    for (val contigRegions : regionsByContig.values()){
+      contigRegions.sort(Comparator.comparingInt(GenomicRegion::getStart));
+      GenomicRegion current = null;
+      for (val region : contigRegions){
+        if (current == null){
+          current = region;
+        } else if ((long) region.getStart() <= (long) current.getEnd() + 1){
+          current = newGenomicRegion(current.getContig(), current.getStart(),
+              Math.max(current.getEnd(), region.getEnd()));
+        } else {
+          merged.add(current);
+          current = region;
+        }
+      }
+      merged.add(current);
+    }
+    return merged.build();
+  }
+
+  /**
+   * Safe to use in file names
+   */
+  @NonNull @Getter private final String name;
+  @NonNull @Getter private final List<GenomicRegion> regions;
+
+  public boolean overlaps(@NonNull ConsensusVariant variant){
+    val start = variant.getStart();
+    val end = start + variant.getReferenceAlleleString().length() - 1;
+    for (val region : regions){
+      if (region.getContig().equals(variant.getContig()) && region.overlaps(start, end)){
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return regions.toString();
+  }
+
+}
@@ -0,0 +1,250 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.val;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+/**
+ * BgzfLineReader that inflates the blocks ahead of the reader on a pool of inflateThreads threads.
+ * The compressed blocks are read sequentially from the file by the calling thread, and each one is handed to the pool
+ * as soon as it is read, with up to READ_AHEAD_PER_THREAD blocks per thread in flight. The inflated blocks are then
+ * consumed in file order, so the lines and virtual offsets are exactly the ones of a BlockCompressedInputStream.
+ * The bytes are decoded as ISO-8859-1, one char per byte, like BlockCompressedInputStream.readLine.
+ */
+public final class ParallelBgzfLineReader implements BgzfLineReader {
+
+  private static final int READ_AHEAD_PER_THREAD = 4;
+  private static final int BLOCK_HEADER_LENGTH = 18;
+  private static final int BLOCK_FOOTER_LENGTH = 8;
+  private static final int BSIZE_OFFSET = 16;
+  private static final int GZIP_ID1 = 31;
+  private static final int GZIP_ID2 = 139;
+  private static final int SHIFT_AMOUNT = 16;
+  private static final int OFFSET_MASK = 0xFFFF;
+  private static final byte LF = '\n';
+  private static final byte CR = '\r';
+
+  private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+  public static ParallelBgzfLineReader newParallelBgzfLineReader(@NonNull File file, final int inflateThreads){
+    checkArgument(inflateThreads > 0, "The number of inflateThreads [%s] must be greater than 0", inflateThreads);
+    return new ParallelBgzfLineReader(file, inflateThreads);
+  }
+
+  private final RandomAccessFile input;
+  private final long fileLength;
+  private final ExecutorService inflaterPool;
+  private final int maxPendingBlocks;
+
+  /**
+   * State
+   */
+  private final Deque<Future<Block>> pendingBlocks = new ArrayDeque<>();
+  private long nextBlockAddress = 0;
+  private Block currentBlock;
+  private int currentOffset;
+  private byte[] lineBuffer = new byte[1 << 12];
+
+  @SneakyThrows
+  private ParallelBgzfLineReader(File file, final int inflateThreads) {
+    this.input = new RandomAccessFile(file, "r");
+    this.fileLength = input.length();
+    this.inflaterPool = Executors.newFixedThreadPool(inflateThreads, new ThreadFactoryBuilder()
+        .setNameFormat("bgzf-inflater-%d")
+        .setDaemon(true)
+        .build());
+    this.maxPendingBlocks = inflateThreads * READ_AHEAD_PER_THREAD;
+  }
+
+  /**
+   * Reads the next compressed block, starting at nextBlockAddress
+   * @return null at the end of the file
+   */
+  private RawBlock readRawBlock() throws IOException {
+    if (nextBlockAddress >= fileLength){
+      return null;
+    }
+    val header = new byte[BLOCK_HEADER_LENGTH];
+    input.seek(nextBlockAddress);
+    input.readFully(header);
+    if ((header[0] & 0xFF) != GZIP_ID1 || (header[1] & 0xFF) != GZIP_ID2){
+      throw new IOException(String.format("Invalid BGZF block header at address %s", nextBlockAddress));
+    }
+    val blockLength = ((header[BSIZE_OFFSET] & 0xFF) | ((header[BSIZE_OFFSET + 1] & 0xFF) << 8)) + 1;
+    val block = Arrays.copyOf(header, blockLength);
+    input.readFully(block, BLOCK_HEADER_LENGTH, blockLength - BLOCK_HEADER_LENGTH);
+    val rawBlock = new RawBlock(nextBlockAddress, block);
+    nextBlockAddress += blockLength;
+    return rawBlock;
+  }
+
+  private static Block inflate(RawBlock rawBlock) throws DataFormatException {
+    val data = rawBlock.data;
+    val footer = data.length - BLOCK_FOOTER_LENGTH;
+    val uncompressedLength = (data[footer + 4] & 0xFF)
+        | ((data[footer + 5] & 0xFF) << 8)
+        | ((data[footer + 6] & 0xFF) << 16)
+        | ((data[footer + 7] & 0xFF) << 24);
+    val uncompressed = new byte[uncompressedLength];
+    val inflater = INFLATER.get();
+    inflater.reset();
+    inflater.setInput(data, BLOCK_HEADER_LENGTH, footer - BLOCK_HEADER_LENGTH);
+    val inflatedLength = inflater.inflate(uncompressed);
+    if (inflatedLength != uncompressedLength){
+      throw new DataFormatException(String.format("Inflated %s bytes instead of %s for the BGZF block at address %s",
+          inflatedLength, uncompressedLength, rawBlock.address));
+    }
+    return new Block(rawBlock.address, rawBlock.address + data.length, uncompressed);
+  }
+
+  private void fillPendingBlocks() throws IOException {
+    while (pendingBlocks.size() < maxPendingBlocks){
+      val rawBlock = readRawBlock();
+      if (rawBlock == null){
+        return;
+      }
+      pendingBlocks.add(inflaterPool.submit(() -> inflate(rawBlock)));
+    }
+  }
+
+  /**
+   * Moves to the next non empty block
+   * @return false at the end of the file
+   */
+  private boolean nextBlock() throws IOException {
+    do {
+      fillPendingBlocks();
+      val future = pendingBlocks.poll();
+      if (future == null){
+        currentBlock = null;
+        return false;
+      }
+      currentBlock = getBlock(future);
+      currentOffset = 0;
+    } while (currentBlock.data.length == 0);
+    fillPendingBlocks();
+    return true;
+  }
+
+  private static Block getBlock(Future<Block> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e){
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while inflating a BGZF block", e);
+    } catch (ExecutionException e){
+      throw new IOException("Failed to inflate a BGZF block", e.getCause());
+    }
+  }
+
+  private boolean hasAvailable() throws IOException {
+    return (currentBlock != null && currentOffset < currentBlock.data.length) || nextBlock();
+  }
+
+  @Override
+  public String readLine() throws IOException {
+    int length = 0;
+    boolean readAny = false;
+    while (hasAvailable()){
+      readAny = true;
+      val data = currentBlock.data;
+      int end = currentOffset;
+      while (end < data.length && data[end] != LF){
+        end++;
+      }
+      val chunk = end - currentOffset;
+      if (length + chunk > lineBuffer.length){
+        lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, length + chunk));
+      }
+      System.arraycopy(data, currentOffset, lineBuffer, length, chunk);
+      length += chunk;
+      currentOffset = end;
+      if (end < data.length){
+        // Skip the line feed
+        currentOffset++;
+        break;
+      }
+    }
+    if (!readAny){
+      return null;
+    }
+    if (length > 0 && lineBuffer[length - 1] == CR){
+      length--;
+    }
+    return new String(lineBuffer, 0, length, ISO_8859_1);
+  }
+
+  /**
+   * Like BlockCompressedInputStream, the end of a block is reported as the start of the next one
+   */
+  @Override
+  public long getFilePointer() {
+    if (currentBlock == null){
+      return nextBlockAddress << SHIFT_AMOUNT;
+    } else if (currentOffset == currentBlock.data.length){
+      return currentBlock.nextAddress << SHIFT_AMOUNT;
+    }
+    return (currentBlock.address << SHIFT_AMOUNT) | currentOffset;
+  }
+
+  @Override
+  public void seek(final long virtualOffset) throws IOException {
+    pendingBlocks.forEach(f -> f.cancel(false));
+    pendingBlocks.clear();
+    currentBlock = null;
+    nextBlockAddress = virtualOffset >>> SHIFT_AMOUNT;
+    val offset = (int) (virtualOffset & OFFSET_MASK);
+    if (nextBlock()){
+      checkArgument(offset <= currentBlock.data.length,
+          "The offset %s is past the end of the BGZF block at address %s", offset, currentBlock.address);
+      currentOffset = offset;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    pendingBlocks.forEach(f -> f.cancel(false));
+    pendingBlocks.clear();
+    inflaterPool.shutdownNow();
+    input.close();
+  }
+
+  @Value
+  private static class RawBlock {
+
+    private final long address;
+    private final byte[] data;
+
+  }
+
+  /**
+   * Inflated block, along with the address of the compressed block and of the next one
+   */
+  @Value
+  private static class Block {
+
+    private final long address;
+    private final long nextAddress;
+    private final byte[] data;
+
+  }
+
+}
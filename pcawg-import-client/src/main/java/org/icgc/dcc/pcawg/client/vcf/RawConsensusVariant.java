@@ -0,0 +1,266 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import htsjdk.variant.vcf.VCFEncoder;
+import lombok.NonNull;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ConsensusVariant read straight from the tab separated line of a record, without building a VariantContext.
+ * Only the column boundaries are located up front; the columns are extracted when asked for, and the INFO column is
+ * only scanned for the key asked for. Filtered records are therefore rejected without any other allocation.
+ * Instances are created by a ConsensusVariantParser, which only accepts lines whose columns it can read like htsjdk.
+ */
+public final class RawConsensusVariant implements ConsensusVariant {
+
+  static final int CHROM = 0;
+  static final int POS = 1;
+  static final int REF = 3;
+  static final int ALT = 4;
+  static final int FILTER = 6;
+  static final int INFO = 7;
+  static final int NUM_COLUMNS = 8;
+
+  private static final char TAB = '\t';
+  private static final char INFO_SEPARATOR = ';';
+  private static final char KEY_VALUE_SEPARATOR = '=';
+  private static final String PASS = "PASS";
+  private static final String MISSING = ".";
+  private static final char LIST_SEPARATOR = ',';
+  private static final String FLAG_VALUE = "true";
+  private static final Splitter LIST_SPLITTER = Splitter.on(LIST_SEPARATOR);
+  private static final int MISSING_KEY = -1;
+  private static final int FLAG = -2;
+
+  /**
+   * @return the start of each of the NUM_COLUMNS columns, followed by the end of the last one, or null if the line
+   * has less columns
+   */
+  static int[] findColumns(@NonNull String line){
+    final int[] columns = new int[NUM_COLUMNS + 1];
+    int column = 1;
+    for (int i = 0; i < line.length() && column < columns.length; i++){
+      if (line.charAt(i) == TAB){
+        columns[column++] = i + 1;
+      }
+    }
+    if (column == NUM_COLUMNS){
+      columns[NUM_COLUMNS] = line.length() + 1;
+    } else if (column < NUM_COLUMNS){
+      return null;
+    }
+    return columns;
+  }
+
+  /**
+   * Locates the FILTER column without allocating anything
+   * @return true if the FILTER of the line is neither PASS nor missing. False if the line has less than NUM_COLUMNS
+   * columns, or an empty FILTER, which are left to htsjdk to reject
+   */
+  static boolean isFilteredLine(@NonNull String line){
+    int start = 0;
+    for (int column = 0; column < FILTER; column++){
+      start = line.indexOf(TAB, start) + 1;
+      if (start == 0){
+        return false;
+      }
+    }
+    val end = line.indexOf(TAB, start);
+    if (end <= start){
+      return false;
+    }
+    val length = end - start;
+    return !(length == PASS.length() && line.startsWith(PASS, start))
+        && !(length == MISSING.length() && line.startsWith(MISSING, start));
+  }
+
+  @NonNull private final String line;
+  @NonNull private final int[] columns;
+
+  /**
+   * Extracted lazily
+   */
+  private String contig;
+  private String referenceAllele;
+  private String alternativeAllele;
+
+  RawConsensusVariant(String line, int[] columns) {
+    this.line = line;
+    this.columns = columns;
+  }
+
+  private int columnStart(int column){
+    return columns[column];
+  }
+
+  private int columnEnd(int column){
+    return columns[column + 1] - 1;
+  }
+
+  private String column(int column){
+    return line.substring(columnStart(column), columnEnd(column));
+  }
+
+  private boolean columnEquals(int column, String value){
+    return columnEnd(column) - columnStart(column) == value.length()
+        && line.startsWith(value, columnStart(column));
+  }
+
+  @Override
+  public String getContig() {
+    if (contig == null){
+      contig = column(CHROM);
+    }
+    return contig;
+  }
+
+  @Override
+  public int getStart() {
+    int start = 0;
+    for (int i = columnStart(POS); i < columnEnd(POS); i++){
+      start = start * 10 + (line.charAt(i) - '0');
+    }
+    return start;
+  }
+
+  @Override
+  public String getReferenceAlleleString() {
+    if (referenceAllele == null){
+      referenceAllele = column(REF);
+    }
+    return referenceAllele;
+  }
+
+  /**
+   * The parser only accepts lines with a single alternative allele
+   */
+  @Override
+  public String getFirstAlternativeAlleleString() {
+    if (alternativeAllele == null){
+      alternativeAllele = column(ALT);
+    }
+    return alternativeAllele;
+  }
+
+  @Override
+  public boolean isNotFiltered() {
+    return columnEquals(FILTER, PASS) || columnEquals(FILTER, MISSING);
+  }
+
+  /**
+   * Scans the INFO column for the key
+   * @return the start of the value of the key, FLAG for a flag, or MISSING_KEY if missing
+   */
+  private int findInfoValue(String key){
+    if (columnEquals(INFO, MISSING)){
+      return MISSING_KEY;
+    }
+    final int end = columnEnd(INFO);
+    int entryStart = columnStart(INFO);
+    while (entryStart < end){
+      final int entryEnd = infoValueEnd(entryStart);
+      final int keyEnd = entryStart + key.length();
+      if (keyEnd <= entryEnd && line.startsWith(key, entryStart)){
+        if (keyEnd == entryEnd){
+          return FLAG;
+        } else if (line.charAt(keyEnd) == KEY_VALUE_SEPARATOR){
+          return keyEnd + 1;
+        }
+      }
+      entryStart = entryEnd + 1;
+    }
+    return MISSING_KEY;
+  }
+
+  private int infoValueEnd(int valueStart){
+    final int end = columnEnd(INFO);
+    final int separator = line.indexOf(INFO_SEPARATOR, valueStart);
+    return separator < 0 || separator > end ? end : separator;
+  }
+
+  /**
+   * @return the value of the key, "true" for a flag, or null if missing
+   */
+  String getInfoValue(@NonNull String key){
+    final int valueStart = findInfoValue(key);
+    if (valueStart == MISSING_KEY){
+      return null;
+    } else if (valueStart == FLAG){
+      return FLAG_VALUE;
+    }
+    return line.substring(valueStart, infoValueEnd(valueStart));
+  }
+
+  private Optional<Integer> getIntInfoValue(String key){
+    final String value = getInfoValue(key);
+    return value == null ? Optional.empty() : Optional.of(Integer.valueOf(value));
+  }
+
+  @Override
+  public List<String> getCallers() {
+    final String value = getInfoValue(VCF.CALLERS);
+    return value == null ? ImmutableList.of() : LIST_SPLITTER.splitToList(value);
+  }
+
+  /**
+   * Matches the callers in place, without extracting them
+   */
+  @Override
+  public int getCallerMask() {
+    final int valueStart = findInfoValue(VCF.CALLERS);
+    if (valueStart == MISSING_KEY){
+      return 0;
+    } else if (valueStart == FLAG){
+      return WorkflowTypes.parseMatch(FLAG_VALUE, false).getMask();
+    }
+    final int valueEnd = infoValueEnd(valueStart);
+    int mask = 0;
+    int callerStart = valueStart;
+    while (callerStart <= valueEnd){
+      int callerEnd = line.indexOf(LIST_SEPARATOR, callerStart);
+      if (callerEnd < 0 || callerEnd > valueEnd){
+        callerEnd = valueEnd;
+      }
+      mask |= WorkflowTypes.parseMatch(line, callerStart, callerEnd).getMask();
+      callerStart = callerEnd + 1;
+    }
+    return mask;
+  }
+
+  @Override
+  public Optional<Integer> getRefCount() {
+    return getIntInfoValue(VCF.T_REF_COUNT);
+  }
+
+  @Override
+  public Optional<Integer> getAltCount() {
+    return getIntInfoValue(VCF.T_ALT_COUNT);
+  }
+
+  /**
+   * The line is already a valid vcf line, so it is sent as is
+   */
+  @Override
+  public String encode(VCFEncoder encoder) {
+    return line;
+  }
+
+  /**
+   * The columns are contiguous in the line, so they are copied at once
+   */
+  @Override
+  public void appendVariantColumns(StringBuilder builder) {
+    builder.append(line, columnStart(CHROM), columnEnd(ALT));
+  }
+
+  @Override
+  public String toString() {
+    return line;
+  }
+
+}
@@ -27,9 +27,9 @@ import static org.icgc.dcc.common.core.util.stream.Streams.stream;
 @Slf4j
 public class VCF {
 
-  private static final String T_REF_COUNT = "t_ref_count";
-  private static final String T_ALT_COUNT = "t_alt_count";
-  private static final String CALLERS = "Callers";
+  public static final String T_REF_COUNT = "t_ref_count";
+  public static final String T_ALT_COUNT = "t_alt_count";
+  public static final String CALLERS = "Callers";
   private static final Joiner ALLELE_JOINER = Joiners.SLASH;
   private static final boolean REQUIRE_INDEX_CFG = false;
   private static final boolean ALLOW_MISSING_FIELDS_IN_HEADER_CFG = true;
@@ -156,6 +156,10 @@ public class VCF {
     return removeFirstBase(getFirstAlternativeAllele(v));
   }
 
+  public static String removeFirstBase(String allele){
+    return allele.substring(1);
+  }
+
   public static String joinAlleles(String ref, String alt){
     return ALLELE_JOINER.join(ref, alt);
   }
@@ -0,0 +1,117 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.collect.ImmutableList;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFEncoder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
+
+import java.util.List;
+import java.util.Optional;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
+
+/**
+ * ConsensusVariant over a fully decoded VariantContext
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+public class VariantContextConsensusVariant implements ConsensusVariant {
+
+  private static final char TAB = '\t';
+  private static final char ALLELE_SEPARATOR = ',';
+  private static final String MISSING = ".";
+
+  public static VariantContextConsensusVariant newVariantContextConsensusVariant(VariantContext variantContext){
+    return new VariantContextConsensusVariant(variantContext);
+  }
+
+  @NonNull @Getter private final VariantContext variantContext;
+
+  @Override
+  public String getContig() {
+    return VCF.getChomosome(variantContext);
+  }
+
+  @Override
+  public int getStart() {
+    return VCF.getStart(variantContext);
+  }
+
+  @Override
+  public String getReferenceAlleleString() {
+    return VCF.getReferenceAlleleString(variantContext);
+  }
+
+  @Override
+  public String getFirstAlternativeAlleleString() {
+    return VCF.getFirstAlternativeAlleleString(variantContext);
+  }
+
+  @Override
+  public boolean isNotFiltered() {
+    return variantContext.isNotFiltered();
+  }
+
+  @Override
+  public List<String> getCallers() {
+    if (!VCF.getCommonInfo(variantContext).hasAttribute(VCF.CALLERS)){
+      return ImmutableList.of();
+    }
+    return VCF.streamCallers(variantContext)
+        .collect(toImmutableList());
+  }
+
+  @Override
+  public int getCallerMask() {
+    int mask = 0;
+    for (val caller : getCallers()){
+      mask |= WorkflowTypes.parseMatch(caller, false).getMask();
+    }
+    return mask;
+  }
+
+  @Override
+  public Optional<Integer> getRefCount() {
+    return VCF.getRefCount(variantContext);
+  }
+
+  @Override
+  public Optional<Integer> getAltCount() {
+    return VCF.getAltCount(variantContext);
+  }
+
+  @Override
+  public String encode(VCFEncoder encoder) {
+    return encoder.encode(variantContext);
+  }
+
+  @Override
+  public void appendVariantColumns(StringBuilder builder) {
+    builder.append(getContig()).append(TAB)
+        .append(getStart()).append(TAB)
+        .append(variantContext.getID()).append(TAB)
+        .append(variantContext.getReference().getDisplayString()).append(TAB);
+    if (variantContext.getAlternateAlleles().isEmpty()){
+      builder.append(MISSING);
+      return;
+    }
+    boolean first = true;
+    for (val alternateAllele : variantContext.getAlternateAlleles()){
+      if (!first){
+        builder.append(ALLELE_SEPARATOR);
+      }
+      builder.append(alternateAllele.getDisplayString());
+      first = false;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return variantContext.toString();
+  }
+
+}
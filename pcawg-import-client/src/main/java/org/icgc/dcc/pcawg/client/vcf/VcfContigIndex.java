@@ -0,0 +1,110 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.collect.Maps;
+import htsjdk.tribble.index.Block;
+import htsjdk.tribble.index.tabix.TabixIndex;
+import lombok.Cleanup;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static lombok.AccessLevel.PRIVATE;
+import static org.icgc.dcc.pcawg.client.vcf.BgzfVcfReader.newBgzfVcfReader;
+
+/**
+ * Locates the first record of every contig, or region, of a block gzipped vcf file, so that each can be read on its
+ * own, from a BgzfVcfReader positioned with seek
+ */
+@Slf4j
+@NoArgsConstructor(access = PRIVATE)
+public final class VcfContigIndex {
+
+  private static final String TABIX_EXTENSION = ".tbi";
+
+  /**
+   * Uses the tabix index next to the vcfFile, if any. Otherwise the contig of every record is scanned, which only
+   * costs inflating the file, on inflateThreads threads if greater than 0
+   * @return the virtual offset of the first record of every contig, in the order of the file, or empty if the
+   * records of a contig are not all next to each other
+   */
+  public static Optional<Map<String, Long>> readContigOffsets(@NonNull File vcfFile, final int inflateThreads){
+    val tabixFile = new File(vcfFile.getPath() + TABIX_EXTENSION);
+    if (tabixFile.isFile()){
+      return Optional.of(readTabixContigOffsets(tabixFile));
+    }
+    @Cleanup val reader = newBgzfVcfReader(vcfFile, inflateThreads);
+    return reader.scanContigOffsets();
+  }
+
+  /**
+   * Like readContigOffsets, but with the tabix index the offsets are the ones of the first block that may overlap each
+   * region, instead of the start of its contig
+   * @return the virtual offset from which to read each region, in the order of the file, without the regions of
+   * contigs that have no records. Empty if the records of a contig are not all next to each other
+   */
+  @SneakyThrows
+  public static Optional<Map<GenomicRegion, Long>> readRegionOffsets(@NonNull File vcfFile,
+      @NonNull List<GenomicRegion> regions, final int inflateThreads){
+    val tabixFile = new File(vcfFile.getPath() + TABIX_EXTENSION);
+    final Map<GenomicRegion, Long> regionOffsets = Maps.newHashMap();
+    if (tabixFile.isFile()){
+      val tabixIndex = new TabixIndex(tabixFile);
+      for (val region : regions){
+        readTabixOffset(tabixIndex, region.getContig(), region.getStart(), region.getEnd())
+            .ifPresent(offset -> regionOffsets.put(region, offset));
+      }
+      log.info("Read the offsets of {} regions from the tabix index [{}]", regionOffsets.size(), tabixFile.getName());
+    } else {
+      val contigOffsets = readContigOffsets(vcfFile, inflateThreads);
+      if (!contigOffsets.isPresent()){
+        return Optional.empty();
+      }
+      for (val region : regions){
+        val offset = contigOffsets.get().get(region.getContig());
+        if (offset != null){
+          regionOffsets.put(region, offset);
+        }
+      }
+    }
+    return Optional.of(sortByOffset(regionOffsets, Comparator.comparingInt(GenomicRegion::getStart)));
+  }
+
+  @SneakyThrows
+  private static Map<String, Long> readTabixContigOffsets(File tabixFile){
+    val tabixIndex = new TabixIndex(tabixFile);
+    final Map<String, Long> contigOffsets = Maps.newHashMap();
+    for (val contig : tabixIndex.getSequenceNames()){
+      readTabixOffset(tabixIndex, contig, 1, Integer.MAX_VALUE)
+          .ifPresent(offset -> contigOffsets.put(contig, offset));
+    }
+    log.info("Read the offsets of {} contigs from the tabix index [{}]", contigOffsets.size(), tabixFile.getName());
+    return sortByOffset(contigOffsets, Comparator.naturalOrder());
+  }
+
+  private static Optional<Long> readTabixOffset(TabixIndex tabixIndex, String contig, final int start, final int end){
+    val offset = tabixIndex.getBlocks(contig, start, end).stream()
+        .mapToLong(Block::getStartPosition)
+        .min();
+    return offset.isPresent() ? Optional.of(offset.getAsLong()) : Optional.empty();
+  }
+
+  /**
+   * @return the offsets in the order of the file, which is the order of the reference
+   */
+  private static <K> Map<K, Long> sortByOffset(Map<K, Long> offsets, Comparator<? super K> tieBreaker){
+    val sortedOffsets = Maps.<K, Long>newLinkedHashMap();
+    offsets.entrySet().stream()
+        .sorted(Map.Entry.<K, Long>comparingByValue().thenComparing(Map.Entry.comparingByKey(tieBreaker)))
+        .forEach(e -> sortedOffsets.put(e.getKey(), e.getValue()));
+    return sortedOffsets;
+  }
+
+}
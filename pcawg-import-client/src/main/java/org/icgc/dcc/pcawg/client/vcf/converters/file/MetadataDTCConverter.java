@@ -11,7 +11,7 @@ import org.icgc.dcc.pcawg.client.core.types.VariationCallingAlgorithmTypes;
 
 import java.util.Set;
 
-import static com.google.common.collect.Sets.newHashSet;
+import static com.google.common.collect.Sets.newConcurrentHashSet;
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
 import static org.icgc.dcc.pcawg.client.core.model.ssm.metadata.impl.PcawgSSMMetadata.newPcawgSSMMetadata;
 import static org.icgc.dcc.pcawg.client.tsv.transformer.impl.DccTransformerContext.newDccTransformerContext;
@@ -22,10 +22,11 @@ public class MetadataDTCConverter {
     return new MetadataDTCConverter();
   }
 
-  private Set<SSMMetadata> ssmMetadataSet = newHashSet();
+  // Concurrent, since files of the same dccProjectCode can be accumulated by several workers
+  private Set<SSMMetadata> ssmMetadataSet = newConcurrentHashSet();
 
   public void resetState(){
-    ssmMetadataSet = newHashSet();
+    ssmMetadataSet = newConcurrentHashSet();
   }
 
   public SSMPrimary accumulateSSMPrimary(SampleMetadata sampleMetadata, SSMPrimary ssmPrimary){
@@ -34,6 +35,11 @@ public class MetadataDTCConverter {
     return ssmPrimary;
   }
 
+  // Used when resuming, for files whose primary output was written by a previous run
+  public void accumulate(SampleMetadata sampleMetadata, WorkflowTypes workflowType, DataTypes dataType){
+    ssmMetadataSet.add(buildWorkflowSpecificSSMMetadata(workflowType, sampleMetadata, dataType));
+  }
+
   public DccTransformerContext<SSMPrimary> accumulatePrimaryDTC(SampleMetadata sampleMetadata, DccTransformerContext<SSMPrimary> input){
     val workflowType = input.getWorkflowTypes();
     val dataType = input.getObject().getDataType();
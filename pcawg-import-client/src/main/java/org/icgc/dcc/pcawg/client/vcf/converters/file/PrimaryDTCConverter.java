@@ -1,25 +1,26 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.file;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
-import htsjdk.variant.variantcontext.VariantContext;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
 import org.icgc.dcc.pcawg.client.tsv.transformer.impl.DccTransformerContext;
 import org.icgc.dcc.pcawg.client.utils.measurement.CounterMonitor;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
 import org.icgc.dcc.pcawg.client.vcf.DataTypeConversionException;
 import org.icgc.dcc.pcawg.client.vcf.converters.variant.ConsensusVariantProcessor;
 import org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor;
 import org.icgc.dcc.pcawg.client.vcf.errors.PcawgErrorException;
+import org.icgc.dcc.pcawg.client.vcf.errors.PcawgVariantErrors;
 import org.icgc.dcc.pcawg.client.vcf.errors.PcawgVariantException;
 
 import java.util.Set;
 
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
 import static org.icgc.dcc.pcawg.client.tsv.transformer.impl.DccTransformerContext.newDccTransformerContext;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getStart;
 import static org.icgc.dcc.pcawg.client.vcf.errors.PcawgVariantErrors.MUTATION_TYPE_TO_DATA_TYPE_CONVERSION_ERROR;
 
 @Slf4j
@@ -55,10 +56,10 @@ public class PrimaryDTCConverter {
     erroredVariantCount = 0;
   }
 
-  public Set<DccTransformerContext<SSMPrimary>> convert(VariantContext variantContext, CounterMonitor primaryCounterMonitor){
+  public Set<DccTransformerContext<SSMPrimary>> convert(ConsensusVariant variant, CounterMonitor primaryCounterMonitor){
     Set<DccTransformerContext<SSMPrimary>> out = EMPTY_DCC_PRIMARY_TRANSFORMER_CONTEXT;
     try{
-      val ssmPrimarySet = variantProcessor.convertSSMPrimary(variantContext);
+      val ssmPrimarySet = variantProcessor.convertSSMPrimary(variant);
       out = ssmPrimarySet.stream()
           .map(x -> newDccTransformerContext(x.getWorkflowType(),x))
           .collect(toImmutableSet());
@@ -66,18 +67,23 @@ public class PrimaryDTCConverter {
         primaryCounterMonitor.incr(out.size());
       }
     } catch (DataTypeConversionException e) {
-      candidateException.addError(MUTATION_TYPE_TO_DATA_TYPE_CONVERSION_ERROR, getStart(variantContext));
-      erroredVariantCount++;
+      recordErrors(ImmutableList.of(MUTATION_TYPE_TO_DATA_TYPE_CONVERSION_ERROR), variant.getStart());
     } catch (PcawgVariantException e) {
-      val start = getStart(variantContext);
-      for (val error : e.getErrors()) {
-        candidateException.addError(error, start);
-      }
-      erroredVariantCount++;
+      recordErrors(e.getErrors(), variant.getStart());
     }
     return out;
   }
 
+  /**
+   * Variants may be converted concurrently, see DccProjectProcessor
+   */
+  private synchronized void recordErrors(Iterable<PcawgVariantErrors> errors, final int start){
+    for (val error : errors) {
+      candidateException.addError(error, start);
+    }
+    erroredVariantCount++;
+  }
+
   public void checkForErrors(){
     if (candidateException.hasErrors()){
       val sb = new StringBuilder();
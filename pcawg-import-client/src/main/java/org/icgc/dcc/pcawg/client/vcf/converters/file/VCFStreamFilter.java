@@ -1,19 +1,32 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.file;
 
-import htsjdk.variant.variantcontext.VariantContext;
+import com.google.common.collect.Iterables;
+import htsjdk.variant.vcf.VCFContigHeaderLine;
 import htsjdk.variant.vcf.VCFFileReader;
+import htsjdk.variant.vcf.VCFHeader;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.icgc.dcc.pcawg.client.data.metadata.SampleMetadata;
 import org.icgc.dcc.pcawg.client.filter.variant.VariantFilter;
 import org.icgc.dcc.pcawg.client.filter.variant.VariantFilterFactory;
 import org.icgc.dcc.pcawg.client.utils.measurement.Countable;
+import org.icgc.dcc.pcawg.client.vcf.BgzfVcfReader;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+import org.icgc.dcc.pcawg.client.vcf.GenomicRegion;
+import org.icgc.dcc.pcawg.client.vcf.GenomicRegions;
+import org.icgc.dcc.pcawg.client.vcf.VariantContextConsensusVariant;
 
 import java.nio.file.Path;
+import java.util.Map;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static java.util.Spliterator.ORDERED;
+import static java.util.Spliterators.spliteratorUnknownSize;
+import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableList;
 import static org.icgc.dcc.common.core.util.stream.Streams.stream;
 import static org.icgc.dcc.pcawg.client.utils.measurement.IntegerCounter.newDefaultIntegerCounter;
 import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFFileReader;
@@ -21,23 +34,94 @@ import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFFileReader;
 @Slf4j
 public class VCFStreamFilter {
 
+  /**
+   * Number of variants whose SnpEff predictions are in flight at once, for the projects filtered by SnpEff
+   */
+  public static final int DEFAULT_CODING_WINDOW_SIZE = 1024;
+
   public static VCFStreamFilter newVCFStreamFilter(VCFFileReader vcf, VariantFilter variantFilter){
-    return new VCFStreamFilter(vcf, variantFilter);
+    return new VCFStreamFilter(
+        Iterables.transform(vcf, VariantContextConsensusVariant::newVariantContextConsensusVariant), variantFilter);
+  }
+
+  /**
+   * The records of the reader are parsed straight from their lines, see ConsensusVariantParser
+   */
+  public static VCFStreamFilter newVCFStreamFilter(BgzfVcfReader reader, SampleMetadata sampleMetadataConsensus,
+      VariantFilterFactory variantFilterFactory){
+    val variantFilter = createVariantFilter(reader.getFileHeader(), sampleMetadataConsensus, variantFilterFactory);
+    reader.setRejectFilteredRecords(!variantFilterFactory.isBypassNoiseFiltering());
+    return new VCFStreamFilter(reader.consensusVariants(), variantFilter);
+  }
+
+  /**
+   * Only the records of the contig, from the current position of the reader
+   */
+  public static VCFStreamFilter newVCFStreamFilter(BgzfVcfReader reader, String contig,
+      SampleMetadata sampleMetadataConsensus, VariantFilterFactory variantFilterFactory){
+    val variantFilter = createVariantFilter(reader.getFileHeader(), sampleMetadataConsensus, variantFilterFactory);
+    reader.setRejectFilteredRecords(!variantFilterFactory.isBypassNoiseFiltering());
+    return new VCFStreamFilter(reader.consensusVariants(contig), variantFilter);
+  }
+
+  /**
+   * Only the records of the regions, read from the reader positioned with seek at the offset of each region in turn
+   * @param regionOffsets the virtual offset of each region, in the order of the file
+   */
+  public static VCFStreamFilter newVCFStreamFilter(BgzfVcfReader reader, Map<GenomicRegion, Long> regionOffsets,
+      SampleMetadata sampleMetadataConsensus, VariantFilterFactory variantFilterFactory){
+    val variantFilter = createVariantFilter(reader.getFileHeader(), sampleMetadataConsensus, variantFilterFactory);
+    reader.setRejectFilteredRecords(!variantFilterFactory.isBypassNoiseFiltering());
+    val regionVariants = regionOffsets.entrySet().stream()
+        .map(e -> (Iterable<ConsensusVariant>) () -> {
+          reader.seek(e.getValue());
+          return reader.consensusVariants(e.getKey()).iterator();
+        })
+        .collect(toImmutableList());
+    return new VCFStreamFilter(Iterables.concat(regionVariants), variantFilter);
   }
 
   public static VCFStreamFilter newVCFStreamFilter(Path vcfPath, SampleMetadata sampleMetadataConsensus,
       VariantFilterFactory variantFilterFactory){
     val vcf = newDefaultVCFFileReader(vcfPath.toFile());
-    val variantFilter = variantFilterFactory.createVariantFilter(vcf, sampleMetadataConsensus.isUsProject());
+    val variantFilter = createVariantFilter(vcf.getFileHeader(), sampleMetadataConsensus, variantFilterFactory);
     return newVCFStreamFilter(vcf, variantFilter);
   }
 
+  /**
+   * Only the records overlapping the regions, which are all decoded, since the vcf file cannot be seeked
+   */
+  public static VCFStreamFilter newVCFStreamFilter(Path vcfPath, GenomicRegions regions,
+      SampleMetadata sampleMetadataConsensus, VariantFilterFactory variantFilterFactory){
+    val vcf = newDefaultVCFFileReader(vcfPath.toFile());
+    val variantFilter = createVariantFilter(vcf.getFileHeader(), sampleMetadataConsensus, variantFilterFactory);
+    val variants = Iterables.transform(vcf, VariantContextConsensusVariant::newVariantContextConsensusVariant);
+    return new VCFStreamFilter(Iterables.filter(variants, regions::overlaps), variantFilter);
+  }
+
+  /**
+   * Fails before reading any variant if the coding regions have none of the contigs of the vcf
+   */
+  private static VariantFilter createVariantFilter(VCFHeader vcfHeader, SampleMetadata sampleMetadataConsensus,
+      VariantFilterFactory variantFilterFactory){
+    val variantFilter = variantFilterFactory.createVariantFilter(sampleMetadataConsensus.isUsProject());
+    variantFilter.checkContigs(vcfHeader.getContigLines().stream()
+        .map(VCFContigHeaderLine::getID)
+        .collect(toImmutableList()));
+    return variantFilter;
+  }
+
   /**
    * Configuration
    */
-  @NonNull private final VCFFileReader vcf;
+  @NonNull private final Iterable<ConsensusVariant> vcf;
   @NonNull private final VariantFilter variantFilter;
 
+  /**
+   * The variants are read this many ahead of the ones streamed, so 1 when the reader must not get ahead of the writer
+   */
+  @Setter private int codingWindowSize = DEFAULT_CODING_WINDOW_SIZE;
+
   /**
    * State
    */
@@ -45,7 +129,7 @@ public class VCFStreamFilter {
   @Getter private Countable<Integer> afterQualityFilterCounter;
   @Getter private Countable<Integer> afterTCGSFilterCounter;
 
-  public VCFStreamFilter(VCFFileReader vcf, VariantFilter variantFilter) {
+  public VCFStreamFilter(Iterable<ConsensusVariant> vcf, VariantFilter variantFilter) {
     this.vcf = vcf;
     this.variantFilter = variantFilter;
     resetStreamState();
@@ -57,12 +141,24 @@ public class VCFStreamFilter {
     afterQualityFilterCounter = newDefaultIntegerCounter();
   }
 
-  public Stream<VariantContext> streamFilteredVariants(){
-    return stream(vcf)
+  /**
+   * Restores the counters of a file resumed from a checkpoint
+   */
+  public void restoreCounts(final int totalVariants, final int afterQualityFilter, final int afterTcgaFilter){
+    resetStreamState();
+    totalVariantCounter.incr(totalVariants);
+    afterQualityFilterCounter.incr(afterQualityFilter);
+    afterTCGSFilterCounter.incr(afterTcgaFilter);
+  }
+
+  public Stream<ConsensusVariant> streamFilteredVariants(){
+    val afterQualityFilter = stream(vcf)
         .map(totalVariantCounter::streamIncr)
         .filter(variantFilter::passedNoiseFilter)
         .map(afterQualityFilterCounter::streamIncr)
-        .filter(variantFilter::passedTcgaFilter)
+        .iterator();
+    val afterTcgaFilter = variantFilter.passedTcgaFilter(afterQualityFilter, codingWindowSize);
+    return StreamSupport.stream(spliteratorUnknownSize(afterTcgaFilter, ORDERED), false)
         .map(afterTCGSFilterCounter::streamIncr);
   }
 
@@ -0,0 +1,69 @@
+package org.icgc.dcc.pcawg.client.vcf.converters.variant;
+
+import lombok.Getter;
+import lombok.NonNull;
+import org.icgc.dcc.pcawg.client.core.types.DataTypes;
+import org.icgc.dcc.pcawg.client.core.types.MutationTypes;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+
+import static org.icgc.dcc.pcawg.client.vcf.VCF.removeFirstBase;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor.DEFAULT_THROW_EXCEPTION_FLAG;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor.resolveDataType;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor.resolveMutationType;
+
+/**
+ * The alleles of a variant, along with everything derived from them, computed once per variant and shared by the
+ * VariantConverterStrategy and the VariantProcessor. The stripped alleles are only needed by indels, so they are
+ * computed on first use.
+ */
+@Getter
+public final class AlleleView {
+
+  /**
+   * @throws org.icgc.dcc.pcawg.client.vcf.errors.PcawgVariantException if the mutationType cannot be resolved
+   */
+  public static AlleleView newAlleleView(@NonNull ConsensusVariant variant){
+    return new AlleleView(variant);
+  }
+
+  private final ConsensusVariant variant;
+  private final int start;
+  private final String referenceAllele;
+  private final String alternativeAllele;
+  private final int referenceAlleleLength;
+  private final int alternativeAlleleLength;
+  private final MutationTypes mutationType;
+  private final DataTypes dataType;
+
+  /**
+   * State
+   */
+  private String strippedReferenceAllele;
+  private String strippedAlternativeAllele;
+
+  private AlleleView(ConsensusVariant variant) {
+    this.variant = variant;
+    this.start = variant.getStart();
+    this.referenceAllele = variant.getReferenceAlleleString();
+    this.alternativeAllele = variant.getFirstAlternativeAlleleString();
+    this.referenceAlleleLength = referenceAllele.length();
+    this.alternativeAlleleLength = alternativeAllele.length();
+    this.mutationType = resolveMutationType(DEFAULT_THROW_EXCEPTION_FLAG, variant, referenceAllele, alternativeAllele);
+    this.dataType = resolveDataType(mutationType);
+  }
+
+  public String getStrippedReferenceAllele(){
+    if (strippedReferenceAllele == null){
+      strippedReferenceAllele = removeFirstBase(referenceAllele);
+    }
+    return strippedReferenceAllele;
+  }
+
+  public String getStrippedAlternativeAllele(){
+    if (strippedAlternativeAllele == null){
+      strippedAlternativeAllele = removeFirstBase(alternativeAllele);
+    }
+    return strippedAlternativeAllele;
+  }
+
+}
@@ -1,7 +1,7 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.variant;
 
 import com.google.common.collect.ImmutableSet;
-import htsjdk.variant.variantcontext.VariantContext;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
@@ -9,28 +9,25 @@ import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.impl.PlainSSMPrimary;
 import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
 import org.icgc.dcc.pcawg.client.data.metadata.SampleMetadata;
+import org.icgc.dcc.pcawg.client.utils.measurement.AtomicIntegerCounter;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
 import org.icgc.dcc.pcawg.client.vcf.NotConsensusWorkflowTypeException;
 import org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy.VariantConverterStrategy;
 import org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy.VariantConverterStrategyMux;
 
 import java.util.Set;
-import java.util.stream.Stream;
 
 import static org.icgc.dcc.common.core.util.stream.Collectors.toImmutableSet;
 import static org.icgc.dcc.pcawg.client.config.ClientProperties.DEFAULT_STUDY;
 import static org.icgc.dcc.pcawg.client.core.types.NACodeTypes.CORRUPTED_DATA;
 import static org.icgc.dcc.pcawg.client.core.types.NACodeTypes.DATA_VERIFIED_TO_BE_UNKNOWN;
 import static org.icgc.dcc.pcawg.client.core.types.WorkflowTypes.CONSENSUS;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getAltCount;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getChomosome;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getRefCount;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.streamCallers;
-import static org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor.resolveMutationType;
+import static org.icgc.dcc.pcawg.client.utils.measurement.AtomicIntegerCounter.newDefaultAtomicIntegerCounter;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.AlleleView.newAlleleView;
 
 @Slf4j
 public class ConsensusVariantProcessor implements VariantProcessor {
 
-  private static final boolean F_CHECK_CORRECT_WORKTYPE = false;
   private static final int DEFAULT_STRAND = 1;
   private static final String DEFAULT_VERIFICATION_STATUS = "not tested";
 
@@ -47,16 +44,13 @@ public class ConsensusVariantProcessor implements VariantProcessor {
     }
   }
 
-  public static Set<WorkflowTypes> extractWorkflowTypes(VariantContext  variant){
-    return streamWorkflowTypes(variant)
+  public static Set<WorkflowTypes> extractWorkflowTypes(ConsensusVariant variant){
+    val mask = variant.getCallerMask();
+    return WorkflowTypes.getNameOrder().stream()
+        .filter(w -> w.isInMask(mask))
         .collect(toImmutableSet());
   }
 
-  private static Stream<WorkflowTypes> streamWorkflowTypes(VariantContext  variant){
-    return streamCallers(variant)
-        .map(c ->  WorkflowTypes.parseMatch(c, F_CHECK_CORRECT_WORKTYPE ));
-  }
-
 
   private static SSMPrimary createWorkflowTypeSpecificSSMPrimary( SSMPrimary ssmPrimaryConsensus,
       WorkflowTypes workflowType){
@@ -68,9 +62,9 @@ public class ConsensusVariantProcessor implements VariantProcessor {
   }
 
 
-  private static int calcTotalReadCount(VariantContext variant) {
-    val altCount = getAltCount(variant);
-    val refCount = getRefCount(variant);
+  private static int calcTotalReadCount(ConsensusVariant variant) {
+    val altCount = variant.getAltCount();
+    val refCount = variant.getRefCount();
     if (altCount.isPresent() && refCount.isPresent()){
       return altCount.get()+refCount.get();
     } else {
@@ -78,8 +72,8 @@ public class ConsensusVariantProcessor implements VariantProcessor {
     }
   }
 
-  private static int calcMutantAlleleReadCount(VariantContext variant) {
-    val altCount = getAltCount(variant);
+  private static int calcMutantAlleleReadCount(ConsensusVariant variant) {
+    val altCount = variant.getAltCount();
     if (altCount.isPresent()){
       return altCount.get();
     } else {
@@ -90,6 +84,11 @@ public class ConsensusVariantProcessor implements VariantProcessor {
   @NonNull private final SampleMetadata sampleMetadata;
   @NonNull private final VariantConverterStrategyMux variantConverterStrategyMux;
 
+  /**
+   * State
+   */
+  @Getter private final AtomicIntegerCounter missingCallersCounter = newDefaultAtomicIntegerCounter();
+
   /**
    *
    * @throws org.icgc.dcc.pcawg.client.vcf.NotConsensusWorkflowTypeException
@@ -104,41 +103,47 @@ public class ConsensusVariantProcessor implements VariantProcessor {
 
 
   @Override
-  public Set<SSMPrimary> convertSSMPrimary(VariantContext variant){
+  public Set<SSMPrimary> convertSSMPrimary(ConsensusVariant variant){
     val workflowType = sampleMetadata.getWorkflowType();
-    val mutationType = resolveMutationType(variant);
+    val alleleView = newAlleleView(variant);
     // Need mux because variants from the same file can be any one of the MutationTypes.
-    val variantConverter = variantConverterStrategyMux.select(mutationType);
-    val consensusSSMPrimary =  buildSSMPrimary(workflowType,variantConverter,variant);
+    val variantConverter = variantConverterStrategyMux.select(alleleView.getMutationType());
+    val consensusSSMPrimary =  buildSSMPrimary(workflowType,variantConverter,alleleView);
     val setBuilder = ImmutableSet.<SSMPrimary>builder();
     setBuilder.add(consensusSSMPrimary);
-    for (val workflow : extractWorkflowTypes(variant)){
-      val ssmPrimary = createWorkflowTypeSpecificSSMPrimary(consensusSSMPrimary,workflow);
-      setBuilder.add(ssmPrimary);
+    val callerMask = variant.getCallerMask();
+    if (callerMask == 0){
+      // Counted rather than logged, since it is per variant
+      missingCallersCounter.incr();
+    }
+    for (val workflow : WorkflowTypes.getNameOrder()){
+      if (workflow.isInMask(callerMask)){
+        val ssmPrimary = createWorkflowTypeSpecificSSMPrimary(consensusSSMPrimary,workflow);
+        setBuilder.add(ssmPrimary);
+      }
     }
     return setBuilder.build();
   }
 
-  private SSMPrimary buildSSMPrimary(WorkflowTypes workflowTypes, VariantConverterStrategy<VariantContext> converter, VariantContext variant){
-    val mutationType = resolveMutationType(variant);
-    val dataType = VariantProcessor.resolveDataType(mutationType);
+  private SSMPrimary buildSSMPrimary(WorkflowTypes workflowTypes, VariantConverterStrategy<AlleleView> converter, AlleleView alleleView){
+    val variant = alleleView.getVariant();
     val dccProjectCode = sampleMetadata.getDccProjectCode();
     val analyzedSampleId = sampleMetadata.getAnalyzedSampleId();
 
     return PlainSSMPrimary.builder()
         .analyzedSampleId(analyzedSampleId)
-        .mutationType(mutationType.toString())
+        .mutationType(alleleView.getMutationType().toString())
         .workflowType(workflowTypes)
-        .dataType(dataType)
+        .dataType(alleleView.getDataType())
         .dccProjectCode(dccProjectCode)
-        .chromosomeStart(converter.convertChromosomeStart(variant))
-        .chromosomeEnd(converter.convertChromosomeEnd(variant))
-        .referenceGenomeAllele(converter.convertReferenceGenomeAllele(variant))
-        .controlGenotype(converter.convertControlGenotype(variant))
-        .mutatedFromAllele(converter.convertMutatedFromAllele(variant))
-        .tumorGenotype(converter.convertTumorGenotype(variant))
-        .mutatedToAllele(converter.convertMutatedToAllele(variant))
-        .chromosome(getChomosome(variant))
+        .chromosomeStart(converter.convertChromosomeStart(alleleView))
+        .chromosomeEnd(converter.convertChromosomeEnd(alleleView))
+        .referenceGenomeAllele(converter.convertReferenceGenomeAllele(alleleView))
+        .controlGenotype(converter.convertControlGenotype(alleleView))
+        .mutatedFromAllele(converter.convertMutatedFromAllele(alleleView))
+        .tumorGenotype(converter.convertTumorGenotype(alleleView))
+        .mutatedToAllele(converter.convertMutatedToAllele(alleleView))
+        .chromosome(variant.getContig())
         .chromosomeStrand(DEFAULT_STRAND)
         .expressedAllele( DATA_VERIFIED_TO_BE_UNKNOWN.toString())
         .qualityScore( DATA_VERIFIED_TO_BE_UNKNOWN.toString())
@@ -1,12 +1,11 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.variant;
 
-import htsjdk.variant.variantcontext.VariantContext;
 import lombok.val;
 import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
 import org.icgc.dcc.pcawg.client.core.types.DataTypes;
 import org.icgc.dcc.pcawg.client.core.types.MutationTypes;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
 import org.icgc.dcc.pcawg.client.vcf.DataTypeConversionException;
-import org.icgc.dcc.pcawg.client.vcf.VCF;
 import org.icgc.dcc.pcawg.client.vcf.errors.PcawgVariantException;
 
 import java.util.Set;
@@ -18,22 +17,26 @@ import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.INSERTION_LTE_2
 import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.MULTIPLE_BASE_SUBSTITUTION;
 import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.SINGLE_BASE_SUBSTITUTION;
 import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.UNKNOWN;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getFirstAlternativeAlleleLength;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getReferenceAlleleLength;
 import static org.icgc.dcc.pcawg.client.vcf.errors.PcawgVariantErrors.MUTATION_TYPE_NOT_SUPPORTED_ERROR;
 
 public interface VariantProcessor {
   boolean DEFAULT_THROW_EXCEPTION_FLAG = true;
 
-  static MutationTypes resolveMutationType(VariantContext v){
+  static MutationTypes resolveMutationType(ConsensusVariant v){
     return resolveMutationType(DEFAULT_THROW_EXCEPTION_FLAG, v);
   }
 
-  static MutationTypes resolveMutationType(boolean throwException, VariantContext v){
-    val ref = VCF.getReferenceAlleleString(v);
-    val alt = VCF.getFirstAlternativeAlleleString(v);
-    val refLength = getReferenceAlleleLength(v);
-    val altLength = getFirstAlternativeAlleleLength(v);
+  static MutationTypes resolveMutationType(boolean throwException, ConsensusVariant v){
+    return resolveMutationType(throwException, v, v.getReferenceAlleleString(), v.getFirstAlternativeAlleleString());
+  }
+
+  /**
+   * @param ref the reference allele of v
+   * @param alt the first alternative allele of v
+   */
+  static MutationTypes resolveMutationType(boolean throwException, ConsensusVariant v, String ref, String alt){
+    val refLength = ref.length();
+    val altLength = alt.length();
     val altIsOne = altLength ==1;
     val refIsOne = refLength ==1;
     val refStartsWithAlt = ref.startsWith(alt);
@@ -60,8 +63,8 @@ public interface VariantProcessor {
     }
   }
 
-  static DataTypes resolveDataType(VariantContext variantContext){
-    val mutationType = resolveMutationType(variantContext);
+  static DataTypes resolveDataType(ConsensusVariant variant){
+    val mutationType = resolveMutationType(variant);
     return resolveDataType(mutationType);
   }
 
@@ -77,6 +80,6 @@ public interface VariantProcessor {
     }
   }
 
-  Set<SSMPrimary> convertSSMPrimary(VariantContext variant);
+  Set<SSMPrimary> convertSSMPrimary(ConsensusVariant variant);
 
 }
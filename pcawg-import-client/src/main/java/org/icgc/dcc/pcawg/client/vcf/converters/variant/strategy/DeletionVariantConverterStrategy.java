@@ -1,42 +1,39 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy;
 
-import htsjdk.variant.variantcontext.VariantContext;
 import lombok.val;
+import org.icgc.dcc.pcawg.client.vcf.converters.variant.AlleleView;
 
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getReferenceAlleleLength;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getStart;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getStrippedReferenceAlleleString;
 import static org.icgc.dcc.pcawg.client.vcf.VCF.joinAlleles;
 
-public class DeletionVariantConverterStrategy implements VariantConverterStrategy<VariantContext>{
+public class DeletionVariantConverterStrategy implements VariantConverterStrategy<AlleleView>{
 
-  @Override public int convertChromosomeEnd(VariantContext variantContext) {
-    return getStart(variantContext) + getReferenceAlleleLength(variantContext) - 1;
+  @Override public int convertChromosomeEnd(AlleleView alleles) {
+    return alleles.getStart() + alleles.getReferenceAlleleLength() - 1;
   }
 
-  @Override public int convertChromosomeStart(VariantContext variantContext) {
-    return getStart(variantContext)+1;
+  @Override public int convertChromosomeStart(AlleleView alleles) {
+    return alleles.getStart()+1;
   }
 
-  @Override public String convertControlGenotype(VariantContext variantContext) {
-    val strippedRef = getStrippedReferenceAlleleString(variantContext);
+  @Override public String convertControlGenotype(AlleleView alleles) {
+    val strippedRef = alleles.getStrippedReferenceAllele();
     return joinAlleles(strippedRef, strippedRef);
   }
 
-  @Override public String convertMutatedFromAllele(VariantContext variantContext) {
-    return getStrippedReferenceAlleleString(variantContext);
+  @Override public String convertMutatedFromAllele(AlleleView alleles) {
+    return alleles.getStrippedReferenceAllele();
   }
 
-  @Override public String convertMutatedToAllele(VariantContext variantContext) {
+  @Override public String convertMutatedToAllele(AlleleView alleles) {
     return EMPTY_ALLELE_STRING;
   }
 
-  @Override public String convertReferenceGenomeAllele(VariantContext variantContext) {
-    return getStrippedReferenceAlleleString(variantContext);
+  @Override public String convertReferenceGenomeAllele(AlleleView alleles) {
+    return alleles.getStrippedReferenceAllele();
   }
 
-  @Override public String convertTumorGenotype(VariantContext variantContext) {
-    return joinAlleles(getStrippedReferenceAlleleString(variantContext), EMPTY_ALLELE_STRING);
+  @Override public String convertTumorGenotype(AlleleView alleles) {
+    return joinAlleles(alleles.getStrippedReferenceAllele(), EMPTY_ALLELE_STRING);
   }
 
 }
@@ -1,41 +1,39 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy;
 
-import htsjdk.variant.variantcontext.VariantContext;
+import org.icgc.dcc.pcawg.client.vcf.converters.variant.AlleleView;
 
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getStart;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getStrippedFirstAlternativeAlleleString;
 import static org.icgc.dcc.pcawg.client.vcf.VCF.joinAlleles;
 
-public class InsertionVariantConverterStrategy implements VariantConverterStrategy<VariantContext> {
+public class InsertionVariantConverterStrategy implements VariantConverterStrategy<AlleleView> {
 
   private static final String INSERTION_RESULT = joinAlleles(EMPTY_ALLELE_STRING, EMPTY_ALLELE_STRING);
 
-  @Override public int convertChromosomeEnd(VariantContext variantContext) {
-    return getStart(variantContext) + 1;
+  @Override public int convertChromosomeEnd(AlleleView alleles) {
+    return alleles.getStart() + 1;
   }
 
-  @Override public int convertChromosomeStart(VariantContext variantContext) {
-    return getStart(variantContext)+1;
+  @Override public int convertChromosomeStart(AlleleView alleles) {
+    return alleles.getStart()+1;
   }
 
-  @Override public String convertControlGenotype(VariantContext variantContext) {
+  @Override public String convertControlGenotype(AlleleView alleles) {
     return INSERTION_RESULT;
   }
 
-  @Override public String convertMutatedFromAllele(VariantContext variantContext) {
+  @Override public String convertMutatedFromAllele(AlleleView alleles) {
     return EMPTY_ALLELE_STRING;
   }
 
-  @Override public String convertMutatedToAllele(VariantContext variantContext) {
-    return getStrippedFirstAlternativeAlleleString(variantContext);
+  @Override public String convertMutatedToAllele(AlleleView alleles) {
+    return alleles.getStrippedAlternativeAllele();
   }
 
-  @Override public String convertReferenceGenomeAllele(VariantContext variantContext) {
+  @Override public String convertReferenceGenomeAllele(AlleleView alleles) {
     return EMPTY_ALLELE_STRING;
   }
 
-  @Override public String convertTumorGenotype(VariantContext variantContext) {
-    return joinAlleles(EMPTY_ALLELE_STRING, getStrippedFirstAlternativeAlleleString(variantContext));
+  @Override public String convertTumorGenotype(AlleleView alleles) {
+    return joinAlleles(EMPTY_ALLELE_STRING, alleles.getStrippedAlternativeAllele());
   }
 
 }
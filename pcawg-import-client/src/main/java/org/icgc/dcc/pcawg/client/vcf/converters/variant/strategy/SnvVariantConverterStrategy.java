@@ -1,43 +1,39 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy;
 
-import htsjdk.variant.variantcontext.VariantContext;
 import lombok.val;
+import org.icgc.dcc.pcawg.client.vcf.converters.variant.AlleleView;
 
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getFirstAlternativeAlleleString;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getReferenceAlleleLength;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getReferenceAlleleString;
-import static org.icgc.dcc.pcawg.client.vcf.VCF.getStart;
 import static org.icgc.dcc.pcawg.client.vcf.VCF.joinAlleles;
 
-public class SnvVariantConverterStrategy implements VariantConverterStrategy<VariantContext> {
+public class SnvVariantConverterStrategy implements VariantConverterStrategy<AlleleView> {
 
-  @Override public int convertChromosomeEnd(VariantContext variantContext) {
-    return getStart(variantContext) + getReferenceAlleleLength(variantContext) - 1;
+  @Override public int convertChromosomeEnd(AlleleView alleles) {
+    return alleles.getStart() + alleles.getReferenceAlleleLength() - 1;
   }
 
-  @Override public int convertChromosomeStart(VariantContext variantContext) {
-    return getStart(variantContext);
+  @Override public int convertChromosomeStart(AlleleView alleles) {
+    return alleles.getStart();
   }
 
-  @Override public String convertControlGenotype(VariantContext variantContext) {
-    val ref = getReferenceAlleleString(variantContext);
+  @Override public String convertControlGenotype(AlleleView alleles) {
+    val ref = alleles.getReferenceAllele();
     return joinAlleles(ref, ref);
   }
 
-  @Override public String convertMutatedFromAllele(VariantContext variantContext) {
-    return getReferenceAlleleString(variantContext);
+  @Override public String convertMutatedFromAllele(AlleleView alleles) {
+    return alleles.getReferenceAllele();
   }
 
-  @Override public String convertMutatedToAllele(VariantContext variantContext) {
-    return getFirstAlternativeAlleleString(variantContext);
+  @Override public String convertMutatedToAllele(AlleleView alleles) {
+    return alleles.getAlternativeAllele();
   }
 
-  @Override public String convertReferenceGenomeAllele(VariantContext variantContext) {
-    return getReferenceAlleleString(variantContext);
+  @Override public String convertReferenceGenomeAllele(AlleleView alleles) {
+    return alleles.getReferenceAllele();
   }
 
-  @Override public String convertTumorGenotype(VariantContext variantContext) {
-    return joinAlleles(getReferenceAlleleString(variantContext), getFirstAlternativeAlleleString(variantContext));
+  @Override public String convertTumorGenotype(AlleleView alleles) {
+    return joinAlleles(alleles.getReferenceAllele(), alleles.getAlternativeAllele());
   }
 
 }
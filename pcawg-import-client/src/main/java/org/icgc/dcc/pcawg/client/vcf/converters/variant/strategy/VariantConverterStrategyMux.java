@@ -1,7 +1,7 @@
 package org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy;
 
-import htsjdk.variant.variantcontext.VariantContext;
 import org.icgc.dcc.pcawg.client.core.types.MutationTypes;
+import org.icgc.dcc.pcawg.client.vcf.converters.variant.AlleleView;
 
 public class VariantConverterStrategyMux {
   private static final DeletionVariantConverterStrategy DELETION_VARIANT_CONVERTER_STRATEGY = new DeletionVariantConverterStrategy();
@@ -9,7 +9,7 @@ public class VariantConverterStrategyMux {
   private static final SnvVariantConverterStrategy SNV_VARIANT_CONVERTER_STRATEGY = new SnvVariantConverterStrategy();
   private static final MnvVariantConverterStrategy MNV_VARIANT_CONVERTER_STRATEGY = new MnvVariantConverterStrategy();
 
-  public VariantConverterStrategy<VariantContext> select(MutationTypes mutationType){
+  public VariantConverterStrategy<AlleleView> select(MutationTypes mutationType){
     switch(mutationType){
       case DELETION_LTE_200BP:
         return DELETION_VARIANT_CONVERTER_STRATEGY;
@@ -1,7 +1,7 @@
 package org.icgc.dcc.pcawg.client.vcf.errors;
 
-import htsjdk.variant.variantcontext.VariantContext;
 import lombok.Getter;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
 
 import java.util.List;
 
@@ -13,30 +13,30 @@ public class PcawgVariantException extends PcawgException {
   private final List<PcawgVariantErrors> errors;
 
   @Getter
-  private final VariantContext variant;
+  private final ConsensusVariant variant;
 
-  public PcawgVariantException(String message, VariantContext variant, PcawgVariantErrors error) {
+  public PcawgVariantException(String message, ConsensusVariant variant, PcawgVariantErrors error) {
     this(message, variant, newArrayList(error));
   }
-  public PcawgVariantException(String message, VariantContext variant, List<PcawgVariantErrors> errors) {
+  public PcawgVariantException(String message, ConsensusVariant variant, List<PcawgVariantErrors> errors) {
     super(message);
     this.variant = variant;
     this.errors = errors;
   }
 
-  public PcawgVariantException(String message, Throwable cause, VariantContext variant, PcawgVariantErrors error) {
+  public PcawgVariantException(String message, Throwable cause, ConsensusVariant variant, PcawgVariantErrors error) {
     this(message, cause, variant, newArrayList(error));
   }
-  public PcawgVariantException(String message, Throwable cause, VariantContext variant, List<PcawgVariantErrors> errors) {
+  public PcawgVariantException(String message, Throwable cause, ConsensusVariant variant, List<PcawgVariantErrors> errors) {
     super(message, cause);
     this.variant = variant;
     this.errors = errors;
   }
 
-  public PcawgVariantException(Throwable cause, VariantContext variant, PcawgVariantErrors error) {
+  public PcawgVariantException(Throwable cause, ConsensusVariant variant, PcawgVariantErrors error) {
     this(cause, variant, newArrayList(error));
   }
-  public PcawgVariantException(Throwable cause, VariantContext variant, List<PcawgVariantErrors> errors) {
+  public PcawgVariantException(Throwable cause, ConsensusVariant variant, List<PcawgVariantErrors> errors) {
     super(cause);
     this.variant = variant;
     this.errors = errors;
@@ -0,0 +1,374 @@
+package org.icgc.dcc.pcawg.client;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import lombok.Cleanup;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.portal.PortalMetadata;
+import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
+import org.icgc.dcc.pcawg.client.data.metadata.ConsensusSampleMetadata;
+import org.icgc.dcc.pcawg.client.download.MetadataContainer;
+import org.icgc.dcc.pcawg.client.storage.StorageFactory;
+import org.icgc.dcc.pcawg.client.tsv.fscontroller.FsController;
+import org.icgc.dcc.pcawg.client.tsv.writer.WriterContext;
+import org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.reverseOrder;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.DccProjectProcessor.newProcessorNoValidation;
+import static org.icgc.dcc.pcawg.client.config.ClientProperties.SSM_P_TSV_FILENAME_PREFIX;
+import static org.icgc.dcc.pcawg.client.core.Factory.newDccMetadataTransformerFactory;
+import static org.icgc.dcc.pcawg.client.core.Factory.newDccPrimaryTransformerFactory;
+import static org.icgc.dcc.pcawg.client.core.model.portal.PortalFilename.newPortalFilename;
+import static org.icgc.dcc.pcawg.client.download.CostModel.newCostModel;
+import static org.icgc.dcc.pcawg.client.filter.variant.VariantFilterFactory.newVariantFilterFactory;
+import static org.icgc.dcc.pcawg.client.tsv.fscontroller.impl.LocalFsController.newLocalFsController;
+import static org.icgc.dcc.pcawg.client.utils.measurement.AtomicIntegerCounter.newDefaultAtomicIntegerCounter;
+import static org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.newCheckpointJournal;
+import static org.icgc.dcc.pcawg.client.utils.persistance.CheckpointJournal.newDisabledCheckpointJournal;
+
+/**
+ * Interrupts the conversion of a project, either by killing it or by failing one of its files, resumes it from the
+ * checkpoint journal, and compares the outputs with those of an uninterrupted conversion
+ */
+public class DccProjectProcessorTest {
+
+  private static final String FIXTURE_VCF = "fixtures/test_snv_mnv_single_base.vcf";
+  private static final String DCC_PROJECT_CODE = "TEST-CA";
+  private static final int NUM_FILES = 3;
+  private static final int NUM_RECORDS_PER_FILE = 2000;
+  private static final int CHECKPOINT_INTERVAL_SECONDS = 1;
+
+  private Path workDir;
+  private Path vcfDir;
+  private MetadataContainer metadataContainer;
+
+  @Before
+  @SneakyThrows
+  public void init(){
+    workDir = Files.createTempDirectory("dccProjectProcessorTest");
+    vcfDir = Files.createDirectory(workDir.resolve("vcfs"));
+    val portalMetadatas = ImmutableSet.<PortalMetadata>builder();
+    for (int i = 0; i < NUM_FILES; i++){
+      portalMetadatas.add(writeVcfFile(i));
+    }
+    metadataContainer = new MetadataContainer(portalFilename -> ConsensusSampleMetadata.builder()
+        .aliquotId(portalFilename.getAliquotId())
+        .isUsProject(false)
+        .analyzedSampleId(getAnalyzedSampleId(portalFilename.getAliquotId()))
+        .dccProjectCode(DCC_PROJECT_CODE)
+        .matchedSampleId("matched-" + portalFilename.getAliquotId())
+        .analyzedFileId("analyzed-file-" + portalFilename.getAliquotId())
+        .matchedFileId("matched-file-" + portalFilename.getAliquotId())
+        .build(), portalMetadatas.build());
+  }
+
+  @After
+  @SneakyThrows
+  public void destroy(){
+    try (Stream<Path> paths = Files.walk(workDir)){
+      paths.sorted(reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  private static String getAliquotId(final int fileIndex){
+    return String.format("00000000-0000-0000-0000-%012d", fileIndex);
+  }
+
+  private static String getAnalyzedSampleId(String aliquotId){
+    return "SA-" + aliquotId;
+  }
+
+  /**
+   * Writes a BGZF vcf file of NUM_RECORDS_PER_FILE records, so that it can be checkpointed from within
+   */
+  @SneakyThrows
+  private PortalMetadata writeVcfFile(final int fileIndex){
+    val aliquotId = getAliquotId(fileIndex);
+    val filename = aliquotId + ".consensus.20160830.somatic.snv_mnv.vcf.gz";
+    val path = vcfDir.resolve(filename);
+    try (BlockCompressedOutputStream output = new BlockCompressedOutputStream(path.toFile())){
+      for (val line : Resources.readLines(Resources.getResource(FIXTURE_VCF), UTF_8)){
+        if (line.startsWith("#")){
+          output.write((line + "\n").getBytes(UTF_8));
+        }
+      }
+      for (int i = 1; i <= NUM_RECORDS_PER_FILE; i++){
+        val record = String.format("1\t%s\t.\tA\tT\t.\tPASS\tCallers=broad,dkfz;NumCallers=2;t_alt_count=%s;"
+            + "t_ref_count=%s", 1000 * fileIndex + 10 * i, i % 7 + 1, i % 11 + 20);
+        output.write((record + "\n").getBytes(UTF_8));
+      }
+    }
+    return PortalMetadata.builder()
+        .portalFilename(newPortalFilename(filename))
+        .dataType("SSM")
+        .donorId("DO" + fileIndex)
+        .fileId("FI" + fileIndex)
+        .fileMd5sum("")
+        .fileSize(Files.size(path))
+        .genomeBuild("GRCh37")
+        .objectId("object-" + fileIndex)
+        .referenceName("hs37d5")
+        .sampleId("SA" + fileIndex)
+        .build();
+  }
+
+  private DccProjectProcessor newProcessor(FsController<Path> fsController, Path outputDir,
+      CheckpointJournal checkpointJournal){
+    val storageFactory = StorageFactory.builder()
+        .outputVcfDir(vcfDir)
+        .bypassMD5Check(true)
+        .token("")
+        .build();
+    return newProcessorNoValidation(storageFactory,
+        newDccPrimaryTransformerFactory(fsController, outputDir.toString()),
+        newDccMetadataTransformerFactory(fsController, outputDir.toString()),
+        metadataContainer, newVariantFilterFactory(true, true), newDefaultAtomicIntegerCounter(), newCostModel(),
+        checkpointJournal, ProcessorOptions.builder()
+            .fileThreads(1)
+            .checkpointFiles(checkpointJournal.isEnabled())
+            .checkpointIntervalSeconds(CHECKPOINT_INTERVAL_SECONDS)
+            .contigThreads(1)
+            .convertThreads(1)
+            .convertBatchSize(1)
+            .regions(Optional.empty())
+            .build());
+  }
+
+  private Path convertUninterrupted(){
+    val outputDir = workDir.resolve("uninterrupted");
+    assertThat(newProcessor(newLocalFsController(), outputDir, newDisabledCheckpointJournal())
+        .process(DCC_PROJECT_CODE)).isTrue();
+    return outputDir;
+  }
+
+  /**
+   * Same outputs, byte for byte for the primary ones. The rows of the metadata outputs are not ordered
+   */
+  @SneakyThrows
+  private static void assertSameOutputs(Path actualDir, Path expectedDir, final boolean samePrimaryOrder){
+    int numOutputs = 0;
+    for (val workflowType : WorkflowTypes.values()){
+      val actual = getPrimaryOutputPath(actualDir, workflowType);
+      val expected = getPrimaryOutputPath(expectedDir, workflowType);
+      assertThat(Files.exists(actual)).as(actual.toString()).isEqualTo(Files.exists(expected));
+      if (Files.exists(expected)){
+        numOutputs++;
+        if (samePrimaryOrder){
+          assertThat(Files.readAllBytes(actual)).as(actual.toString()).isEqualTo(Files.readAllBytes(expected));
+        } else {
+          assertThat(readSortedLines(actual)).as(actual.toString()).isEqualTo(readSortedLines(expected));
+        }
+      }
+      val actualMetadata = getMetadataOutputPath(actualDir, workflowType);
+      val expectedMetadata = getMetadataOutputPath(expectedDir, workflowType);
+      assertThat(Files.exists(actualMetadata)).isEqualTo(Files.exists(expectedMetadata));
+      if (Files.exists(expectedMetadata)){
+        assertThat(readSortedLines(actualMetadata)).isEqualTo(readSortedLines(expectedMetadata));
+      }
+    }
+    assertThat(numOutputs).isGreaterThan(0);
+  }
+
+  private static Path getPrimaryOutputPath(Path outputDir, WorkflowTypes workflowType){
+    return newDccPrimaryTransformerFactory(newLocalFsController(), outputDir.toString())
+        .getDccTransformer(DCC_PROJECT_CODE).getOutputPath(workflowType);
+  }
+
+  private static Path getMetadataOutputPath(Path outputDir, WorkflowTypes workflowType){
+    return newDccMetadataTransformerFactory(newLocalFsController(), outputDir.toString())
+        .getDccTransformer(DCC_PROJECT_CODE).getOutputPath(workflowType);
+  }
+
+  @SneakyThrows
+  private static List<String> readSortedLines(Path path){
+    return Files.readAllLines(path, UTF_8).stream().sorted().collect(toList());
+  }
+
+  @Test
+  @SneakyThrows
+  public void testResumeAfterKill(){
+    val expectedDir = convertUninterrupted();
+    val numRows = Files.readAllLines(getPrimaryOutputPath(expectedDir, WorkflowTypes.CONSENSUS), UTF_8).size() - 1;
+    assertThat(numRows).isEqualTo(NUM_FILES * NUM_RECORDS_PER_FILE);
+
+    // Paused long enough within the last file for its progress to be journaled, then killed further in that file
+    val outputDir = workDir.resolve("resumed");
+    val journalPath = workDir.resolve("checkpoint.journal");
+    val lastFileRow = (NUM_FILES - 1) * NUM_RECORDS_PER_FILE;
+    val interruptingFsController = new InterruptingFsController(WorkflowTypes.CONSENSUS,
+        lastFileRow + NUM_RECORDS_PER_FILE / 4, lastFileRow + NUM_RECORDS_PER_FILE / 2, false);
+    @Cleanup val killedJournal = newCheckpointJournal(journalPath, outputDir);
+    try {
+      newProcessor(interruptingFsController, outputDir, killedJournal).process(DCC_PROJECT_CODE);
+    } catch (KilledError e){
+      // Expected
+    }
+    assertThat(interruptingFsController.isInterrupted()).isTrue();
+    killedJournal.close();
+
+    @Cleanup val journal = newCheckpointJournal(journalPath, outputDir);
+    assertThat(journal.getFileCheckpoints(DCC_PROJECT_CODE)).hasSize(NUM_FILES - 1);
+    assertThat(journal.getFileProgress(DCC_PROJECT_CODE)).isPresent();
+    assertThat(newProcessor(newLocalFsController(), outputDir, journal).process(DCC_PROJECT_CODE)).isTrue();
+    assertThat(journal.isProjectDone(DCC_PROJECT_CODE)).isTrue();
+    assertSameOutputs(outputDir, expectedDir, true);
+  }
+
+  @Test
+  @SneakyThrows
+  public void testResumeAfterFailedFile(){
+    val expectedDir = convertUninterrupted();
+
+    // The second file fails half way, after its progress was journaled
+    val outputDir = workDir.resolve("resumed");
+    val journalPath = workDir.resolve("checkpoint.journal");
+    val interruptingFsController = new InterruptingFsController(WorkflowTypes.CONSENSUS,
+        NUM_RECORDS_PER_FILE + NUM_RECORDS_PER_FILE / 4, NUM_RECORDS_PER_FILE + NUM_RECORDS_PER_FILE / 2, true);
+    @Cleanup val failedJournal = newCheckpointJournal(journalPath, outputDir);
+    assertThat(newProcessor(interruptingFsController, outputDir, failedJournal).process(DCC_PROJECT_CODE)).isFalse();
+    assertThat(interruptingFsController.isInterrupted()).isTrue();
+    assertThat(failedJournal.isProjectDone(DCC_PROJECT_CODE)).isFalse();
+    failedJournal.close();
+
+    // None of the rows of the failed file are left, and the other files were converted
+    val failedSampleId = getAnalyzedSampleId(getAliquotId(1));
+    val rows = Files.readAllLines(getPrimaryOutputPath(outputDir, WorkflowTypes.CONSENSUS), UTF_8);
+    assertThat(rows).hasSize(1 + (NUM_FILES - 1) * NUM_RECORDS_PER_FILE);
+    assertThat(rows).noneMatch(r -> r.contains(failedSampleId));
+
+    @Cleanup val journal = newCheckpointJournal(journalPath, outputDir);
+    assertThat(journal.getFileCheckpoints(DCC_PROJECT_CODE)).hasSize(NUM_FILES - 1);
+    assertThat(journal.getFileProgress(DCC_PROJECT_CODE)).isEmpty();
+    assertThat(newProcessor(newLocalFsController(), outputDir, journal).process(DCC_PROJECT_CODE)).isTrue();
+    assertThat(journal.isProjectDone(DCC_PROJECT_CODE)).isTrue();
+    // The failed file is converted after the others, so only the rows are the same
+    assertSameOutputs(outputDir, expectedDir, false);
+  }
+
+  @Test
+  @SneakyThrows
+  public void testJournalOfOtherOutputDirDiscarded(){
+    val expectedDir = convertUninterrupted();
+
+    // Killed within the last file, in the output directory of a previous run
+    val previousOutputDir = workDir.resolve("previous");
+    val journalPath = workDir.resolve("checkpoint.journal");
+    val lastFileRow = (NUM_FILES - 1) * NUM_RECORDS_PER_FILE;
+    val interruptingFsController = new InterruptingFsController(WorkflowTypes.CONSENSUS,
+        lastFileRow + NUM_RECORDS_PER_FILE / 4, lastFileRow + NUM_RECORDS_PER_FILE / 2, false);
+    @Cleanup val killedJournal = newCheckpointJournal(journalPath, previousOutputDir);
+    try {
+      newProcessor(interruptingFsController, previousOutputDir, killedJournal).process(DCC_PROJECT_CODE);
+    } catch (KilledError e){
+      // Expected
+    }
+    killedJournal.close();
+
+    // The next run writes elsewhere, so none of the files written to the previous directory are skipped
+    val outputDir = workDir.resolve("next");
+    @Cleanup val journal = newCheckpointJournal(journalPath, outputDir);
+    assertThat(journal.getFileCheckpoints(DCC_PROJECT_CODE)).isEmpty();
+    assertThat(journal.getFileProgress(DCC_PROJECT_CODE)).isEmpty();
+    assertThat(newProcessor(newLocalFsController(), outputDir, journal).process(DCC_PROJECT_CODE)).isTrue();
+    assertSameOutputs(outputDir, expectedDir, true);
+  }
+
+  /**
+   * Stands for the process being killed, which nothing catches
+   */
+  private static class KilledError extends Error {
+  }
+
+  /**
+   * Local outputs whose rows of a WorkflowTypes are counted. Once pauseRow rows were written, pauses for longer than
+   * the checkpoint interval, so that the progress is journaled. Once interruptRow rows were written, either fails the
+   * write, or kills the conversion
+   */
+  @RequiredArgsConstructor
+  private static class InterruptingFsController implements FsController<Path> {
+
+    private final FsController<Path> localFsController = newLocalFsController();
+    private final AtomicLong rowCount = new AtomicLong(0);
+
+    private final WorkflowTypes workflowType;
+    private final long pauseRow;
+    private final long interruptRow;
+    private final boolean fail;
+    private volatile boolean interrupted;
+
+    boolean isInterrupted(){
+      return interrupted;
+    }
+
+    @Override
+    public boolean exists(Path path) throws IOException {
+      return localFsController.exists(path);
+    }
+
+    @Override
+    public Writer createWriter(WriterContext<Path> writerContext) throws IOException {
+      val writer = localFsController.createWriter(writerContext);
+      val primaryOutputName = SSM_P_TSV_FILENAME_PREFIX + "." + workflowType.getName() + ".";
+      if (!writerContext.getPath().getFileName().toString().startsWith(primaryOutputName)){
+        return writer;
+      }
+      return new FilterWriter(writer) {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+          super.write(buffer, offset, length);
+          countRow();
+        }
+
+      };
+    }
+
+    @SneakyThrows
+    private void countRow(){
+      if (interrupted){
+        return;
+      }
+      val row = rowCount.incrementAndGet();
+      if (row == pauseRow){
+        Thread.sleep(CHECKPOINT_INTERVAL_SECONDS * 1100L);
+      } else if (row == interruptRow){
+        interrupted = true;
+        if (fail){
+          throw new IOException("Failed to write the row " + row);
+        }
+        throw new KilledError();
+      }
+    }
+
+    @Override
+    public void deleteIfExists(Path path) throws IOException {
+      localFsController.deleteIfExists(path);
+    }
+
+    @Override
+    public void mkdirs(Path path) throws IOException {
+      localFsController.mkdirs(path);
+    }
+
+  }
+
+}
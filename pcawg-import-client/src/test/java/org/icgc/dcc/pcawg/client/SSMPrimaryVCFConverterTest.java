@@ -8,7 +8,7 @@ import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
 import org.icgc.dcc.pcawg.client.data.metadata.BasicSampleMetadata;
 import org.icgc.dcc.pcawg.client.data.metadata.ConsensusSampleMetadata;
 import org.icgc.dcc.pcawg.client.data.portal.PortalMetadataDao;
-import org.icgc.dcc.pcawg.client.filter.coding.SnpEffCodingFilter;
+import org.icgc.dcc.pcawg.client.filter.coding.CodingFilter;
 import org.icgc.dcc.pcawg.client.filter.variant.VariantFilterFactory;
 import org.icgc.dcc.pcawg.client.utils.measurement.CounterMonitor;
 import org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy.VariantConverterStrategyMux;
@@ -42,7 +42,7 @@ public class SSMPrimaryVCFConverterTest {
   private static final Path tempDownloadPath = scratchPath.resolve("tempDownload");
   private static final Path persistedPath = scratchPath.resolve("persisted");
   private static VariantFilterFactory variantAllFilterFactory;
-  private static SnpEffCodingFilter codingFilter;
+  private static CodingFilter codingFilter;
 
   @BeforeClass
   @SneakyThrows
@@ -0,0 +1,134 @@
+package org.icgc.dcc.pcawg.client.download;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.fasterxml.jackson.databind.node.JsonNodeFactory.instance;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.IoExecutor.getDefaultIoExecutor;
+
+/**
+ * Runs the Portal against a local stub of the repository files endpoint, where every page takes LATENCY_MS to serve.
+ * Fetching the pages one after the other takes TOTAL_PAGES * LATENCY_MS, which is what building the startup metadata
+ * used to cost against the real portal. The first two pages after the first one are only served once both were
+ * requested, so they can only be served without waiting OVERLAP_TIMEOUT_SECONDS if they are fetched concurrently.
+ */
+@Slf4j
+public class PortalTest {
+
+  private static final int PAGE_SIZE = 100;
+  private static final int TOTAL_PAGES = 40;
+  private static final int TOTAL_HITS = PAGE_SIZE * TOTAL_PAGES - 7;
+  private static final long LATENCY_MS = 150;
+  private static final long OVERLAP_TIMEOUT_SECONDS = 30;
+
+  private HttpServer server;
+  private final AtomicInteger requestCount = new AtomicInteger(0);
+  private final AtomicInteger inFlight = new AtomicInteger(0);
+  private final AtomicInteger maxInFlight = new AtomicInteger(0);
+  private final Multiset<Integer> requestedFroms = ConcurrentHashMultiset.create();
+  private final CountDownLatch overlappingPages = new CountDownLatch(2);
+  private final AtomicInteger numNotOverlapped = new AtomicInteger(0);
+
+  @Before
+  @SneakyThrows
+  public void before(){
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/api/v1/repository/files", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @After
+  public void after(){
+    server.stop(0);
+  }
+
+  @SneakyThrows
+  private void handle(HttpExchange exchange){
+    val current = inFlight.incrementAndGet();
+    maxInFlight.accumulateAndGet(current, Math::max);
+    requestCount.incrementAndGet();
+    try {
+      val from = parseFrom(exchange.getRequestURI().getRawQuery());
+      requestedFroms.add(from);
+      if (from > 1){
+        overlappingPages.countDown();
+        if (!overlappingPages.await(OVERLAP_TIMEOUT_SECONDS, SECONDS)){
+          numNotOverlapped.incrementAndGet();
+        }
+      }
+      Thread.sleep(LATENCY_MS);
+      val result = instance.objectNode();
+      val hits = result.putArray("hits");
+      for (int i = from; i < from + PAGE_SIZE && i <= TOTAL_HITS; i++){
+        hits.addObject().put("id", "FI" + i);
+      }
+      result.putObject("pagination").put("total", TOTAL_HITS);
+      val body = result.toString().getBytes(UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      exchange.getResponseBody().write(body);
+    } finally {
+      inFlight.decrementAndGet();
+      exchange.close();
+    }
+  }
+
+  private static int parseFrom(String query){
+    for (val param : query.split("&")){
+      if (param.startsWith("from=")){
+        return Integer.parseInt(param.substring("from=".length()));
+      }
+    }
+    throw new IllegalStateException("No from parameter in query: " + query);
+  }
+
+  private Portal newStubPortal(){
+    return Portal.builder()
+        .jsonQueryGenerator(instance::objectNode)
+        .portalApi("http://localhost:" + server.getAddress().getPort())
+        .build();
+  }
+
+  @Test
+  public void testFileMetasFetchedConcurrently(){
+    val portal = newStubPortal();
+
+    val start = System.nanoTime();
+    val fileMetas = portal.getFileMetas();
+    val elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - start);
+    val serialMs = TOTAL_PAGES * LATENCY_MS;
+    log.info("Fetched {} pages in {} ms (serial estimate {} ms, max in flight {}, virtual threads {})",
+        requestCount.get(), elapsedMs, serialMs, maxInFlight.get(), getDefaultIoExecutor().isVirtual());
+
+    assertThat(requestCount.get()).isEqualTo(TOTAL_PAGES);
+    assertThat(fileMetas).hasSize(TOTAL_HITS);
+    for (int i = 0; i < TOTAL_HITS; i++){
+      assertThat(fileMetas.get(i).get("id").textValue()).isEqualTo("FI" + (i + 1));
+    }
+    // Every page is fetched once, and the pages after the first one are in flight at the same time
+    for (int page = 0; page < TOTAL_PAGES; page++){
+      assertThat(requestedFroms.count(1 + page * PAGE_SIZE)).as("from %s", 1 + page * PAGE_SIZE).isEqualTo(1);
+    }
+    assertThat(numNotOverlapped.get()).isEqualTo(0);
+    assertThat(maxInFlight.get()).isGreaterThan(1);
+    assertThat(maxInFlight.get()).isLessThanOrEqualTo(getDefaultIoExecutor().getMaxConcurrency());
+  }
+
+}
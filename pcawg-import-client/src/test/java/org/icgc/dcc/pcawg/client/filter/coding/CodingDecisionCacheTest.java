@@ -0,0 +1,94 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingDecisionCache.newCodingDecisionCache;
+
+public class CodingDecisionCacheTest {
+
+  private static final String DATABASE_VERSION = "3.6c-GRCh37.75";
+  private static final int NUM_VARIANTS = 10000;
+
+  private Path persistDir;
+
+  @Before
+  @SneakyThrows
+  public void init(){
+    persistDir = Files.createTempDirectory("codingDecisionCacheTest");
+  }
+
+  @After
+  @SneakyThrows
+  public void destroy(){
+    try (Stream<Path> paths = Files.walk(persistDir)){
+      paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  private static boolean isCoding(final int position){
+    return position % 3 == 0;
+  }
+
+  private static void putVariants(CodingDecisionCache cache, final int from, final int to){
+    for (int position = from; position < to; position++){
+      cache.put(cache.newKey("1", position, "A", "T"), isCoding(position));
+    }
+  }
+
+  private static void assertVariants(CodingDecisionCache cache, final int from, final int to){
+    for (int position = from; position < to; position++){
+      assertThat(cache.get(cache.newKey("1", position, "A", "T"))).isEqualTo(Optional.of(isCoding(position)));
+    }
+  }
+
+  @Test
+  public void testStoredAcrossRuns(){
+    val firstRun = newCodingDecisionCache(persistDir, DATABASE_VERSION);
+    putVariants(firstRun, 0, NUM_VARIANTS);
+    firstRun.store();
+
+    val secondRun = newCodingDecisionCache(persistDir, DATABASE_VERSION);
+    assertVariants(secondRun, 0, NUM_VARIANTS);
+    assertThat(secondRun.get(secondRun.newKey("1", 1, "A", "G"))).isEqualTo(Optional.empty());
+
+    // Merged with the decisions of the previous runs
+    putVariants(secondRun, NUM_VARIANTS / 2, 2 * NUM_VARIANTS);
+    secondRun.store();
+    val thirdRun = newCodingDecisionCache(persistDir, DATABASE_VERSION);
+    assertVariants(thirdRun, 0, 2 * NUM_VARIANTS);
+  }
+
+  @Test
+  public void testPeriodicStore(){
+    val cache = newCodingDecisionCache(persistDir, DATABASE_VERSION, NUM_VARIANTS / 4);
+    putVariants(cache, 0, NUM_VARIANTS);
+    // The decisions being stored, or already stored, are still found
+    assertVariants(cache, 0, NUM_VARIANTS);
+    cache.close();
+
+    val nextRun = newCodingDecisionCache(persistDir, DATABASE_VERSION);
+    assertVariants(nextRun, 0, NUM_VARIANTS);
+  }
+
+  @Test
+  public void testOtherDatabaseVersion(){
+    val cache = newCodingDecisionCache(persistDir, DATABASE_VERSION);
+    putVariants(cache, 0, NUM_VARIANTS);
+    cache.store();
+
+    val otherCache = newCodingDecisionCache(persistDir, "4.0-GRCh37.75");
+    assertThat(otherCache.get(otherCache.newKey("1", 3, "A", "T"))).isEqualTo(Optional.empty());
+  }
+
+}
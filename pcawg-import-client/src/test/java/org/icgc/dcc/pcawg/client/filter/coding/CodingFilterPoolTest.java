@@ -0,0 +1,143 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.collect.Lists;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingFilterPool.newCodingFilterPool;
+
+public class CodingFilterPoolTest {
+
+  private static final int NUM_WORKERS = 3;
+  private static final int NUM_LINES = 1000;
+
+  /**
+   * Predicts the lines ending with a multiple of 3 as coding, once flushed
+   */
+  private static class FakeCodingFilter implements CodingFilter {
+
+    private final List<String> bufferedLines = Lists.newArrayList();
+    private final List<CompletableFuture<Boolean>> bufferedPredictions = Lists.newArrayList();
+    private boolean alive = true;
+
+    @Override
+    public synchronized CompletableFuture<Boolean> submit(String line) {
+      val prediction = new CompletableFuture<Boolean>();
+      if (!alive){
+        throw new IllegalStateException("dead");
+      }
+      bufferedLines.add(line);
+      bufferedPredictions.add(prediction);
+      return prediction;
+    }
+
+    @Override
+    public Boolean await(CompletableFuture<Boolean> prediction) {
+      flush();
+      return prediction.join();
+    }
+
+    @Override
+    public synchronized void flush() {
+      for (int i = 0; i < bufferedLines.size(); i++){
+        bufferedPredictions.get(i).complete(isCodingLine(bufferedLines.get(i)));
+      }
+      bufferedLines.clear();
+      bufferedPredictions.clear();
+    }
+
+    /**
+     * Fails the pending predictions, like a crashed process
+     */
+    public synchronized void crash() {
+      alive = false;
+      bufferedPredictions.forEach(p -> p.completeExceptionally(new IllegalStateException("crashed")));
+      bufferedLines.clear();
+      bufferedPredictions.clear();
+    }
+
+    @Override
+    public synchronized boolean isAlive() {
+      return alive;
+    }
+
+    @Override
+    public synchronized void destroy() {
+      alive = false;
+    }
+
+  }
+
+  private static boolean isCodingLine(String line){
+    return Integer.parseInt(line) % 3 == 0;
+  }
+
+  private static List<String> newLines(){
+    return IntStream.range(0, NUM_LINES).mapToObj(Integer::toString).collect(toList());
+  }
+
+  @Test
+  public void testPredictionsInOrder(){
+    val numStarted = new AtomicInteger(0);
+    val pool = newCodingFilterPool(NUM_WORKERS, () -> {
+      numStarted.incrementAndGet();
+      return new FakeCodingFilter();
+    });
+    val lines = newLines();
+    val predictions = lines.stream().map(pool::submit).collect(toList());
+    for (int i = 0; i < lines.size(); i++){
+      assertThat(pool.await(predictions.get(i))).isEqualTo(isCodingLine(lines.get(i)));
+    }
+    assertThat(numStarted.get()).isEqualTo(NUM_WORKERS);
+    pool.destroy();
+  }
+
+  @Test
+  public void testCrashedWorkerRestarted(){
+    val workers = Lists.<FakeCodingFilter>newCopyOnWriteArrayList();
+    val pool = newCodingFilterPool(NUM_WORKERS, () -> {
+      val worker = new FakeCodingFilter();
+      workers.add(worker);
+      return worker;
+    });
+    val lines = newLines();
+    val predictions = lines.stream().map(pool::submit).collect(toList());
+    workers.get(1).crash();
+    for (int i = 0; i < lines.size(); i++){
+      assertThat(pool.await(predictions.get(i))).isEqualTo(isCodingLine(lines.get(i)));
+    }
+    assertThat(workers).hasSize(NUM_WORKERS + 1);
+    assertThat(pool.isAlive()).isTrue();
+    pool.destroy();
+  }
+
+  @Test
+  public void testResubmittedOffFailingThread(){
+    val workers = Lists.<FakeCodingFilter>newCopyOnWriteArrayList();
+    val startingThreads = Lists.<Thread>newCopyOnWriteArrayList();
+    val pool = newCodingFilterPool(NUM_WORKERS, () -> {
+      val worker = new FakeCodingFilter();
+      workers.add(worker);
+      startingThreads.add(Thread.currentThread());
+      return worker;
+    });
+    val lines = newLines();
+    val predictions = lines.stream().map(pool::submit).collect(toList());
+    // The lost requests fail on this thread, like on the thread reading the results of a crashed process
+    workers.get(1).crash();
+    for (int i = 0; i < lines.size(); i++){
+      assertThat(pool.await(predictions.get(i))).isEqualTo(isCodingLine(lines.get(i)));
+    }
+    assertThat(startingThreads).hasSize(NUM_WORKERS + 1);
+    assertThat(startingThreads.get(NUM_WORKERS)).isNotSameAs(Thread.currentThread());
+    pool.destroy();
+  }
+
+}
@@ -0,0 +1,116 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.collect.ImmutableList;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.Test;
+
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.filter.coding.CodingRegionIndex.readCodingRegionIndex;
+
+public class CodingRegionIndexTest {
+
+  private static final List<String> GTF_LINES = ImmutableList.of(
+      "#!genome-build GRCh37.p13",
+      "17\tprotein_coding\texon\t7571720\t7573008\t.\t-\t.\tgene_id \"ENSG00000141510\";",
+      "17\tprotein_coding\tCDS\t7572930\t7573008\t.\t-\t0\tgene_id \"ENSG00000141510\";",
+      "17\tprotein_coding\tstop_codon\t7572927\t7572929\t.\t-\t0\tgene_id \"ENSG00000141510\";",
+      "17\tprotein_coding\tCDS\t7573927\t7574033\t.\t-\t1\tgene_id \"ENSG00000141510\";",
+      "17\tprotein_coding\tCDS\t7573950\t7573960\t.\t-\t1\tgene_id \"ENSG00000141510\";",
+      "1\tprotein_coding\tCDS\t1000\t2000\t.\t+\t0\tgene_id \"ENSG00000000001\";",
+      "1\tprotein_coding\tUTR\t3000\t4000\t.\t+\t.\tgene_id \"ENSG00000000001\";");
+
+  @SneakyThrows
+  private static Path write(String suffix, List<String> lines){
+    val path = Files.createTempFile(CodingRegionIndexTest.class.getSimpleName(), suffix);
+    path.toFile().deleteOnExit();
+    Files.write(path, lines, UTF_8);
+    return path;
+  }
+
+  @Test
+  public void testGtf(){
+    val index = readCodingRegionIndex(write(".gtf", GTF_LINES));
+    // The CDS and stop codon touch, and the nested CDS is merged into the one containing it
+    assertThat(index.getNumRegions()).isEqualTo(3);
+
+    assertThat(index.overlaps("17", 7572927, 7572927)).isTrue();
+    assertThat(index.overlaps("17", 7573008, 7573008)).isTrue();
+    assertThat(index.overlaps("17", 7573955, 7573955)).isTrue();
+    assertThat(index.overlaps("1", 1000, 1000)).isTrue();
+    assertThat(index.overlaps("1", 2000, 2000)).isTrue();
+
+    // Exons and UTRs are not coding
+    assertThat(index.overlaps("17", 7571800, 7571800)).isFalse();
+    assertThat(index.overlaps("17", 7573500, 7573500)).isFalse();
+    assertThat(index.overlaps("1", 3500, 3500)).isFalse();
+    assertThat(index.overlaps("1", 1, 1)).isFalse();
+    assertThat(index.overlaps("2", 1500, 1500)).isFalse();
+  }
+
+  @Test
+  public void testPadding(){
+    val index = readCodingRegionIndex(write(".gtf", GTF_LINES));
+    assertThat(index.overlaps("1", 997, 997)).isTrue();
+    assertThat(index.overlaps("1", 996, 996)).isFalse();
+    assertThat(index.overlaps("1", 2003, 2003)).isTrue();
+    assertThat(index.overlaps("1", 2004, 2004)).isFalse();
+  }
+
+  @Test
+  public void testDeletionSpanningRegion(){
+    val index = readCodingRegionIndex(write(".gtf", GTF_LINES));
+    assertThat(index.overlaps("1", 900, 2100)).isTrue();
+    assertThat(index.overlaps("1", 2100, 2900)).isFalse();
+  }
+
+  @Test
+  @SneakyThrows
+  public void testGzippedBed(){
+    val path = Files.createTempFile(CodingRegionIndexTest.class.getSimpleName(), ".bed.gz");
+    path.toFile().deleteOnExit();
+    try (OutputStreamWriter writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(path)), UTF_8)){
+      writer.write("track name=coding\n1\t999\t2000\n");
+    }
+
+    val index = readCodingRegionIndex(path);
+    assertThat(index.getNumRegions()).isEqualTo(1);
+    assertThat(index.overlaps("1", 1000, 1000)).isTrue();
+    assertThat(index.overlaps("1", 2004, 2004)).isFalse();
+  }
+
+  @Test
+  public void testUcscContigs(){
+    val index = readCodingRegionIndex(write(".bed", ImmutableList.of("chr1\t999\t2000", "chrM\t99\t200")));
+    assertThat(index.overlaps("1", 1000, 1000)).isTrue();
+    assertThat(index.overlaps("chr1", 1000, 1000)).isTrue();
+    assertThat(index.overlaps("MT", 100, 100)).isTrue();
+    assertThat(index.overlaps("chrM", 100, 100)).isTrue();
+    assertThat(index.overlaps("1", 3000, 3000)).isFalse();
+
+    val ensemblIndex = readCodingRegionIndex(write(".gtf", GTF_LINES));
+    assertThat(ensemblIndex.overlaps("chr17", 7572927, 7572927)).isTrue();
+  }
+
+  @Test
+  public void testCheckContigs(){
+    val index = readCodingRegionIndex(write(".gtf", GTF_LINES));
+    index.checkContigs(ImmutableList.of("1", "2", "GL000207.1"));
+    index.checkContigs(ImmutableList.of("chr17"));
+    index.checkContigs(ImmutableList.of());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCheckContigsNoneMatching(){
+    val index = readCodingRegionIndex(write(".gtf", GTF_LINES));
+    index.checkContigs(ImmutableList.of("2", "X"));
+  }
+
+}
@@ -0,0 +1,78 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import com.google.common.collect.ImmutableList;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.filter.coding.EffScanner.scanCoding;
+import static org.icgc.dcc.pcawg.client.filter.coding.ResultsHandler.parseCoding;
+import static org.icgc.dcc.pcawg.client.utils.Benchmarks.benchmark;
+
+@Slf4j
+public class EffScannerTest {
+
+  private static final int BENCHMARK_ITERATIONS = 20000;
+  private static final String VARIANT = "1\t15292412\t.\tAATC\tA\t.\t.\tCallers=broad,dkfz;NumCallers=2;EFF=";
+  private static final String INTRON =
+      "intron_variant(MODIFIER|||||KIAA1026|processed_transcript|CODING|ENST00000375998|4|1)";
+  private static final String UPSTREAM =
+      "upstream_gene_variant(MODIFIER||3457|||RNU6-1|snRNA|NON_CODING|ENST00000384242||1)";
+  private static final String MISSENSE =
+      "missense_variant(MODERATE|MISSENSE|gCc/gTc|A12V|345|TP53|protein_coding|CODING|ENST00000269305|5|1)";
+  private static final String SPLICE_SYNONYMOUS =
+      "splice_region_variant+synonymous_variant"
+          + "(LOW|SILENT|ctG/ctA|L45|393|TP53|protein_coding|CODING|ENST00000269305|4|1)";
+
+  private static final List<String> LINES = ImmutableList.of(
+      "1\t15292412\t.\tAATC\tA\t.\t.\tCallers=broad,dkfz;NumCallers=2",
+      VARIANT + INTRON,
+      VARIANT + INTRON + "," + UPSTREAM,
+      VARIANT + INTRON + "," + MISSENSE,
+      VARIANT + MISSENSE + "," + INTRON);
+
+  @Test
+  public void testSameAsSnpEffectParser(){
+    for (val line : LINES){
+      val coding = scanCoding(line);
+      assertThat(coding).isNotNull();
+      assertThat(coding).isEqualTo(parseCoding(line));
+    }
+  }
+
+  @Test
+  public void testCombinedConsequenceTypes(){
+    assertThat(scanCoding(VARIANT + UPSTREAM + "," + SPLICE_SYNONYMOUS)).isTrue();
+  }
+
+  @Test
+  public void testEndOfEffField(){
+    assertThat(scanCoding(VARIANT + INTRON + ";LOF=(TP53|ENSG00000141510|1|1.00)\t" + MISSENSE)).isFalse();
+  }
+
+  @Test
+  public void testUnknownConsequenceType(){
+    assertThat(scanCoding(VARIANT + INTRON + ",NOT_A_CONSEQUENCE(MODIFIER||||||||||1)")).isNull();
+    assertThat(scanCoding(VARIANT + "NOT_A_CONSEQUENCE(MODIFIER||||||||||1)," + MISSENSE)).isTrue();
+  }
+
+  @Test
+  @Ignore("Benchmark")
+  public void testBenchmark(){
+    log.info("SnpEffectParser: {}", benchmark("line", BENCHMARK_ITERATIONS, LINES, EffScannerTest::parseCodingCount));
+    log.info("EffScanner: {}", benchmark("line", BENCHMARK_ITERATIONS, LINES, EffScannerTest::scanCodingCount));
+  }
+
+  private static int parseCodingCount(String line){
+    return parseCoding(line) ? 1 : 0;
+  }
+
+  private static int scanCodingCount(String line){
+    return Boolean.TRUE.equals(scanCoding(line)) ? 1 : 0;
+  }
+
+}
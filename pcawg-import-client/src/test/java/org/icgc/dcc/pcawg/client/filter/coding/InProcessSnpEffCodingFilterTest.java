@@ -0,0 +1,57 @@
+package org.icgc.dcc.pcawg.client.filter.coding;
+
+import lombok.val;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.filter.coding.InProcessSnpEffCodingFilter.newInProcessSnpEffCodingFilter;
+
+public class InProcessSnpEffCodingFilterTest {
+
+  private static final int NUM_THREADS = 4;
+  private static final int NUM_REPEATS = 50;
+
+  private static final List<String> LINES = Arrays.asList(
+      // Intron variants
+      "1\t15292412\t.\tAATC\tA\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Intron",
+      "17\t7578000\t.\tG\tA\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Intron",
+      // Missense variant of TP53
+      "17\t7577120\t.\tC\tT\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Missense_Mutation",
+      // Frame shift deletion and insertion of TP53
+      "17\t7577120\t.\tCG\tC\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Frame_Shift_Del",
+      "17\t7577120\t.\tC\tCA\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Frame_Shift_Ins",
+      // Intergenic variant
+      "1\t1000\t.\tA\tT\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=IGR");
+
+  @Test
+  public void testSamePredictionsAsSnpEffProcess() throws Exception {
+    val snpEffCodingFilter = new SnpEffCodingFilter(); // This takes a minute or so to bootstrap
+    val inProcessCodingFilter = newInProcessSnpEffCodingFilter(NUM_THREADS);
+
+    final List<Boolean> expected = LINES.stream()
+        .map(snpEffCodingFilter::isCoding)
+        .collect(toList());
+    assertThat(expected.get(0)).isFalse();
+    assertThat(expected.get(2)).isTrue();
+
+    // Submitted many times, so that the lines are parsed concurrently on every thread
+    final List<CompletableFuture<Boolean>> predictions = IntStream.range(0, NUM_REPEATS).boxed()
+        .flatMap(x -> LINES.stream())
+        .map(inProcessCodingFilter::submit)
+        .collect(toList());
+    for (int i = 0; i < predictions.size(); i++){
+      val line = LINES.get(i % LINES.size());
+      assertThat(inProcessCodingFilter.await(predictions.get(i))).as(line).isEqualTo(expected.get(i % LINES.size()));
+    }
+
+    snpEffCodingFilter.destroy();
+    inProcessCodingFilter.destroy();
+  }
+
+}
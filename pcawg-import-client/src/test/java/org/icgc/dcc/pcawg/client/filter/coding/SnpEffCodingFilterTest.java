@@ -5,6 +5,10 @@ import lombok.val;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.stream.Collectors.toList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -24,4 +28,43 @@ public class SnpEffCodingFilterTest {
     filter.destroy();
   }
 
-}
\ No newline at end of file
+  @Test
+  public void submitTest() throws Exception {
+    val filter = new SnpEffCodingFilter();
+    val lines = Arrays.asList(
+        "1\t15292412\t.\tAATC\tA\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Intron",
+        "17\t7577120\t.\tC\tT\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Missense_Mutation",
+        "1\t15292412\t.\tAATC\tA\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Intron");
+
+    // Predictions submitted without waiting are the same as the ones waited for one at a time
+    final List<CompletableFuture<Boolean>> predictions = lines.stream()
+        .map(filter::submit)
+        .collect(toList());
+    for (int i = 0; i < lines.size(); i++) {
+      assertThat(filter.await(predictions.get(i))).isEqualTo(filter.isCoding(lines.get(i)));
+    }
+
+    filter.destroy();
+  }
+
+  @Test
+  public void submitAfterDestroyTest() throws Exception {
+    val filter = new SnpEffCodingFilter();
+    filter.destroy();
+    while (filter.isAlive()) {
+      Thread.sleep(10);
+    }
+
+    // Each submit fails right away, rather than waiting for the permit of a request that was never sent
+    int numFailed = 0;
+    for (int i = 0; i <= SnpEffCodingFilter.MAX_IN_FLIGHT_REQUESTS; i++) {
+      try {
+        filter.submit("1\t15292412\t.\tAATC\tA\t.\t.\tCallers=foo,bar;NumCallers=2;Variant_Classification=Intron");
+      } catch (IllegalStateException e) {
+        numFailed++;
+      }
+    }
+    assertThat(numFailed).isEqualTo(SnpEffCodingFilter.MAX_IN_FLIGHT_REQUESTS + 1);
+  }
+
+}
@@ -0,0 +1,83 @@
+package org.icgc.dcc.pcawg.client.filter.variant;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.io.Resources;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.vcf.RawConsensusVariant;
+import org.icgc.dcc.pcawg.client.vcf.VariantContextConsensusVariant;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.filter.variant.SnpEffLineEncoder.newSnpEffLineEncoder;
+import static org.icgc.dcc.pcawg.client.vcf.ConsensusVariantParser.newConsensusVariantParser;
+import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFFileReader;
+import static org.icgc.dcc.pcawg.client.vcf.VariantContextConsensusVariant.newVariantContextConsensusVariant;
+
+public class SnpEffLineEncoderTest {
+
+  private static final String[] FIXTURE_VCFS = {
+      "fixtures/test_indel_deletion.vcf",
+      "fixtures/test_indel_insertion.vcf",
+      "fixtures/test_snv_mnv_multiple_base.vcf",
+      "fixtures/test_snv_mnv_single_base.vcf" };
+  private static final Splitter TAB_SPLITTER = Splitter.on('\t');
+  private static final Joiner TAB_JOINER = Joiner.on('\t');
+
+  @SneakyThrows
+  private static File getFixture(String name){
+    return Paths.get(Resources.getResource(name).toURI()).toFile();
+  }
+
+  /**
+   * The first 5 columns of the line, followed by missing QUAL, FILTER and INFO columns
+   */
+  private static String expectedLine(String line){
+    val columns = TAB_SPLITTER.splitToList(line).subList(0, 5);
+    return TAB_JOINER.join(columns) + "\t.\t.\t.";
+  }
+
+  @Test
+  @SneakyThrows
+  public void testSameLinesForBothVariants(){
+    val encoder = newSnpEffLineEncoder();
+    for (val fixture : FIXTURE_VCFS){
+      val file = getFixture(fixture);
+      @Cleanup val reader = newDefaultVCFFileReader(file);
+      val parser = newConsensusVariantParser(reader.getFileHeader());
+      val lines = Files.readAllLines(file.toPath()).stream()
+          .filter(l -> !l.startsWith("#"))
+          .collect(toList());
+      assertThat(lines).isNotEmpty();
+
+      final Iterator<String> lineIterator = lines.iterator();
+      for (val variantContext : reader){
+        val line = lineIterator.next();
+        val rawVariant = parser.parse(line);
+        assertThat(rawVariant).isInstanceOf(RawConsensusVariant.class);
+        assertThat(encoder.encode(rawVariant)).isEqualTo(expectedLine(line));
+        assertThat(encoder.encode(newVariantContextConsensusVariant(variantContext))).isEqualTo(expectedLine(line));
+      }
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  public void testMultipleAlternativeAlleles(){
+    @Cleanup val reader = newDefaultVCFFileReader(getFixture(FIXTURE_VCFS[0]));
+    val parser = newConsensusVariantParser(reader.getFileHeader());
+    val line = "1\t100\trs1\tA\tT,G\t.\tPASS\tCallers=broad;t_ref_count=10;t_alt_count=3";
+    val variant = parser.parse(line);
+    assertThat(variant).isInstanceOf(VariantContextConsensusVariant.class);
+    assertThat(newSnpEffLineEncoder().encode(variant)).isEqualTo("1\t100\trs1\tA\tT,G\t.\t.\t.");
+  }
+
+}
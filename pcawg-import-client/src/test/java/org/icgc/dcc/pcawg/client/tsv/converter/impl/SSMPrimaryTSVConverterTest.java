@@ -0,0 +1,117 @@
+package org.icgc.dcc.pcawg.client.tsv.converter.impl;
+
+import com.google.common.collect.ImmutableList;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimary;
+import org.icgc.dcc.pcawg.client.core.model.ssm.primary.SSMPrimaryFieldMapping;
+import org.icgc.dcc.pcawg.client.core.model.ssm.primary.impl.PlainSSMPrimary;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.CharArrayWriter;
+import java.io.StringWriter;
+import java.util.List;
+
+import static java.util.stream.Collectors.joining;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.common.core.util.stream.Streams.stream;
+import static org.icgc.dcc.pcawg.client.core.types.DataTypes.SNV_MNV;
+import static org.icgc.dcc.pcawg.client.core.types.WorkflowTypes.CONSENSUS;
+import static org.icgc.dcc.pcawg.client.tsv.converter.impl.SSMPrimaryTSVConverter.newSSMPrimaryTSVConverter;
+import static org.icgc.dcc.pcawg.client.tsv.transformer.impl.BaseTransformer.newBaseTransformer;
+import static org.icgc.dcc.pcawg.client.utils.Benchmarks.benchmark;
+
+@Slf4j
+public class SSMPrimaryTSVConverterTest {
+
+  private static final int BENCHMARK_ITERATIONS = 200000;
+
+  private static final SSMPrimary SSM_PRIMARY = PlainSSMPrimary.builder()
+      .workflowType(CONSENSUS)
+      .dataType(SNV_MNV)
+      .dccProjectCode("BRCA-US")
+      .analyzedSampleId("SA514456")
+      .mutationType("single base substitution")
+      .study("1")
+      .chromosome("17")
+      .chromosomeStart(7577120)
+      .chromosomeEnd(7577120)
+      .chromosomeStrand(1)
+      .referenceGenomeAllele("C")
+      .controlGenotype("C/C")
+      .mutatedFromAllele("C")
+      .tumorGenotype("C/T")
+      .mutatedToAllele("T")
+      .expressedAllele("-777")
+      .qualityScore("-777")
+      .probability("-777")
+      .totalReadCount(83)
+      .mutantAlleleReadCount(-1)
+      .verificationStatus("not tested")
+      .verificationPlatform("-777")
+      .biologicalValidationStatus("-777")
+      .biologicalValidationPlatform("-777")
+      .note("-777")
+      .build();
+  private static final List<SSMPrimary> ROWS = ImmutableList.of(SSM_PRIMARY);
+
+  /**
+   * The rows as they were built before the converter appended the fields itself
+   */
+  private static String joinFields(SSMPrimary ssmPrimary){
+    return stream(SSMPrimaryFieldMapping.values())
+        .map(x -> x.extractStringValue(ssmPrimary))
+        .collect(joining("\t"));
+  }
+
+  @Test
+  public void testToTSVData(){
+    val converter = newSSMPrimaryTSVConverter();
+    val expected = SSM_PRIMARY.getAnalysisId() + "\tSA514456\tsingle base substitution\t17\t7577120\t7577120\t1\tC\tC/C"
+        + "\tC\tT\tC/T\t-777\t-777\t-777\t83\t-1\tnot tested\t-777\t-777\t-777\t1";
+    assertThat(converter.toTSVData(SSM_PRIMARY)).isEqualTo(expected);
+    assertThat(converter.toTSVData(SSM_PRIMARY)).isEqualTo(joinFields(SSM_PRIMARY));
+  }
+
+  @Test
+  public void testTransform(){
+    val converter = newSSMPrimaryTSVConverter();
+    val writer = new StringWriter();
+    val transformer = newBaseTransformer(converter, writer, true);
+    transformer.transform(SSM_PRIMARY);
+    transformer.writeData(converter.toTSVData(SSM_PRIMARY));
+    transformer.transform(SSM_PRIMARY);
+
+    val row = joinFields(SSM_PRIMARY) + "\n";
+    assertThat(writer.toString()).isEqualTo(converter.toTSVHeader() + "\n" + row + row + row);
+  }
+
+  @Test
+  @Ignore("Benchmark")
+  public void testBenchmark(){
+    val converter = newSSMPrimaryTSVConverter();
+    val joinedWriter = new CharArrayWriter();
+    log.info("Joined fields: {}", benchmark("row", BENCHMARK_ITERATIONS, ROWS, p -> {
+      String row = joinFields(p) + "\n";
+      joinedWriter.write(row, 0, row.length());
+      return resetWriter(joinedWriter);
+    }));
+    val transformerWriter = new CharArrayWriter();
+    val transformer = newBaseTransformer(converter, transformerWriter, false);
+    log.info("BaseTransformer: {}", benchmark("row", BENCHMARK_ITERATIONS, ROWS, p -> {
+      transformer.transform(p);
+      return resetWriter(transformerWriter);
+    }));
+  }
+
+  /**
+   * @return the size of the row written, once dropped
+   */
+  private static int resetWriter(CharArrayWriter writer){
+    val size = writer.size();
+    writer.reset();
+    return size;
+  }
+
+}
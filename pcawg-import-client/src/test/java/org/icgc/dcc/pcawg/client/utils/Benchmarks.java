@@ -0,0 +1,49 @@
+package org.icgc.dcc.pcawg.client.utils;
+
+import lombok.NoArgsConstructor;
+import lombok.val;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Measures the time and the bytes allocated by the current thread per call of an operation, after running it as many
+ * times to warm up the JIT
+ */
+@NoArgsConstructor(access = PRIVATE)
+public final class Benchmarks {
+
+  /**
+   * Applies the operation to each of the items, iterations times, to warm up and then to measure it
+   * @param operation returns a value summed and printed with the result, so that the JIT cannot drop the work
+   * @param unit what an item is, for the result
+   * @return the ns and the bytes per item, and the number of items per second
+   */
+  public static <T> String benchmark(String unit, final int iterations, List<T> items, ToIntFunction<T> operation){
+    val threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    val threadId = Thread.currentThread().getId();
+    int sum = 0;
+    // Warm up
+    for (int i = 0; i < iterations; i++){
+      for (val item : items){
+        sum += operation.applyAsInt(item);
+      }
+    }
+    val startBytes = threadBean.getThreadAllocatedBytes(threadId);
+    val startNanos = System.nanoTime();
+    for (int i = 0; i < iterations; i++){
+      for (val item : items){
+        sum += operation.applyAsInt(item);
+      }
+    }
+    val count = (double) iterations * items.size();
+    val nanosPerItem = (System.nanoTime() - startNanos) / count;
+    val bytesPerItem = (threadBean.getThreadAllocatedBytes(threadId) - startBytes) / count;
+    return String.format("%.1f ns and %.1f bytes per %s, %.0f %ss/s (%s)", nanosPerItem, bytesPerItem, unit,
+        1e9 / nanosPerItem, unit, sum);
+  }
+
+}
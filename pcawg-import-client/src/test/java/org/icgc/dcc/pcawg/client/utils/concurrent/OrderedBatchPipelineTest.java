@@ -0,0 +1,90 @@
+package org.icgc.dcc.pcawg.client.utils.concurrent;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import lombok.val;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.utils.concurrent.OrderedBatchPipeline.forEachOrdered;
+
+public class OrderedBatchPipelineTest {
+
+  private static final int NUM_ELEMENTS = 100000;
+  private static final int BATCH_SIZE = 37;
+  private static final int NUM_THREADS = 4;
+
+  private static List<Integer> expand(final int i){
+    return i % 3 == 0 ? ImmutableList.of() : ImmutableList.of(i, -i);
+  }
+
+  @Test
+  public void testSameOrderAsSequentialStream(){
+    val random = new Random(1);
+    val actual = Lists.<Integer>newArrayList();
+    forEachOrdered("test", IntStream.range(0, NUM_ELEMENTS).boxed(), BATCH_SIZE, NUM_THREADS, i -> {
+      // Uneven batches, so that they complete out of order
+      if (i % 1000 == 0){
+        sleep(random.nextInt(3));
+      }
+      return expand(i);
+    }, actual::add);
+
+    val expected = IntStream.range(0, NUM_ELEMENTS).boxed()
+        .flatMap(i -> expand(i).stream())
+        .collect(toList());
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBatchFailure(){
+    forEachOrdered("test", IntStream.range(0, NUM_ELEMENTS).boxed(), BATCH_SIZE, NUM_THREADS, i -> {
+      if (i == NUM_ELEMENTS / 2){
+        throw new IllegalStateException("batch");
+      }
+      return ImmutableList.of(i);
+    }, i -> {});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSinkFailure(){
+    forEachOrdered("test", IntStream.range(0, NUM_ELEMENTS).boxed(), BATCH_SIZE, NUM_THREADS,
+        i -> ImmutableList.of(i), i -> {
+          if (i == NUM_ELEMENTS / 2){
+            throw new IllegalArgumentException("sink");
+          }
+        });
+  }
+
+  @Test
+  public void testSourceFailure(){
+    val source = IntStream.range(0, NUM_ELEMENTS).boxed()
+        .map(i -> {
+          if (i == NUM_ELEMENTS / 2){
+            throw new UnsupportedOperationException("source");
+          }
+          return i;
+        });
+    try {
+      forEachOrdered("test", source, BATCH_SIZE, NUM_THREADS, i -> ImmutableList.of(i), i -> {});
+    } catch (UnsupportedOperationException e){
+      assertThat(Thread.currentThread().isInterrupted()).isFalse();
+      return;
+    }
+    throw new AssertionError("The failure of the source was not rethrown");
+  }
+
+  private static void sleep(final long millis){
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e){
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
@@ -0,0 +1,167 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.io.Resources;
+import htsjdk.variant.vcf.VCFHeader;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.core.types.WorkflowTypes;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.core.types.WorkflowTypes.BROAD;
+import static org.icgc.dcc.pcawg.client.core.types.WorkflowTypes.DKFZ_EMBL;
+import static org.icgc.dcc.pcawg.client.core.types.WorkflowTypes.SANGER;
+import static org.icgc.dcc.pcawg.client.core.types.WorkflowTypes.UNKNOWN;
+import static org.icgc.dcc.pcawg.client.vcf.ConsensusVariantParser.newConsensusVariantParser;
+import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFFileReader;
+import static org.icgc.dcc.pcawg.client.vcf.VariantContextConsensusVariant.newVariantContextConsensusVariant;
+
+public class ConsensusVariantParserTest {
+
+  private static final String[] FIXTURE_VCFS = {
+      "fixtures/test_indel_deletion.vcf",
+      "fixtures/test_indel_insertion.vcf",
+      "fixtures/test_snv_mnv_multiple_base.vcf",
+      "fixtures/test_snv_mnv_single_base.vcf" };
+
+  private static VCFHeader header;
+
+  @BeforeClass
+  public static void init(){
+    @Cleanup val reader = newDefaultVCFFileReader(getFixture(FIXTURE_VCFS[0]));
+    header = reader.getFileHeader();
+  }
+
+  @SneakyThrows
+  private static File getFixture(String name){
+    return Paths.get(Resources.getResource(name).toURI()).toFile();
+  }
+
+  private static void assertSameVariant(ConsensusVariant actual, ConsensusVariant expected){
+    assertThat(actual.getContig()).isEqualTo(expected.getContig());
+    assertThat(actual.getStart()).isEqualTo(expected.getStart());
+    assertThat(actual.getReferenceAlleleString()).isEqualTo(expected.getReferenceAlleleString());
+    assertThat(actual.getFirstAlternativeAlleleString()).isEqualTo(expected.getFirstAlternativeAlleleString());
+    assertThat(actual.isNotFiltered()).isEqualTo(expected.isNotFiltered());
+    assertThat(actual.getCallers()).isEqualTo(expected.getCallers());
+    assertThat(actual.getCallerMask()).isEqualTo(expected.getCallerMask());
+    assertThat(actual.getRefCount()).isEqualTo(expected.getRefCount());
+    assertThat(actual.getAltCount()).isEqualTo(expected.getAltCount());
+  }
+
+  @Test
+  @SneakyThrows
+  public void testSameFieldsAsVariantContext(){
+    for (val fixture : FIXTURE_VCFS){
+      val file = getFixture(fixture);
+      @Cleanup val reader = newDefaultVCFFileReader(file);
+      val parser = newConsensusVariantParser(reader.getFileHeader());
+      val lines = Files.readAllLines(file.toPath()).stream()
+          .filter(l -> !l.startsWith("#"))
+          .collect(toList());
+      assertThat(lines).isNotEmpty();
+
+      final Iterator<String> lineIterator = lines.iterator();
+      for (val variantContext : reader){
+        val actual = parser.parse(lineIterator.next());
+        assertThat(actual).isInstanceOf(RawConsensusVariant.class);
+        assertSameVariant(actual, newVariantContextConsensusVariant(variantContext));
+      }
+      assertThat(lineIterator.hasNext()).isFalse();
+      assertThat(parser.getFallbackCount()).isZero();
+    }
+  }
+
+  @Test
+  public void testFilteredLine(){
+    val parser = newConsensusVariantParser(header);
+    val filtered = parser.parse("1\t100\t.\tA\tT\t.\tLOWSUPPORT\tCallers=broad,dkfz;t_alt_count=3;t_ref_count=10");
+    assertThat(filtered).isInstanceOf(RawConsensusVariant.class);
+    assertThat(filtered.isNotFiltered()).isFalse();
+
+    assertThat(parser.parse("1\t100\t.\tA\tT\t.\tPASS\tCallers=broad").isNotFiltered()).isTrue();
+    assertThat(parser.parse("1\t100\t.\tA\tT\t.\t.\tCallers=broad").isNotFiltered()).isTrue();
+  }
+
+  @Test
+  public void testRejectFiltered(){
+    val parser = newConsensusVariantParser(header);
+    parser.setRejectFiltered(true);
+    val filtered = parser.parse("1\t100\t.\tA\tT\t.\tLOWSUPPORT\tCallers=broad,dkfz;t_alt_count=3;t_ref_count=10");
+    assertThat(filtered).isSameAs(FilteredConsensusVariant.INSTANCE);
+    assertThat(filtered.isNotFiltered()).isFalse();
+
+    // Unusual lines are rejected too, instead of being decoded by htsjdk
+    assertThat(parser.parse("1\t100\t.\tA\tT,G\t.\tLOWSUPPORT;OXOG\tCallers=broad"))
+        .isSameAs(FilteredConsensusVariant.INSTANCE);
+    assertThat(parser.getFallbackCount()).isZero();
+    assertThat(parser.getRejectedCount()).isEqualTo(2);
+
+    assertThat(parser.parse("1\t100\t.\tA\tT\t.\tPASS\tCallers=broad")).isInstanceOf(RawConsensusVariant.class);
+    assertThat(parser.parse("1\t100\t.\tA\tT\t.\t.\tCallers=broad")).isInstanceOf(RawConsensusVariant.class);
+    assertThat(parser.parse("1\t100\t.\tA\tT\t.\tPASSED\tCallers=broad"))
+        .isSameAs(FilteredConsensusVariant.INSTANCE);
+    assertThat(parser.getRejectedCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void testLazyInfo(){
+    val parser = newConsensusVariantParser(header);
+    val variant = parser.parse("1\t100\t.\tA\tT\t.\tPASS\tNumCallers=2;Callers=broad,dkfz;t_ref_count=10;t_alt_count=3");
+    assertThat(variant.getCallers()).containsExactly("broad", "dkfz");
+    assertThat(variant.getRefCount()).isEqualTo(Optional.of(10));
+    assertThat(variant.getAltCount()).isEqualTo(Optional.of(3));
+
+    val missing = parser.parse("1\t100\t.\tA\tT\t.\tPASS\tNumCallers=0");
+    assertThat(missing.getCallers()).isEmpty();
+    assertThat(missing.getRefCount()).isEqualTo(Optional.empty());
+    assertThat(missing.getAltCount()).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testCallerMask(){
+    val parser = newConsensusVariantParser(header);
+    val variant = parser.parse("1\t100\t.\tA\tT\t.\tPASS\tCallers=broad,dkfz,other;NumCallers=3");
+    assertThat(variant.getCallerMask()).isEqualTo(BROAD.getMask() | DKFZ_EMBL.getMask() | UNKNOWN.getMask());
+    assertThat(SANGER.isInMask(variant.getCallerMask())).isFalse();
+
+    assertThat(parser.parse("1\t100\t.\tA\tT\t.\tPASS\tNumCallers=0").getCallerMask()).isZero();
+    for (val workflowType : WorkflowTypes.values()){
+      val line = "1\t100\t.\tA\tT\t.\tPASS\tCallers=" + workflowType.getName();
+      assertThat(parser.parse(line).getCallerMask()).isEqualTo(workflowType.getMask());
+    }
+  }
+
+  @Test
+  public void testUnusualLinesFallBackToHtsjdk(){
+    val parser = newConsensusVariantParser(header);
+    val lines = new String[] {
+        "1\t100\t.\tA\tT,G\t.\tPASS\tCallers=broad;t_ref_count=10;t_alt_count=3",
+        "1\t100\t.\tA\t<DEL>\t.\tPASS\tCallers=broad;t_ref_count=10;t_alt_count=3",
+        "1\t100\t.\tacg\tA\t.\tPASS\tCallers=broad;t_ref_count=10;t_alt_count=3" };
+    for (val line : lines){
+      assertThat(parser.parse(line)).isInstanceOf(VariantContextConsensusVariant.class);
+    }
+    assertThat(parser.getFallbackCount()).isEqualTo(lines.length);
+
+    val lowerCase = parser.parse(lines[2]);
+    assertThat(lowerCase.getReferenceAlleleString()).isEqualToIgnoringCase("ACG");
+    assertThat(lowerCase.getCallers()).containsExactly("broad");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMultipleAlternativeAlleles(){
+    val parser = newConsensusVariantParser(header);
+    parser.parse("1\t100\t.\tA\tT,G\t.\tPASS\tCallers=broad").getFirstAlternativeAlleleString();
+  }
+
+}
@@ -0,0 +1,62 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.collect.ImmutableList;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegion.newContigRegion;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegion.newGenomicRegion;
+import static org.icgc.dcc.pcawg.client.vcf.GenomicRegions.parseGenomicRegions;
+
+public class GenomicRegionsTest {
+
+  @Test
+  public void testWholeGenome(){
+    assertThat(parseGenomicRegions(null)).isEqualTo(Optional.empty());
+    assertThat(parseGenomicRegions(" ")).isEqualTo(Optional.empty());
+  }
+
+  @Test
+  public void testMergedRegions(){
+    val regions = parseGenomicRegions("2:500-600, 1:100-200,2:100-200,1:150-300,1:301-400,X").get();
+    assertThat(regions.getName()).isEqualTo("2_500-600_1_100-200_2_100-200_1_150-300_1_301-400_X");
+    assertThat(regions.getRegions()).isEqualTo(ImmutableList.of(
+        newGenomicRegion("2", 100, 200),
+        newGenomicRegion("2", 500, 600),
+        newGenomicRegion("1", 100, 400),
+        newContigRegion("X")));
+  }
+
+  @Test
+  @SneakyThrows
+  public void testBedRegions(){
+    val bedFile = File.createTempFile("genomicRegionsTest", ".bed");
+    try {
+      Files.write(bedFile.toPath(), ImmutableList.of(
+          "track name=test",
+          "# comment",
+          "1\t99\t200\tfirst",
+          "1\t0\t10"), UTF_8);
+      val regions = parseGenomicRegions(bedFile.getPath()).get();
+      assertThat(bedFile.getName()).startsWith(regions.getName());
+      assertThat(regions.getRegions()).isEqualTo(ImmutableList.of(
+          newGenomicRegion("1", 1, 10),
+          newGenomicRegion("1", 100, 200)));
+    } finally {
+      Files.deleteIfExists(bedFile.toPath());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidRegion(){
+    parseGenomicRegions("1:200-100");
+  }
+
+}
@@ -0,0 +1,177 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.variant.vcf.VCFFileReader;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.function.IntSupplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.vcf.BgzfVcfReader.newBgzfVcfReader;
+import static org.icgc.dcc.pcawg.client.vcf.ParallelBgzfLineReader.newParallelBgzfLineReader;
+import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFEncoder;
+import static org.icgc.dcc.pcawg.client.vcf.VCF.newDefaultVCFFileReader;
+
+@Slf4j
+public class ParallelBgzfLineReaderTest {
+
+  private static final String FIXTURE_VCF = "fixtures/test_snv_mnv_single_base.vcf";
+  private static final String BENCHMARK_VCF_PROPERTY = "bgzf_benchmark_vcf";
+  private static final int NUM_REPEATS = 2000;
+  private static final int INFLATE_THREADS = 3;
+  private static final int BENCHMARK_RUNS = 5;
+
+  private static File bgzfFile;
+
+  /**
+   * Writes the records of the fixture NUM_REPEATS times into a BGZF file, so that it spans many blocks
+   */
+  @BeforeClass
+  @SneakyThrows
+  public static void init(){
+    val lines = Resources.readLines(Resources.getResource(FIXTURE_VCF), UTF_8);
+    bgzfFile = File.createTempFile("parallelBgzfLineReaderTest", ".vcf.gz");
+    @Cleanup val output = new BlockCompressedOutputStream(bgzfFile);
+    lines.stream()
+        .filter(l -> l.startsWith("#"))
+        .forEach(l -> write(output, l));
+    for (int i = 0; i < NUM_REPEATS; i++){
+      lines.stream()
+          .filter(l -> !l.startsWith("#"))
+          .forEach(l -> write(output, l));
+    }
+  }
+
+  @AfterClass
+  @SneakyThrows
+  public static void destroy(){
+    Files.deleteIfExists(bgzfFile.toPath());
+  }
+
+  @SneakyThrows
+  private static void write(BlockCompressedOutputStream output, String line){
+    output.write((line + "\n").getBytes(UTF_8));
+  }
+
+  @SneakyThrows
+  private static List<String> readLines(BgzfLineReader reader, List<Long> filePointers){
+    val lines = Lists.<String>newArrayList();
+    while (true){
+      filePointers.add(reader.getFilePointer());
+      val line = reader.readLine();
+      if (line == null){
+        return lines;
+      }
+      lines.add(line);
+    }
+  }
+
+  @Test
+  @SneakyThrows
+  public void testSameLinesAndFilePointersAsBlockCompressedInputStream(){
+    val expectedLines = Lists.<String>newArrayList();
+    val expectedPointers = Lists.<Long>newArrayList();
+    @Cleanup val expectedInput = new BlockCompressedInputStream(bgzfFile);
+    while (true){
+      expectedPointers.add(expectedInput.getFilePointer());
+      val line = expectedInput.readLine();
+      if (line == null){
+        break;
+      }
+      expectedLines.add(line);
+    }
+
+    val actualPointers = Lists.<Long>newArrayList();
+    @Cleanup val reader = newParallelBgzfLineReader(bgzfFile, INFLATE_THREADS);
+    val actualLines = readLines(reader, actualPointers);
+
+    assertThat(actualLines).hasSize(expectedLines.size());
+    assertThat(actualLines).isEqualTo(expectedLines);
+    assertThat(actualPointers).isEqualTo(expectedPointers);
+  }
+
+  @Test
+  @SneakyThrows
+  public void testSeek(){
+    val filePointers = Lists.<Long>newArrayList();
+    @Cleanup val reader = newParallelBgzfLineReader(bgzfFile, INFLATE_THREADS);
+    val lines = readLines(reader, filePointers);
+
+    @Cleanup val expectedInput = new BlockCompressedInputStream(bgzfFile);
+    for (int i = lines.size() - 1; i >= 0; i -= 97){
+      reader.seek(filePointers.get(i));
+      expectedInput.seek(filePointers.get(i));
+      assertThat(reader.readLine()).isEqualTo(lines.get(i)).isEqualTo(expectedInput.readLine());
+      assertThat(reader.getFilePointer()).isEqualTo(expectedInput.getFilePointer());
+    }
+    reader.seek(filePointers.get(lines.size()));
+    assertThat(reader.readLine()).isNull();
+  }
+
+  @Test
+  public void testSameVariantsAsVcfFileReader(){
+    @Cleanup val vcfFileReader = newDefaultVCFFileReader(bgzfFile);
+    val encoder = newDefaultVCFEncoder(vcfFileReader);
+    val expected = Lists.<String>newArrayList();
+    vcfFileReader.forEach(v -> expected.add(encoder.encode(v)));
+
+    @Cleanup val bgzfVcfReader = newBgzfVcfReader(bgzfFile, INFLATE_THREADS);
+    val actual = Lists.<String>newArrayList();
+    bgzfVcfReader.forEach(v -> actual.add(encoder.encode(v)));
+
+    assertThat(actual).isNotEmpty();
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  /**
+   * Compares the time to read and decode every variant of a real consensus file, given with -Dbgzf_benchmark_vcf,
+   * with the current VCFFileReader and with inflateThreads from 1 to the number of cores
+   */
+  @Test
+  @Ignore
+  public void testBenchmark(){
+    val file = Paths.get(System.getProperty(BENCHMARK_VCF_PROPERTY, bgzfFile.getPath())).toFile();
+    log.info("VCFFileReader: {} ms per run", benchmark(() -> {
+      @Cleanup val reader = new VCFFileReader(file, false);
+      return Lists.newArrayList(reader).size();
+    }));
+    val cores = Runtime.getRuntime().availableProcessors();
+    for (int inflateThreads = 0; inflateThreads <= cores; inflateThreads = Math.max(1, inflateThreads * 2)){
+      val threads = inflateThreads;
+      log.info("BgzfVcfReader with {} inflateThreads: {} ms per run", threads, benchmark(() -> {
+        @Cleanup val reader = newBgzfVcfReader(file, threads);
+        return Lists.newArrayList(reader).size();
+      }));
+    }
+  }
+
+  private static long benchmark(IntSupplier run){
+    // Warm up
+    run.getAsInt();
+    val start = System.nanoTime();
+    int count = 0;
+    for (int i = 0; i < BENCHMARK_RUNS; i++){
+      count += run.getAsInt();
+    }
+    val elapsedMs = NANOSECONDS.toMillis(System.nanoTime() - start) / BENCHMARK_RUNS;
+    log.info("Read {} variants per run", count / BENCHMARK_RUNS);
+    return elapsedMs;
+  }
+
+}
@@ -0,0 +1,129 @@
+package org.icgc.dcc.pcawg.client.vcf;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.variant.vcf.VCFCodec;
+import lombok.Cleanup;
+import lombok.SneakyThrows;
+import lombok.val;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.vcf.BgzfVcfReader.newBgzfVcfReader;
+import static org.icgc.dcc.pcawg.client.vcf.VcfContigIndex.readContigOffsets;
+
+public class VcfContigIndexTest {
+
+  private static final String FIXTURE_VCF = "fixtures/test_snv_mnv_single_base.vcf";
+  private static final List<String> CONTIGS = ImmutableList.of("1", "2", "X");
+  private static final int NUM_RECORDS_PER_CONTIG = 3000;
+  private static final int INFLATE_THREADS = 2;
+
+  private File bgzfFile;
+  private File tabixFile;
+
+  @Before
+  @SneakyThrows
+  public void init(){
+    bgzfFile = File.createTempFile("vcfContigIndexTest", ".vcf.gz");
+    tabixFile = new File(bgzfFile.getPath() + ".tbi");
+  }
+
+  @After
+  @SneakyThrows
+  public void destroy(){
+    Files.deleteIfExists(bgzfFile.toPath());
+    Files.deleteIfExists(tabixFile.toPath());
+  }
+
+  private static String newRecord(String contig, final int position){
+    return String.format("%s\t%s\t.\tA\tT\t.\tPASS\tCallers=broad,dkfz;NumCallers=2", contig, position);
+  }
+
+  /**
+   * Writes NUM_RECORDS_PER_CONTIG records for each of the contigs, in order, so that they span many blocks
+   */
+  @SneakyThrows
+  private List<String> writeRecords(List<String> contigs){
+    val records = Lists.<String>newArrayList();
+    for (val contig : contigs){
+      for (int i = 1; i <= NUM_RECORDS_PER_CONTIG; i++){
+        records.add(newRecord(contig, i * 10));
+      }
+    }
+    @Cleanup val output = new BlockCompressedOutputStream(bgzfFile);
+    for (val line : Resources.readLines(Resources.getResource(FIXTURE_VCF), UTF_8)){
+      if (line.startsWith("#")){
+        output.write((line + "\n").getBytes(UTF_8));
+      }
+    }
+    for (val record : records){
+      output.write((record + "\n").getBytes(UTF_8));
+    }
+    return records;
+  }
+
+  private List<String> readContigRecords(String contig, final long virtualOffset){
+    @Cleanup val reader = newBgzfVcfReader(bgzfFile);
+    reader.seek(virtualOffset);
+    val records = Lists.<String>newArrayList();
+    reader.consensusVariants(contig).forEach(v -> {
+      assertThat(v.getContig()).isEqualTo(contig);
+      records.add(v.encode(null));
+    });
+    return records;
+  }
+
+  @Test
+  public void testContigsReadOnTheirOwn(){
+    val expected = writeRecords(CONTIGS);
+    val contigOffsets = readContigOffsets(bgzfFile, INFLATE_THREADS);
+    assertThat(contigOffsets.isPresent()).isTrue();
+    assertThat(ImmutableList.copyOf(contigOffsets.get().keySet())).isEqualTo(CONTIGS);
+
+    val actual = Lists.<String>newArrayList();
+    for (val entry : contigOffsets.get().entrySet()){
+      val records = readContigRecords(entry.getKey(), entry.getValue());
+      assertThat(records).hasSize(NUM_RECORDS_PER_CONTIG);
+      actual.addAll(records);
+    }
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Test
+  @SneakyThrows
+  public void testSameContigsFromTabixIndex(){
+    writeRecords(CONTIGS);
+    final Map<String, Long> scannedOffsets = readContigOffsets(bgzfFile, 0).get();
+
+    val tabixIndex = IndexFactory.createTabixIndex(bgzfFile, new VCFCodec(), TabixFormat.VCF, null);
+    tabixIndex.writeBasedOnFeatureFile(bgzfFile);
+    assertThat(tabixFile.isFile()).isTrue();
+    val tabixOffsets = readContigOffsets(bgzfFile, 0).get();
+    assertThat(ImmutableList.copyOf(tabixOffsets.keySet())).isEqualTo(CONTIGS);
+    for (val contig : CONTIGS){
+      assertThat(readContigRecords(contig, tabixOffsets.get(contig)))
+          .isEqualTo(readContigRecords(contig, scannedOffsets.get(contig)));
+    }
+  }
+
+  @Test
+  public void testContigsNotGrouped(){
+    writeRecords(ImmutableList.of("1", "2", "1"));
+    assertThat(readContigOffsets(bgzfFile, 0)).isEqualTo(Optional.empty());
+  }
+
+}
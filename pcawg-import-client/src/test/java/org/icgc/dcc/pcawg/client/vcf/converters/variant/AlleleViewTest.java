@@ -0,0 +1,170 @@
+package org.icgc.dcc.pcawg.client.vcf.converters.variant;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+import htsjdk.variant.vcf.VCFHeader;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariant;
+import org.icgc.dcc.pcawg.client.vcf.ConsensusVariantParser;
+import org.icgc.dcc.pcawg.client.vcf.converters.variant.strategy.VariantConverterStrategyMux;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.icgc.dcc.pcawg.client.core.types.DataTypes.INDEL;
+import static org.icgc.dcc.pcawg.client.core.types.DataTypes.SNV_MNV;
+import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.DELETION_LTE_200BP;
+import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.INSERTION_LTE_200BP;
+import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.MULTIPLE_BASE_SUBSTITUTION;
+import static org.icgc.dcc.pcawg.client.core.types.MutationTypes.SINGLE_BASE_SUBSTITUTION;
+import static org.icgc.dcc.pcawg.client.utils.Benchmarks.benchmark;
+import static org.icgc.dcc.pcawg.client.vcf.ConsensusVariantParser.newConsensusVariantParser;
+import static org.icgc.dcc.pcawg.client.vcf.VCF.joinAlleles;
+import static org.icgc.dcc.pcawg.client.vcf.VCF.removeFirstBase;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.AlleleView.newAlleleView;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor.resolveDataType;
+import static org.icgc.dcc.pcawg.client.vcf.converters.variant.VariantProcessor.resolveMutationType;
+
+@Slf4j
+public class AlleleViewTest {
+
+  private static final String[] FIXTURE_VCFS = {
+      "fixtures/test_indel_deletion.vcf",
+      "fixtures/test_indel_insertion.vcf",
+      "fixtures/test_snv_mnv_multiple_base.vcf",
+      "fixtures/test_snv_mnv_single_base.vcf" };
+  private static final int BENCHMARK_ITERATIONS = 20000;
+
+  private static final VariantConverterStrategyMux MUX = new VariantConverterStrategyMux();
+  private final ConsensusVariantParser parser = newConsensusVariantParser(new VCFHeader());
+
+  private AlleleView newView(String ref, String alt){
+    return newAlleleView(parser.parse(String.format("1\t100\t.\t%s\t%s\t.\tPASS\tCallers=broad", ref, alt)));
+  }
+
+  @Test
+  public void testSnv(){
+    val view = newView("A", "T");
+    assertThat(view.getMutationType()).isEqualTo(SINGLE_BASE_SUBSTITUTION);
+    assertThat(view.getDataType()).isEqualTo(SNV_MNV);
+    val converter = MUX.select(view.getMutationType());
+    assertThat(converter.convertChromosomeStart(view)).isEqualTo(100);
+    assertThat(converter.convertChromosomeEnd(view)).isEqualTo(100);
+    assertThat(converter.convertTumorGenotype(view)).isEqualTo("A/T");
+  }
+
+  @Test
+  public void testMnv(){
+    val view = newView("AC", "TG");
+    assertThat(view.getMutationType()).isEqualTo(MULTIPLE_BASE_SUBSTITUTION);
+    assertThat(view.getDataType()).isEqualTo(SNV_MNV);
+    val converter = MUX.select(view.getMutationType());
+    assertThat(converter.convertChromosomeEnd(view)).isEqualTo(101);
+    assertThat(converter.convertControlGenotype(view)).isEqualTo("AC/AC");
+  }
+
+  @Test
+  public void testDeletion(){
+    val view = newView("ACGT", "A");
+    assertThat(view.getMutationType()).isEqualTo(DELETION_LTE_200BP);
+    assertThat(view.getDataType()).isEqualTo(INDEL);
+    assertThat(view.getStrippedReferenceAllele()).isEqualTo("CGT");
+    val converter = MUX.select(view.getMutationType());
+    assertThat(converter.convertChromosomeStart(view)).isEqualTo(101);
+    assertThat(converter.convertChromosomeEnd(view)).isEqualTo(103);
+    assertThat(converter.convertMutatedFromAllele(view)).isEqualTo("CGT");
+    assertThat(converter.convertTumorGenotype(view)).isEqualTo("CGT/-");
+  }
+
+  @Test
+  public void testInsertion(){
+    val view = newView("A", "ACGT");
+    assertThat(view.getMutationType()).isEqualTo(INSERTION_LTE_200BP);
+    assertThat(view.getDataType()).isEqualTo(INDEL);
+    assertThat(view.getStrippedAlternativeAllele()).isEqualTo("CGT");
+    assertThat(view.getStrippedAlternativeAllele()).isSameAs(view.getStrippedAlternativeAllele());
+    val converter = MUX.select(view.getMutationType());
+    assertThat(converter.convertChromosomeStart(view)).isEqualTo(101);
+    assertThat(converter.convertChromosomeEnd(view)).isEqualTo(101);
+    assertThat(converter.convertMutatedToAllele(view)).isEqualTo("CGT");
+    assertThat(converter.convertTumorGenotype(view)).isEqualTo("-/CGT");
+  }
+
+  @SneakyThrows
+  private List<ConsensusVariant> readFixtureVariants(){
+    val lines = Lists.<String>newArrayList();
+    for (val fixture : FIXTURE_VCFS){
+      Resources.readLines(Resources.getResource(fixture), UTF_8).stream()
+          .filter(l -> !l.startsWith("#"))
+          .forEach(lines::add);
+    }
+    return lines.stream()
+        .map(parser::parse)
+        .collect(toList());
+  }
+
+  /**
+   * The allele work done per variant before the AlleleView: every accessor re-read from the variant, and the
+   * mutationType resolved twice
+   */
+  private static int convertWithoutView(ConsensusVariant variant){
+    val mutationType = resolveMutationType(variant);
+    resolveDataType(resolveMutationType(variant));
+    int hash = mutationType.hashCode();
+    switch (mutationType){
+      case DELETION_LTE_200BP:
+        hash += variant.getStart() + variant.getReferenceAlleleString().length();
+        hash += joinAlleles(removeFirstBase(variant.getReferenceAlleleString()),
+            removeFirstBase(variant.getReferenceAlleleString())).length();
+        hash += removeFirstBase(variant.getReferenceAlleleString()).length();
+        hash += removeFirstBase(variant.getReferenceAlleleString()).length();
+        hash += joinAlleles(removeFirstBase(variant.getReferenceAlleleString()), "-").length();
+        break;
+      case INSERTION_LTE_200BP:
+        hash += variant.getStart();
+        hash += removeFirstBase(variant.getFirstAlternativeAlleleString()).length();
+        hash += joinAlleles("-", removeFirstBase(variant.getFirstAlternativeAlleleString())).length();
+        break;
+      default:
+        hash += variant.getStart() + variant.getReferenceAlleleString().length();
+        hash += joinAlleles(variant.getReferenceAlleleString(), variant.getReferenceAlleleString()).length();
+        hash += variant.getReferenceAlleleString().length() + variant.getFirstAlternativeAlleleString().length();
+        hash += variant.getReferenceAlleleString().length();
+        hash += joinAlleles(variant.getReferenceAlleleString(), variant.getFirstAlternativeAlleleString()).length();
+    }
+    return hash;
+  }
+
+  private static int convertWithView(ConsensusVariant variant){
+    val view = newAlleleView(variant);
+    val converter = MUX.select(view.getMutationType());
+    return view.getDataType().hashCode()
+        + converter.convertChromosomeStart(view)
+        + converter.convertChromosomeEnd(view)
+        + converter.convertControlGenotype(view).length()
+        + converter.convertMutatedFromAllele(view).length()
+        + converter.convertMutatedToAllele(view).length()
+        + converter.convertReferenceGenomeAllele(view).length()
+        + converter.convertTumorGenotype(view).length();
+  }
+
+  /**
+   * Compares the time and the allocated bytes per variant, with and without the AlleleView
+   */
+  @Test
+  @Ignore
+  public void testBenchmark(){
+    val variants = readFixtureVariants();
+    log.info("Without AlleleView: {}",
+        benchmark("variant", BENCHMARK_ITERATIONS, variants, AlleleViewTest::convertWithoutView));
+    log.info("With AlleleView: {}",
+        benchmark("variant", BENCHMARK_ITERATIONS, variants, AlleleViewTest::convertWithView));
+  }
+
+}